@@ -0,0 +1,107 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+
+/**
+ * One of the {@link Engines} filled with a synthetic workload before every trial.
+ * -> {@code users} users are registered and {@code contents} content items are published by random users,
+ * every tenth of them a story
+ * -> Every description has one of {@code tags} tags and mentions a random user
+ * -> Every user follows {@link #FOLLOWS_PER_USER} users before any content is published, picked with the same
+ * skew as the liked content, so with enough users the most followed ones become celebrities whose content is
+ * merged into feeds at read time
+ * -> Every content item gets one like and one comment on average, the liked and commented items are picked
+ * with Zipf exponent {@code likeSkew} (0 means uniformly), so popular content is hot for the benchmarks as well
+ */
+@State(Scope.Benchmark)
+public class EngineState {
+
+    static final int SAMPLES = 1 << 16;
+    static final int FOLLOWS_PER_USER = 20;
+
+    @Param({"evil", "concurrent", "sharded", "instrumented", "eventloop", "mvcc"})
+    public String engine;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    @Param({"10000", "1000000"})
+    public int contents;
+
+    @Param({"10", "10000"})
+    public int tags;
+
+    @Param({"0", "1.1"})
+    public double likeSkew;
+
+    SocialMediaInator socialMedia;
+    private Closeable resources;
+    String[] usernames;
+    String[] contentIds;
+    String[] tagNames;
+    int[] userSamples;
+    int[] contentSamples;
+    int[] tagSamples;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        socialMedia = Engines.create(engine, closeable -> resources = closeable);
+        SplittableRandom random = new SplittableRandom(42);
+        usernames = new String[users];
+        for (int i = 0; i < users; i++) {
+            usernames[i] = "user" + i;
+            socialMedia.register(usernames[i]);
+        }
+        ZipfSampler followeeSampler = new ZipfSampler(users, likeSkew);
+        for (int i = 0; i < users; i++) {
+            for (int j = 0; j < FOLLOWS_PER_USER; j++) {
+                int followee = followeeSampler.next(random);
+                if (followee != i) {
+                    socialMedia.follow(usernames[i], usernames[followee]);
+                }
+            }
+        }
+        tagNames = new String[tags];
+        for (int i = 0; i < tags; i++) {
+            tagNames[i] = "#tag" + i;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        contentIds = new String[contents];
+        for (int i = 0; i < contents; i++) {
+            String creator = usernames[random.nextInt(users)];
+            String description = "Content " + i + " " + tagNames[random.nextInt(tags)] + " @"
+                    + usernames[random.nextInt(users)];
+            contentIds[i] = i % 10 == 0 ? socialMedia.publishStory(creator, now, description)
+                    : socialMedia.publishPost(creator, now, description);
+        }
+        ZipfSampler contentSampler = new ZipfSampler(contents, likeSkew);
+        for (int i = 0; i < contents; i++) {
+            socialMedia.like(usernames[random.nextInt(users)], contentIds[contentSampler.next(random)]);
+            socialMedia.comment(usernames[random.nextInt(users)], "Comment " + i,
+                    contentIds[contentSampler.next(random)]);
+        }
+        userSamples = new ZipfSampler(users, 0).sample(random, SAMPLES);
+        contentSamples = contentSampler.sample(random, SAMPLES);
+        tagSamples = new ZipfSampler(tags, 0).sample(random, SAMPLES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (resources != null) {
+            resources.close();
+            resources = null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Consumer;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.Backpressure;
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.MvccSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ShardedSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ConcurrentSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.EventLoopSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.InstrumentedSocialMediaInator;
+
+/**
+ * Creates the engines compared by the benchmarks and the workload runner, by name.
+ * -> "sharded" has one shard per available processor
+ * -> "instrumented" is the evil engine behind the metrics decorator, to keep an eye on its overhead
+ * -> "eventloop" is the single-writer engine called through its blocking view, so every call pays the round trip
+ * through the ring
+ * -> "mvcc" publishes a new persistent version of its indexes on every write and runs queries on pinned versions
+ */
+public final class Engines {
+
+    public static final List<String> NAMES = List.of("evil", "concurrent", "sharded", "instrumented", "eventloop",
+            "mvcc");
+
+    private static final int EVENT_LOOP_CAPACITY = 1 << 12;
+
+    private Engines() {
+    }
+
+    /**
+     * @param resources Receives what has to be closed once the engine is no longer used, if anything
+     */
+    public static SocialMediaInator create(String name, Consumer<Closeable> resources) {
+        switch (name) {
+            case "evil":
+                return new EvilSocialInator();
+            case "concurrent":
+                return new ConcurrentSocialInator();
+            case "sharded":
+                ShardedSocialInator sharded = new ShardedSocialInator(Runtime.getRuntime().availableProcessors());
+                resources.accept(sharded);
+                return sharded;
+            case "instrumented":
+                return new InstrumentedSocialMediaInator(new EvilSocialInator());
+            case "eventloop":
+                EventLoopSocialInator eventLoop = new EventLoopSocialInator(EVENT_LOOP_CAPACITY, Backpressure.block());
+                resources.accept(eventLoop);
+                return eventLoop.blocking();
+            case "mvcc":
+                return new MvccSocialInator();
+            default:
+                throw new IllegalArgumentException("Unknown engine " + name);
+        }
+    }
+
+    /**
+     * The evil engine and its instrumented variant expect a single caller at a time.
+     */
+    public static boolean isThreadSafe(String name) {
+        return !name.equals("evil") && !name.equals("instrumented");
+    }
+}
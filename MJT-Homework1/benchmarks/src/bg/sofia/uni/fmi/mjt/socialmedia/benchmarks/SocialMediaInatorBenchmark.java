@@ -0,0 +1,137 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+
+/**
+ * One benchmark per {@link bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator} operation, run against every
+ * engine of {@link EngineState}.
+ * -> Users, content and tags are taken from samples drawn before the trial, cycling through them per thread
+ * -> The publishing, liking, commenting and registering benchmarks keep changing the engine, so their
+ * numbers describe an engine which grows slightly during the trial
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SocialMediaInatorBenchmark {
+
+    private static final int TOP = 10;
+
+    private int cursor;
+    private long registered;
+
+    private int nextSample() {
+        cursor = (cursor + 1) & (EngineState.SAMPLES - 1);
+        return cursor;
+    }
+
+    private String user(EngineState state) {
+        return state.usernames[state.userSamples[nextSample()]];
+    }
+
+    private String content(EngineState state) {
+        return state.contentIds[state.contentSamples[nextSample()]];
+    }
+
+    @Benchmark
+    public String register(EngineState state) {
+        String username = "new-" + Thread.currentThread().getId() + "-" + registered++;
+        state.socialMedia.register(username);
+        return username;
+    }
+
+    @Benchmark
+    public String publishPost(EngineState state) {
+        return state.socialMedia.publishPost(user(state), LocalDateTime.now(),
+                "Benchmark post " + state.tagNames[state.tagSamples[nextSample()]] + " @" + user(state));
+    }
+
+    @Benchmark
+    public String publishStory(EngineState state) {
+        return state.socialMedia.publishStory(user(state), LocalDateTime.now(),
+                "Benchmark story " + state.tagNames[state.tagSamples[nextSample()]] + " @" + user(state));
+    }
+
+    @Benchmark
+    public void like(EngineState state) {
+        state.socialMedia.like(user(state), content(state));
+    }
+
+    @Benchmark
+    public boolean hasLiked(EngineState state) {
+        return state.socialMedia.hasLiked(user(state), content(state));
+    }
+
+    @Benchmark
+    public void comment(EngineState state) {
+        state.socialMedia.comment(user(state), "Benchmark comment", content(state));
+    }
+
+    @Benchmark
+    public Collection<Content> getNMostPopularContent(EngineState state) {
+        return state.socialMedia.getNMostPopularContent(TOP);
+    }
+
+    @Benchmark
+    public Collection<Content> getNMostRecentContent(EngineState state) {
+        return state.socialMedia.getNMostRecentContent(user(state), TOP);
+    }
+
+    @Benchmark
+    public String getMostPopularUser(EngineState state) {
+        return state.socialMedia.getMostPopularUser();
+    }
+
+    @Benchmark
+    public Collection<Content> findContentByTag(EngineState state) {
+        return state.socialMedia.findContentByTag(state.tagNames[state.tagSamples[nextSample()]]);
+    }
+
+    @Benchmark
+    public List<String> getActivityLog(EngineState state) {
+        return state.socialMedia.getActivityLog(user(state));
+    }
+
+    @Benchmark
+    public Collection<Content> getHomeFeed(EngineState state) {
+        return state.socialMedia.getHomeFeed(user(state), TOP);
+    }
+
+    @Benchmark
+    public void followAndUnfollow(EngineState state) {
+        String follower = user(state);
+        String followee = user(state);
+        if (!follower.equals(followee)) {
+            state.socialMedia.follow(follower, followee);
+            state.socialMedia.unfollow(follower, followee);
+        }
+    }
+
+    @Benchmark
+    public UserStats getUserStats(EngineState state) {
+        return state.socialMedia.getUserStats(user(state));
+    }
+
+    @Benchmark
+    public List<UserStats> getTopUsersByEngagement(EngineState state) {
+        return state.socialMedia.getTopUsersByEngagement(TOP);
+    }
+}
@@ -0,0 +1,46 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws indices in [0, n) where index k is picked with probability proportional to 1 / (k + 1)^exponent.
+ * -> An exponent of 0 gives a uniform distribution, larger exponents concentrate the picks on the first indices
+ */
+public class ZipfSampler {
+
+    private final double[] cumulative;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("N should be positive!");
+        } else if (exponent < 0) {
+            throw new IllegalArgumentException("Exponent cannot be negative!");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    public int next(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Draws {@code count} indices up front, so benchmarks do not measure the sampling itself.
+     */
+    public int[] sample(SplittableRandom random, int count) {
+        int[] samples = new int[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = next(random);
+        }
+        return samples;
+    }
+}
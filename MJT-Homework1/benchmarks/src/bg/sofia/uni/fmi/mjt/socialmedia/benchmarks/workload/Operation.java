@@ -0,0 +1,72 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.workload;
+
+/**
+ * One call of a workload, in a form which does not depend on the engine it is run against.
+ * -> Users are referred to by their index, the username of user i is "user" + i
+ * -> Content is referred to by the index of the publication which created it during the setup of the workload,
+ * as the ids handed out by engines may differ
+ * -> {@code target} is the content, the other user, the tag or the page size the operation is about,
+ * -1 if there is none
+ */
+public final class Operation {
+
+    public enum Type {
+        REGISTER, POST, STORY, LIKE, COMMENT, FOLLOW,
+        HAS_LIKED, MOST_POPULAR, MOST_RECENT, MOST_POPULAR_USER, TAG, ACTIVITY_LOG, HOME_FEED, USER_STATS
+    }
+
+    private final Type type;
+    private final int user;
+    private final int target;
+    private final long offsetSeconds;
+    private final String text;
+
+    /**
+     * @param offsetSeconds When content is published, in seconds relative to the start of the run
+     * @param text          The description or the comment, without tabs and line breaks, or null
+     */
+    public Operation(Type type, int user, int target, long offsetSeconds, String text) {
+        if (type == null) {
+            throw new IllegalArgumentException("Type cannot be null!");
+        } else if (text != null && (text.indexOf('\t') >= 0 || text.indexOf('\n') >= 0)) {
+            throw new IllegalArgumentException("Text cannot contain tabs or line breaks!");
+        }
+        this.type = type;
+        this.user = user;
+        this.target = target;
+        this.offsetSeconds = offsetSeconds;
+        this.text = text;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getUser() {
+        return user;
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public long getOffsetSeconds() {
+        return offsetSeconds;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isWrite() {
+        return type.ordinal() <= Type.FOLLOW.ordinal();
+    }
+
+    public static String usernameOf(int user) {
+        return "user" + user;
+    }
+
+    public static String tagOf(int tag) {
+        return "#tag" + tag;
+    }
+}
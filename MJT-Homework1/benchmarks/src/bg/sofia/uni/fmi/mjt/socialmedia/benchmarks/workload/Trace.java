@@ -0,0 +1,105 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.workload;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes workloads to text files and reads them back, so the same calls can be replayed against other engines,
+ * on other machines or after the generator has changed.
+ * -> The first line is "# " followed by the spec's options, then come an "@setup" and an "@run" section
+ * -> Every operation is a line of tab separated type, user, target, offset and, if there is one, text
+ */
+public final class Trace {
+
+    private static final String HEADER = "# ";
+    private static final String SETUP = "@setup";
+    private static final String RUN = "@run";
+    private static final String SEPARATOR = "\t";
+
+    private Trace() {
+    }
+
+    public static void write(Workload workload, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(HEADER + workload.getSpec());
+            writer.newLine();
+            writeSection(writer, SETUP, workload.getSetup());
+            writeSection(writer, RUN, workload.getRun());
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If the file is not a trace
+     */
+    public static Workload read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER)) {
+                throw new IllegalArgumentException("A trace should start with its spec!");
+            }
+            Map<String, String> options = new HashMap<>();
+            for (String option : header.substring(HEADER.length()).split(" ")) {
+                String[] pair = option.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Malformed spec option " + option);
+                }
+                options.put(pair[0], pair[1]);
+            }
+            List<Operation> setup = new ArrayList<>();
+            List<Operation> run = new ArrayList<>();
+            List<Operation> section = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(SETUP)) {
+                    section = setup;
+                } else if (line.equals(RUN)) {
+                    section = run;
+                } else if (section == null) {
+                    throw new IllegalArgumentException("Operations should be in a section!");
+                } else {
+                    section.add(parse(line));
+                }
+            }
+            return new Workload(WorkloadSpec.of(options), setup, run);
+        }
+    }
+
+    private static void writeSection(BufferedWriter writer, String name, List<Operation> operations)
+            throws IOException {
+        writer.write(name);
+        writer.newLine();
+        StringBuilder builder = new StringBuilder();
+        for (Operation operation : operations) {
+            builder.setLength(0);
+            builder.append(operation.getType()).append(SEPARATOR)
+                    .append(operation.getUser()).append(SEPARATOR)
+                    .append(operation.getTarget()).append(SEPARATOR)
+                    .append(operation.getOffsetSeconds());
+            if (operation.getText() != null) {
+                builder.append(SEPARATOR).append(operation.getText());
+            }
+            writer.write(builder.toString());
+            writer.newLine();
+        }
+    }
+
+    private static Operation parse(String line) {
+        String[] fields = line.split(SEPARATOR, 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Malformed trace line " + line);
+        }
+        try {
+            return new Operation(Operation.Type.valueOf(fields[0]), Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[2]), Long.parseLong(fields[3]), fields.length == 5 ? fields[4] : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed trace line " + line, e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.workload;
+
+import java.util.List;
+
+/**
+ * A generated or recorded workload.
+ * -> The setup operations fill an empty engine and are not measured; the content they publish is numbered in
+ * their order, which is how the run operations refer to it
+ * -> The run operations are the measured part
+ */
+public final class Workload {
+
+    private final WorkloadSpec spec;
+    private final List<Operation> setup;
+    private final List<Operation> run;
+    private final int contentCount;
+
+    public Workload(WorkloadSpec spec, List<Operation> setup, List<Operation> run) {
+        if (spec == null) {
+            throw new IllegalArgumentException("Spec cannot be null!");
+        } else if (setup == null || run == null) {
+            throw new IllegalArgumentException("Operations cannot be null!");
+        }
+        this.spec = spec;
+        this.setup = List.copyOf(setup);
+        this.run = List.copyOf(run);
+        int published = 0;
+        for (Operation operation : setup) {
+            if (operation.getType() == Operation.Type.POST || operation.getType() == Operation.Type.STORY) {
+                published++;
+            }
+        }
+        this.contentCount = published;
+    }
+
+    public WorkloadSpec getSpec() {
+        return spec;
+    }
+
+    public List<Operation> getSetup() {
+        return setup;
+    }
+
+    public List<Operation> getRun() {
+        return run;
+    }
+
+    /**
+     * Returns the number of content items published by the setup operations.
+     */
+    public int getContentCount() {
+        return contentCount;
+    }
+}
@@ -0,0 +1,145 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.ZipfSampler;
+
+/**
+ * Generates the workload described by a {@link WorkloadSpec}.
+ * -> Setup: every user is registered, then follows {@code follows} users picked with the user skew, so the most
+ * followed ones become celebrities; then {@code contents} items are published by users picked with the user
+ * skew, every tenth a story, spread over the twelve hours before the run
+ * -> Run: reads and writes are mixed with the read ratio, each picked by the weights below; likes, comments and
+ * liked checks target the setup content with the content skew, tags are picked with the tag skew
+ * -> Everything is drawn from a single random generator seeded with the spec's seed, so a spec always yields
+ * the same operations
+ */
+public final class WorkloadGenerator {
+
+    private static final Operation.Type[] WRITES = {
+        Operation.Type.POST, Operation.Type.STORY, Operation.Type.LIKE, Operation.Type.COMMENT, Operation.Type.FOLLOW
+    };
+    private static final int[] WRITE_WEIGHTS = {20, 5, 45, 25, 5};
+    private static final Operation.Type[] READS = {
+        Operation.Type.HOME_FEED, Operation.Type.MOST_RECENT, Operation.Type.TAG, Operation.Type.HAS_LIKED,
+        Operation.Type.MOST_POPULAR, Operation.Type.ACTIVITY_LOG, Operation.Type.USER_STATS,
+        Operation.Type.MOST_POPULAR_USER
+    };
+    private static final int[] READ_WEIGHTS = {30, 20, 15, 15, 5, 5, 5, 5};
+
+    private static final int PAGE_SIZE = 10;
+    private static final int STORY_EVERY = 10;
+    private static final long SETUP_SPAN_SECONDS = 12 * 60 * 60;
+
+    private final WorkloadSpec spec;
+    private final SplittableRandom random;
+    private final ZipfSampler userSampler;
+    private final ZipfSampler contentSampler;
+    private final ZipfSampler tagSampler;
+
+    public WorkloadGenerator(WorkloadSpec spec) {
+        if (spec == null) {
+            throw new IllegalArgumentException("Spec cannot be null!");
+        }
+        this.spec = spec;
+        this.random = new SplittableRandom(spec.getSeed());
+        this.userSampler = new ZipfSampler(spec.getUsers(), spec.getUserSkew());
+        this.contentSampler = new ZipfSampler(spec.getContents(), spec.getContentSkew());
+        this.tagSampler = new ZipfSampler(spec.getTags(), spec.getTagSkew());
+    }
+
+    public Workload generate() {
+        List<Operation> setup = new ArrayList<>();
+        for (int user = 0; user < spec.getUsers(); user++) {
+            setup.add(new Operation(Operation.Type.REGISTER, user, -1, 0, null));
+        }
+        for (int user = 0; user < spec.getUsers(); user++) {
+            for (int i = 0; i < spec.getFollows(); i++) {
+                int followee = userSampler.next(random);
+                if (followee != user) {
+                    setup.add(new Operation(Operation.Type.FOLLOW, user, followee, 0, null));
+                }
+            }
+        }
+        for (int i = 0; i < spec.getContents(); i++) {
+            Operation.Type type = i % STORY_EVERY == 0 ? Operation.Type.STORY : Operation.Type.POST;
+            long offset = -SETUP_SPAN_SECONDS + SETUP_SPAN_SECONDS * i / spec.getContents();
+            setup.add(new Operation(type, userSampler.next(random), -1, offset, description(i)));
+        }
+
+        List<Operation> run = new ArrayList<>(spec.getOperations());
+        for (int i = 0; i < spec.getOperations(); i++) {
+            run.add(random.nextDouble() < spec.getReadRatio() ? nextRead() : nextWrite(i));
+        }
+        return new Workload(spec, setup, run);
+    }
+
+    private Operation nextWrite(int index) {
+        int user = userSampler.next(random);
+        switch (pick(WRITES, WRITE_WEIGHTS)) {
+            case POST:
+                return new Operation(Operation.Type.POST, user, -1, 0, description(spec.getContents() + index));
+            case STORY:
+                return new Operation(Operation.Type.STORY, user, -1, 0, description(spec.getContents() + index));
+            case LIKE:
+                return new Operation(Operation.Type.LIKE, user, contentSampler.next(random), 0, null);
+            case COMMENT:
+                return new Operation(Operation.Type.COMMENT, user, contentSampler.next(random), 0,
+                        "Comment" + mentions());
+            default:
+                int followee = userSampler.next(random);
+                return new Operation(Operation.Type.FOLLOW, user, followee != user ? followee : (user + 1)
+                        % spec.getUsers(), 0, null);
+        }
+    }
+
+    private Operation nextRead() {
+        int user = userSampler.next(random);
+        Operation.Type type = pick(READS, READ_WEIGHTS);
+        switch (type) {
+            case HAS_LIKED:
+                return new Operation(type, user, contentSampler.next(random), 0, null);
+            case TAG:
+                return new Operation(type, user, tagSampler.next(random), 0, null);
+            case HOME_FEED:
+            case MOST_RECENT:
+            case MOST_POPULAR:
+                return new Operation(type, user, PAGE_SIZE, 0, null);
+            default:
+                return new Operation(type, user, -1, 0, null);
+        }
+    }
+
+    private String description(int index) {
+        return "Content " + index + " " + Operation.tagOf(tagSampler.next(random)) + mentions();
+    }
+
+    /**
+     * Returns " @user" for a Poisson distributed number of users, whose mean is the mention density of the spec.
+     */
+    private String mentions() {
+        StringBuilder builder = new StringBuilder();
+        double limit = Math.exp(-spec.getMentions());
+        double product = random.nextDouble();
+        while (product > limit) {
+            builder.append(" @").append(Operation.usernameOf(random.nextInt(spec.getUsers())));
+            product *= random.nextDouble();
+        }
+        return builder.toString();
+    }
+
+    private Operation.Type pick(Operation.Type[] types, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int remaining = random.nextInt(total);
+        int i = 0;
+        while (remaining >= weights[i]) {
+            remaining -= weights[i++];
+        }
+        return types[i];
+    }
+}
@@ -0,0 +1,188 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.workload;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.InstrumentedSocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.Engines;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsRegistry;
+
+/**
+ * Replays a workload against engines with different numbers of threads and reports the throughput and the
+ * latency percentiles of every method, to compare the engines and to spot where one stops scaling.
+ * -> Options are key=value pairs: the {@link WorkloadSpec} options, {@code engine} (comma separated names of
+ * {@link Engines}, all by default), {@code threads} (comma separated counts, "1,2,4,8" by default),
+ * {@code record} (a file to write the generated workload to) and {@code replay} (a trace to run instead of
+ * generating one)
+ * -> For every engine and thread count a fresh engine is filled by the setup operations on a single thread, then
+ * the run operations are split between the threads, thread t taking every operation whose index is t modulo the
+ * thread count
+ * -> Latencies are recorded by an {@link InstrumentedSocialMediaInator} around the engine; calls which throw are
+ * counted as errors and the run goes on
+ * -> Engines which expect a single caller are only run on one thread
+ */
+public final class WorkloadRunner {
+
+    private static final String DEFAULT_THREADS = "1,2,4,8";
+
+    private WorkloadRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Options should be key=value pairs, not " + arg);
+            }
+            options.put(pair[0], pair[1]);
+        }
+        Workload workload = options.containsKey("replay") ? Trace.read(Path.of(options.get("replay")))
+                : new WorkloadGenerator(WorkloadSpec.of(options)).generate();
+        if (options.containsKey("record")) {
+            Trace.write(workload, Path.of(options.get("record")));
+        }
+        List<String> engines = options.containsKey("engine") ? Arrays.asList(options.get("engine").split(","))
+                : Engines.NAMES;
+        List<Integer> threadCounts = new ArrayList<>();
+        for (String count : options.getOrDefault("threads", DEFAULT_THREADS).split(",")) {
+            threadCounts.add(Integer.parseInt(count));
+        }
+
+        System.out.println("Workload " + workload.getSpec() + ", " + workload.getSetup().size() + " setup and "
+                + workload.getRun().size() + " run operations");
+        for (String engine : engines) {
+            for (int threads : threadCounts) {
+                if (threads > 1 && !Engines.isThreadSafe(engine)) {
+                    continue;
+                }
+                run(workload, engine, threads);
+            }
+        }
+    }
+
+    private static void run(Workload workload, String engine, int threads) throws IOException, InterruptedException {
+        List<Closeable> resources = new ArrayList<>();
+        SocialMediaInator socialMedia = Engines.create(engine, resources::add);
+        try {
+            LocalDateTime start = LocalDateTime.now();
+            String[] contentIds = new String[workload.getContentCount()];
+            int published = 0;
+            for (Operation operation : workload.getSetup()) {
+                String id = apply(socialMedia, operation, contentIds, start);
+                if (id != null) {
+                    contentIds[published++] = id;
+                }
+            }
+
+            MetricsRegistry registry = new MetricsRegistry();
+            SocialMediaInator instrumented = new InstrumentedSocialMediaInator(socialMedia, registry);
+            List<Operation> run = workload.getRun();
+            AtomicLong errors = new AtomicLong();
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch go = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                Thread worker = new Thread(() -> {
+                    ready.countDown();
+                    try {
+                        go.await();
+                        for (int i = first; i < run.size(); i += threads) {
+                            try {
+                                apply(instrumented, run.get(i), contentIds, start);
+                            } catch (RuntimeException e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "workload-" + t);
+                worker.start();
+            }
+            ready.await();
+            long began = System.nanoTime();
+            go.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - began;
+
+            System.out.println();
+            System.out.println(String.format(Locale.ROOT, "%s, %d threads: %d operations in %.3f s, %.0f ops/s, "
+                    + "%d errors", engine, threads, run.size(), elapsed / 1e9, run.size() * 1e9 / elapsed,
+                    errors.get()));
+            System.out.print(registry.snapshot().toText());
+        } finally {
+            for (Closeable resource : resources) {
+                resource.close();
+            }
+        }
+    }
+
+    /**
+     * @return The id of the published content, null for the other operations
+     */
+    private static String apply(SocialMediaInator socialMedia, Operation operation, String[] contentIds,
+                                LocalDateTime start) {
+        String username = Operation.usernameOf(operation.getUser());
+        switch (operation.getType()) {
+            case REGISTER:
+                socialMedia.register(username);
+                return null;
+            case POST:
+                return socialMedia.publishPost(username, start.plusSeconds(operation.getOffsetSeconds()),
+                        operation.getText());
+            case STORY:
+                return socialMedia.publishStory(username, start.plusSeconds(operation.getOffsetSeconds()),
+                        operation.getText());
+            case LIKE:
+                socialMedia.like(username, contentIds[operation.getTarget()]);
+                return null;
+            case COMMENT:
+                socialMedia.comment(username, operation.getText(), contentIds[operation.getTarget()]);
+                return null;
+            case FOLLOW:
+                socialMedia.follow(username, Operation.usernameOf(operation.getTarget()));
+                return null;
+            case HAS_LIKED:
+                socialMedia.hasLiked(username, contentIds[operation.getTarget()]);
+                return null;
+            case MOST_POPULAR:
+                socialMedia.getNMostPopularContent(operation.getTarget());
+                return null;
+            case MOST_RECENT:
+                socialMedia.getNMostRecentContent(username, operation.getTarget());
+                return null;
+            case MOST_POPULAR_USER:
+                socialMedia.getMostPopularUser();
+                return null;
+            case TAG:
+                socialMedia.findContentByTag(Operation.tagOf(operation.getTarget()));
+                return null;
+            case ACTIVITY_LOG:
+                socialMedia.getActivityLog(username);
+                return null;
+            case HOME_FEED:
+                socialMedia.getHomeFeed(username, operation.getTarget());
+                return null;
+            case USER_STATS:
+                socialMedia.getUserStats(username);
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation.getType());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.benchmarks.workload;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The shape of a synthetic workload, read from key=value options.
+ * -> {@code users} users are registered, each following {@code follows} others, and {@code contents} content
+ * items are published before the measured part of the workload starts
+ * -> {@code operations} calls are measured, a {@code readRatio} part of them queries and the rest writes
+ * -> Active users, liked and commented content and used tags are picked with the Zipf exponents
+ * {@code userSkew}, {@code contentSkew} and {@code tagSkew}; 0 picks uniformly
+ * -> Every description mentions {@code mentions} users on average
+ * -> The same options and {@code seed} always generate the same workload
+ */
+public final class WorkloadSpec {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "users", "10000",
+            "follows", "20",
+            "contents", "100000",
+            "tags", "1000",
+            "operations", "1000000",
+            "readRatio", "0.8",
+            "userSkew", "1.0",
+            "contentSkew", "1.1",
+            "tagSkew", "1.1",
+            "mentions", "1.0");
+    private static final String SEED_DEFAULT = "42";
+
+    private final int users;
+    private final int follows;
+    private final int contents;
+    private final int tags;
+    private final int operations;
+    private final double readRatio;
+    private final double userSkew;
+    private final double contentSkew;
+    private final double tagSkew;
+    private final double mentions;
+    private final long seed;
+
+    private WorkloadSpec(Map<String, String> options) {
+        users = Integer.parseInt(options.get("users"));
+        follows = Integer.parseInt(options.get("follows"));
+        contents = Integer.parseInt(options.get("contents"));
+        tags = Integer.parseInt(options.get("tags"));
+        operations = Integer.parseInt(options.get("operations"));
+        readRatio = Double.parseDouble(options.get("readRatio"));
+        userSkew = Double.parseDouble(options.get("userSkew"));
+        contentSkew = Double.parseDouble(options.get("contentSkew"));
+        tagSkew = Double.parseDouble(options.get("tagSkew"));
+        mentions = Double.parseDouble(options.get("mentions"));
+        seed = Long.parseLong(options.get("seed"));
+    }
+
+    /**
+     * Creates a spec from {@code options}, taking the defaults for the missing ones. Options which are not
+     * part of a spec are ignored.
+     *
+     * @throws IllegalArgumentException If an option is not a number or is out of its range
+     */
+    public static WorkloadSpec of(Map<String, String> options) {
+        Map<String, String> merged = new HashMap<>(DEFAULTS);
+        merged.put("seed", SEED_DEFAULT);
+        for (String key : merged.keySet()) {
+            if (options.containsKey(key)) {
+                merged.put(key, options.get(key));
+            }
+        }
+        WorkloadSpec spec;
+        try {
+            spec = new WorkloadSpec(merged);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Workload options should be numbers: " + e.getMessage(), e);
+        }
+        if (spec.users < 2) {
+            throw new IllegalArgumentException("There should be at least two users!");
+        } else if (spec.follows < 0 || spec.follows >= spec.users) {
+            throw new IllegalArgumentException("Follows should be between 0 and the number of users!");
+        } else if (spec.contents <= 0 || spec.tags <= 0 || spec.operations < 0) {
+            throw new IllegalArgumentException("Contents and tags should be positive, operations not negative!");
+        } else if (spec.readRatio < 0 || spec.readRatio > 1) {
+            throw new IllegalArgumentException("Read ratio should be between 0 and 1!");
+        } else if (spec.userSkew < 0 || spec.contentSkew < 0 || spec.tagSkew < 0 || spec.mentions < 0) {
+            throw new IllegalArgumentException("Skews and mentions cannot be negative!");
+        }
+        return spec;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getFollows() {
+        return follows;
+    }
+
+    public int getContents() {
+        return contents;
+    }
+
+    public int getTags() {
+        return tags;
+    }
+
+    public int getOperations() {
+        return operations;
+    }
+
+    public double getReadRatio() {
+        return readRatio;
+    }
+
+    public double getUserSkew() {
+        return userSkew;
+    }
+
+    public double getContentSkew() {
+        return contentSkew;
+    }
+
+    public double getTagSkew() {
+        return tagSkew;
+    }
+
+    public double getMentions() {
+        return mentions;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the options which recreate this spec.
+     */
+    public Map<String, String> toOptions() {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("users", Integer.toString(users));
+        options.put("follows", Integer.toString(follows));
+        options.put("contents", Integer.toString(contents));
+        options.put("tags", Integer.toString(tags));
+        options.put("operations", Integer.toString(operations));
+        options.put("readRatio", Double.toString(readRatio));
+        options.put("userSkew", Double.toString(userSkew));
+        options.put("contentSkew", Double.toString(contentSkew));
+        options.put("tagSkew", Double.toString(tagSkew));
+        options.put("mentions", Double.toString(mentions));
+        options.put("seed", Long.toString(seed));
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        toOptions().forEach((key, value) -> builder.append(builder.length() == 0 ? "" : " ")
+                .append(String.format(Locale.ROOT, "%s=%s", key, value)));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.util.List;
+import java.util.Collection;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+
+/**
+ * The asynchronous variant of {@link SocialMediaInator}.
+ * -> Every method has the semantics of its {@link SocialMediaInator} counterpart, but returns a future of the
+ * result instead of waiting for it
+ * -> Exceptions which the synchronous method would throw complete the future exceptionally instead
+ */
+public interface AsyncSocialMediaInator {
+
+    CompletableFuture<Void> register(String username);
+
+    CompletableFuture<String> publishPost(String username, LocalDateTime publishedOn, String description);
+
+    CompletableFuture<String> publishStory(String username, LocalDateTime publishedOn, String description);
+
+    CompletableFuture<Void> like(String username, String id);
+
+    CompletableFuture<Void> comment(String username, String text, String id);
+
+    CompletableFuture<Boolean> hasLiked(String username, String id);
+
+    CompletableFuture<Collection<Content>> getNMostPopularContent(int n);
+
+    CompletableFuture<Collection<Content>> getNMostRecentContent(String username, int n);
+
+    CompletableFuture<String> getMostPopularUser();
+
+    CompletableFuture<Collection<Content>> findContentByTag(String tag);
+
+    CompletableFuture<List<String>> getActivityLog(String username);
+
+    CompletableFuture<Void> follow(String username, String followee);
+
+    CompletableFuture<Void> unfollow(String username, String followee);
+
+    CompletableFuture<Collection<Content>> getHomeFeed(String username, int n);
+
+    CompletableFuture<UserStats> getUserStats(String username);
+
+    CompletableFuture<List<UserStats>> getTopUsersByEngagement(int k);
+}
@@ -0,0 +1,38 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.time.Duration;
+
+/**
+ * Decides what a caller of an {@link EventLoopSocialInator} does when its ring buffer is full.
+ * -> {@link #block()} waits until the writer frees a slot
+ * -> {@link #reject()} fails the returned future with a {@link java.util.concurrent.RejectedExecutionException}
+ * right away
+ * -> {@link #waitUpTo(Duration)} waits at most the given time and rejects afterwards
+ */
+public final class Backpressure {
+
+    private final long maxWaitNanos;
+
+    private Backpressure(long maxWaitNanos) {
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public static Backpressure block() {
+        return new Backpressure(Long.MAX_VALUE);
+    }
+
+    public static Backpressure reject() {
+        return new Backpressure(0);
+    }
+
+    public static Backpressure waitUpTo(Duration maxWait) {
+        if (maxWait == null || maxWait.isNegative()) {
+            throw new IllegalArgumentException("Max wait cannot be negative!");
+        }
+        return new Backpressure(maxWait.toNanos());
+    }
+
+    long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+}
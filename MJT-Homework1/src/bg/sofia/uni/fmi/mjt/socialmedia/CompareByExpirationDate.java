@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+
+import java.util.Comparator;
+
+public class CompareByExpirationDate implements Comparator<AbstractContent> {
+
+    /**
+     * Orders content from the one which expires first to the one which expires last.
+     * Content expiring at the same moment is ordered by publication sequence.
+     */
+    @Override
+    public int compare(AbstractContent o1, AbstractContent o2) {
+        int seconds = Long.compare(o1.getExpirationEpochSecond(), o2.getExpirationEpochSecond());
+        if (seconds != 0) {
+            return seconds;
+        }
+        int nanos = Integer.compare(o1.getPublishedNano(), o2.getPublishedNano());
+        if (nanos != 0) {
+            return nanos;
+        }
+        return Long.compare(o1.getSequence(), o2.getSequence());
+    }
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+
+import java.util.Comparator;
+
+public class CompareBySequence implements Comparator<AbstractContent> {
+
+    /**
+     * Orders content by publication sequence, i.e. in the order in which it was published on the platform.
+     */
+    @Override
+    public int compare(AbstractContent o1, AbstractContent o2) {
+        return Long.compare(o1.getSequence(), o2.getSequence());
+    }
+}
@@ -1,13 +1,23 @@
 package bg.sofia.uni.fmi.mjt.socialmedia;
 
-import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
 
 import java.util.Comparator;
 
-public class CompareByTotalLikesAndComments implements Comparator<Content> {
+public class CompareByTotalLikesAndComments implements Comparator<AbstractContent> {
 
+    /**
+     * Orders content by total number of likes and comments in descending order.
+     * Content with equal popularity is ordered by publication sequence, so that no two
+     * different pieces of content compare as equal.
+     */
     @Override
-    public int compare(Content o1, Content o2) {
-        return (o1.getNumberOfComments() + o1.getNumberOfLikes()) - (o2.getNumberOfComments()) + o2.getNumberOfLikes();
+    public int compare(AbstractContent o1, AbstractContent o2) {
+        int popularity = Integer.compare(o2.getNumberOfComments() + o2.getNumberOfLikes(),
+                o1.getNumberOfComments() + o1.getNumberOfLikes());
+        if (popularity != 0) {
+            return popularity;
+        }
+        return Long.compare(o1.getSequence(), o2.getSequence());
     }
 }
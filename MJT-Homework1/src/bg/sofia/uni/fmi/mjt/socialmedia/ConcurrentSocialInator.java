@@ -0,0 +1,450 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.util.Set;
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Post;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Story;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+import bg.sofia.uni.fmi.mjt.socialmedia.feed.HomeTimelines;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityLog;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.ChunkedArray;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.UserDictionary;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.EngagementRollup;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.GaugeSource;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.ContentNotFoundException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameAlreadyExistsException;
+
+/**
+ * A {@link SocialMediaInator} which can be shared between threads without external locking.
+ * -> All state lives in concurrent maps, sets and queues, so readers never block writers
+ * -> The activity log and the content of every user are kept in chunked arrays indexed by user id; each call
+ * resolves the username to its id once and the rows are created on first use, so a registration racing with
+ * the first calls of the user is harmless
+ * -> A comment is pushed onto its content with a compare-and-set and a like locks only the stripe of the
+ * content's likes which holds the user, so hot content does not become a bottleneck
+ * -> Content ids are generated from an atomic counter of the engine
+ * -> Queries see a weakly consistent view of content which is being published, liked or commented concurrently
+ * -> Expired content is retired by whichever call first notices that the head of the expiry order has expired
+ * -> The home timelines lock only the timeline they touch, so the fan-out of a publication, a follow and a
+ * feed read only contend when they hit the timeline of the same user
+ * -> The engagement of every user is counted in striped adders; a like or comment racing with the expiry of
+ * its content may be left in the counts of the creator
+ */
+public class ConcurrentSocialInator implements SocialMediaInator, GaugeSource {
+
+    private final UserDictionary users;
+    private final Map<String, AbstractContent> contents;
+    private final ChunkedArray<ActivityLog> activityByUser;
+    private final Map<String, Set<AbstractContent>> contentByTag;
+    private final ChunkedArray<ConcurrentSkipListSet<AbstractContent>> contentByCreator;
+    private final ConcurrentSkipListSet<AbstractContent> contentByExpiration;
+    private final HomeTimelines homeTimelines;
+    private final EngagementRollup engagement;
+    private final AtomicLong nextSequence;
+    private final LongAdder activityLogBytes;
+    private final Clock clock;
+
+    public ConcurrentSocialInator() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public ConcurrentSocialInator(Clock clock) {
+        this.clock = clock;
+        users = new UserDictionary();
+        contents = new ConcurrentHashMap<>();
+        activityByUser = new ChunkedArray<>();
+        contentByTag = new ConcurrentHashMap<>();
+        contentByCreator = new ChunkedArray<>();
+        contentByExpiration = new ConcurrentSkipListSet<>(new CompareByExpirationDate());
+        homeTimelines = new HomeTimelines();
+        engagement = new EngagementRollup(users);
+        nextSequence = new AtomicLong();
+        activityLogBytes = new LongAdder();
+    }
+
+    @Override
+    public void register(String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        int userId = users.register(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameAlreadyExistsException("There is already a user with this username");
+        }
+        activityOf(userId);
+        createdBy(userId);
+        engagement.register(userId);
+    }
+
+    @Override
+    public String publishPost(String username, LocalDateTime publishedOn, String description) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (publishedOn == null) {
+            throw new IllegalArgumentException("Published on date cannot be null!");
+        } else if (description == null) {
+            throw new IllegalArgumentException("Description cannot be null");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no such user in the system!");
+        }
+        Post newPost = new Post(users.usernameOf(userId), description, publishedOn, nextSequence.getAndIncrement());
+        index(newPost, userId);
+        activityOf(userId).addPost(publishedOn, newPost.getId());
+        return newPost.getId();
+    }
+
+    @Override
+    public String publishStory(String username, LocalDateTime publishedOn, String description) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (publishedOn == null) {
+            throw new IllegalArgumentException("Published on date cannot be null!");
+        } else if (description == null) {
+            throw new IllegalArgumentException("Description cannot be null");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no such user in the system!");
+        }
+        Story newStory = new Story(users.usernameOf(userId), description, publishedOn, nextSequence.getAndIncrement());
+        index(newStory, userId);
+        activityOf(userId).addStory(publishedOn, newStory.getId());
+        return newStory.getId();
+    }
+
+    @Override
+    public void like(String username, String id) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        AbstractContent content = contents.get(id);
+        if (content == null) {
+            throw new ContentNotFoundException("There is no content with this id in the platform!");
+        }
+        if (content.like(userId)) {
+            engagement.addLike(users.idOf(content.getCreatorsUsername()));
+            activityOf(userId).addLike(LocalDateTime.now(clock), id);
+        }
+    }
+
+    @Override
+    public boolean hasLiked(String username, String id) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        AbstractContent content = contents.get(id);
+        if (content == null) {
+            throw new ContentNotFoundException("There is no content with this id in the platform!");
+        }
+        return content.hasLiked(userId);
+    }
+
+    @Override
+    public void comment(String username, String text, String id) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (text == null) {
+            throw new IllegalArgumentException("Text cannot be null!");
+        } else if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        AbstractContent content = contents.get(id);
+        if (content == null) {
+            throw new ContentNotFoundException("There is no content with this id in the platform!");
+        }
+        content.comment(users.usernameOf(userId), text);
+        engagement.addComment(users.idOf(content.getCreatorsUsername()));
+        activityOf(userId).addComment(LocalDateTime.now(clock), id, text);
+    }
+
+    /**
+     * Returns the {@code n} most popular content on the platform.
+     * -> Popularity changes with every like and comment, so instead of keeping a ranking which every writer
+     * would have to update, the content is scanned into a bounded heap of size {@code n}
+     */
+    @Override
+    public Collection<Content> getNMostPopularContent(int n) {
+        expireContent();
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative number");
+        }
+        if (n == 0 || contents.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<RankedContent> heap = new PriorityQueue<>(Math.min(n, contents.size()) + 1);
+        for (AbstractContent content : contents.values()) {
+            heap.add(new RankedContent(content));
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        Content[] mostPopular = new Content[heap.size()];
+        for (int i = mostPopular.length - 1; i >= 0; i--) {
+            mostPopular[i] = heap.poll().content;
+        }
+        return List.of(mostPopular);
+    }
+
+    @Override
+    public Collection<Content> getNMostRecentContent(String username, int n) {
+        expireContent();
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative!");
+        } else if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        ConcurrentSkipListSet<AbstractContent> created = createdBy(userId);
+        List<Content> mostRecent = new ArrayList<>();
+        Iterator<AbstractContent> iterator = created.descendingIterator();
+        while (iterator.hasNext() && mostRecent.size() < n) {
+            mostRecent.add(iterator.next());
+        }
+        return Collections.unmodifiableList(mostRecent);
+    }
+
+    @Override
+    public String getMostPopularUser() {
+        expireContent();
+        if (users.isEmpty()) {
+            throw new NoUsersException("There are no users in the platform.");
+        }
+        int mostMentioned = engagement.getMostMentioned();
+        return mostMentioned == UserDictionary.NOT_FOUND ? "" : users.usernameOf(mostMentioned);
+    }
+
+    @Override
+    public Collection<Content> findContentByTag(String tag) {
+        expireContent();
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag cannot be null");
+        } else if (!tag.startsWith("#")) {
+            throw new IllegalArgumentException("Tag should start with #");
+        }
+        Set<AbstractContent> tagged = contentByTag.get(tag);
+        if (tagged == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(tagged));
+    }
+
+    @Override
+    public List<String> getActivityLog(String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform");
+        }
+        return activityOf(userId).newestFirst();
+    }
+
+    @Override
+    public void follow(String username, String followee) {
+        int[] ids = followIds(username, followee);
+        homeTimelines.follow(ids[0], ids[1], createdBy(ids[1]).descendingIterator());
+    }
+
+    @Override
+    public void unfollow(String username, String followee) {
+        int[] ids = followIds(username, followee);
+        homeTimelines.unfollow(ids[0], ids[1]);
+    }
+
+    @Override
+    public Collection<Content> getHomeFeed(String username, int n) {
+        expireContent();
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative!");
+        } else if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        List<AbstractContent> feed = homeTimelines.read(userId, n,
+                followee -> createdBy(followee).descendingIterator(),
+                content -> contents.get(content.getId()) == content);
+        return Collections.unmodifiableList(new ArrayList<>(feed));
+    }
+
+    @Override
+    public UserStats getUserStats(String username) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        return engagement.statsOf(userId, users.usernameOf(userId));
+    }
+
+    @Override
+    public List<UserStats> getTopUsersByEngagement(int k) {
+        expireContent();
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be negative!");
+        }
+        return engagement.topByEngagement(k, users::usernameOf);
+    }
+
+    /**
+     * Registers the sizes of the content, the indexes and the activity logs.
+     * Counting the expiry index walks it, so it costs time linear in the amount of live content; the activity logs
+     * add what they allocate to one shared adder, so their size is read without walking them.
+     */
+    @Override
+    public void registerGauges(MetricsRegistry registry) {
+        registry.registerGauge("users", users::size);
+        registry.registerGauge("contents", contents::size);
+        registry.registerGauge("tags", contentByTag::size);
+        registry.registerGauge("expiryIndex", contentByExpiration::size);
+        registry.registerGauge("homeTimelineEntries", homeTimelines::getTimelineEntries);
+        registry.registerGauge("activityLogBytes", activityLogBytes::sum);
+    }
+
+    private void index(AbstractContent content, int creatorId) {
+        contents.put(content.getId(), content);
+        for (String tag : content.getTags()) {
+            contentByTag.compute(tag, (k, tagged) -> {
+                Set<AbstractContent> result = tagged == null ? ConcurrentHashMap.newKeySet() : tagged;
+                result.add(content);
+                return result;
+            });
+        }
+        createdBy(creatorId).add(content);
+        homeTimelines.publish(creatorId, content);
+        engagement.addContent(creatorId, 0, 0);
+        for (String mention : content.getMentions()) {
+            engagement.addMention(mention.substring(1));
+        }
+        contentByExpiration.add(content);
+    }
+
+    private ActivityLog activityOf(int userId) {
+        return activityByUser.computeIfAbsent(userId, id -> new ActivityLog(activityLogBytes));
+    }
+
+    private ConcurrentSkipListSet<AbstractContent> createdBy(int userId) {
+        return contentByCreator.computeIfAbsent(userId,
+                id -> new ConcurrentSkipListSet<>(new CompareByPublicationDate()));
+    }
+
+    private int[] followIds(String username, String followee) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (followee == null) {
+            throw new IllegalArgumentException("Followee cannot be null!");
+        } else if (username.equals(followee)) {
+            throw new IllegalArgumentException("Users cannot follow themselves!");
+        }
+        int userId = users.idOf(username);
+        int followeeId = users.idOf(followee);
+        if (userId == UserDictionary.NOT_FOUND || followeeId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        return new int[] {userId, followeeId};
+    }
+
+    private void expireContent() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (AbstractContent content : contentByExpiration) {
+            if (content.isActive(now)) {
+                return;
+            }
+            if (contentByExpiration.remove(content)) {
+                retire(content);
+            }
+        }
+    }
+
+    private void retire(AbstractContent content) {
+        contents.remove(content.getId(), content);
+        for (String tag : content.getTags()) {
+            contentByTag.computeIfPresent(tag, (k, tagged) -> {
+                tagged.remove(content);
+                return tagged.isEmpty() ? null : tagged;
+            });
+        }
+        int creatorId = users.idOf(content.getCreatorsUsername());
+        createdBy(creatorId).remove(content);
+        engagement.removeContent(creatorId, content.getNumberOfLikes(), content.getNumberOfComments());
+        for (String mention : content.getMentions()) {
+            engagement.removeMention(mention.substring(1));
+        }
+    }
+
+    /**
+     * Content together with the popularity it had when it was ranked, so that concurrent likes
+     * cannot reorder it while it sits in the heap.
+     * The natural order puts the least popular content first.
+     */
+    private static final class RankedContent implements Comparable<RankedContent> {
+
+        private final AbstractContent content;
+        private final int popularity;
+
+        private RankedContent(AbstractContent content) {
+            this.content = content;
+            this.popularity = content.getNumberOfLikes() + content.getNumberOfComments();
+        }
+
+        @Override
+        public int compareTo(RankedContent other) {
+            int byPopularity = Integer.compare(popularity, other.popularity);
+            if (byPopularity != 0) {
+                return byPopularity;
+            }
+            return Long.compare(other.content.getSequence(), content.getSequence());
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.util.List;
+import java.util.Collection;
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
+
+/**
+ * An {@link AsyncSocialMediaInator} in which a single writer thread owns an {@link EvilSocialInator} and
+ * every call reaches it through a bounded ring buffer, in the style of the LMAX Disruptor.
+ * -> The ring is an array of pre-allocated slots; callers claim a sequence with a CAS, fill the slot and
+ * publish it by writing its sequence, so no call takes a lock
+ * -> The writer drains every published slot in one batch, then publishes a new {@link ReadView} and only then
+ * completes the futures of the batch, so a caller sees its own writes in the view
+ * -> The most popular content (up to {@code viewSize} items) and the most popular user are answered from the
+ * latest view without touching the ring; all other reads go through the ring in order with the writes
+ * -> The view is also refreshed once {@code VIEW_REFRESH_NANOS} have passed since the last one, after a batch
+ * of reads or while idle, so content which expires without any writes leaves it as well
+ * -> What happens when the ring is full is decided by the {@link Backpressure}
+ * -> A call which throws anything, errors included, fails only its own future; if the writer still dies, every
+ * accepted call fails with the cause and every later call is rejected, so no caller waits forever
+ * -> Futures are completed on the writer thread, so heavy continuations should use the *Async methods of
+ * {@link CompletableFuture}
+ */
+public class EventLoopSocialInator implements AsyncSocialMediaInator, Closeable {
+
+    private static final int DEFAULT_VIEW_SIZE = 100;
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long VIEW_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private enum Operation {
+        REGISTER, PUBLISH_POST, PUBLISH_STORY, LIKE, COMMENT, HAS_LIKED,
+        MOST_POPULAR_CONTENT, MOST_RECENT_CONTENT, CONTENT_BY_TAG, ACTIVITY_LOG, FOLLOW, UNFOLLOW, HOME_FEED,
+        USER_STATS, TOP_USERS
+    }
+
+    private final EvilSocialInator engine;
+    private final Slot[] ring;
+    private final int mask;
+    private final Backpressure backpressure;
+    private final int viewSize;
+    private final AtomicLong claimed;
+    private final Thread writer;
+    private volatile long consumed;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    private volatile Throwable writerFailure;
+    private volatile ReadView view;
+
+    public EventLoopSocialInator(int capacity, Backpressure backpressure) {
+        this(new EvilSocialInator(), capacity, backpressure, DEFAULT_VIEW_SIZE);
+    }
+
+    /**
+     * @param engine       The engine to serve; it must not be used directly afterwards
+     * @param capacity     The number of slots of the ring, a power of two
+     * @param backpressure What callers do when the ring is full
+     * @param viewSize     How many of the most popular content items the published views hold
+     */
+    public EventLoopSocialInator(EvilSocialInator engine, int capacity, Backpressure backpressure, int viewSize) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine cannot be null!");
+        } else if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity should be a power of two!");
+        } else if (backpressure == null) {
+            throw new IllegalArgumentException("Backpressure cannot be null!");
+        } else if (viewSize < 0) {
+            throw new IllegalArgumentException("View size cannot be negative!");
+        }
+        this.engine = engine;
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.backpressure = backpressure;
+        this.viewSize = viewSize;
+        this.claimed = new AtomicLong();
+        this.consumed = 0;
+        this.view = new ReadView(List.of(), null);
+        this.writer = new Thread(this::runWriter, "social-media-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> register(String username) {
+        return submit(Operation.REGISTER, username, null, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<String> publishPost(String username, LocalDateTime publishedOn, String description) {
+        return submit(Operation.PUBLISH_POST, username, description, null, publishedOn, 0);
+    }
+
+    @Override
+    public CompletableFuture<String> publishStory(String username, LocalDateTime publishedOn, String description) {
+        return submit(Operation.PUBLISH_STORY, username, description, null, publishedOn, 0);
+    }
+
+    @Override
+    public CompletableFuture<Void> like(String username, String id) {
+        return submit(Operation.LIKE, username, id, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<Void> comment(String username, String text, String id) {
+        return submit(Operation.COMMENT, username, text, id, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasLiked(String username, String id) {
+        return submit(Operation.HAS_LIKED, username, id, null, null, 0);
+    }
+
+    /**
+     * Answers from the latest view if it holds {@code n} items, otherwise through the ring.
+     */
+    @Override
+    public CompletableFuture<Collection<Content>> getNMostPopularContent(int n) {
+        if (n < 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("N cannot be negative number"));
+        }
+        if (n <= viewSize) {
+            List<Content> top = view.mostPopularContent;
+            return CompletableFuture.completedFuture(top.subList(0, Math.min(n, top.size())));
+        }
+        return submit(Operation.MOST_POPULAR_CONTENT, null, null, null, null, n);
+    }
+
+    @Override
+    public CompletableFuture<Collection<Content>> getNMostRecentContent(String username, int n) {
+        return submit(Operation.MOST_RECENT_CONTENT, username, null, null, null, n);
+    }
+
+    /**
+     * Always answers from the latest view.
+     */
+    @Override
+    public CompletableFuture<String> getMostPopularUser() {
+        String mostPopular = view.mostPopularUser;
+        if (mostPopular == null) {
+            return CompletableFuture.failedFuture(new NoUsersException("There are no users in the platform."));
+        }
+        return CompletableFuture.completedFuture(mostPopular);
+    }
+
+    @Override
+    public CompletableFuture<Collection<Content>> findContentByTag(String tag) {
+        return submit(Operation.CONTENT_BY_TAG, tag, null, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getActivityLog(String username) {
+        return submit(Operation.ACTIVITY_LOG, username, null, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<Void> follow(String username, String followee) {
+        return submit(Operation.FOLLOW, username, followee, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<Void> unfollow(String username, String followee) {
+        return submit(Operation.UNFOLLOW, username, followee, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<Collection<Content>> getHomeFeed(String username, int n) {
+        return submit(Operation.HOME_FEED, username, null, null, null, n);
+    }
+
+    @Override
+    public CompletableFuture<UserStats> getUserStats(String username) {
+        return submit(Operation.USER_STATS, username, null, null, null, 0);
+    }
+
+    @Override
+    public CompletableFuture<List<UserStats>> getTopUsersByEngagement(int k) {
+        return submit(Operation.TOP_USERS, null, null, null, null, k);
+    }
+
+    /**
+     * Returns a {@link SocialMediaInator} which waits for every call and throws its exception directly.
+     */
+    public SocialMediaInator blocking() {
+        return new BlockingView();
+    }
+
+    /**
+     * Stops accepting calls, lets the writer finish every call already accepted and waits for it to stop.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(Operation operation, String first, String second, String third,
+                                            LocalDateTime date, int n) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        long sequence = isStopped() ? -1 : claim();
+        if (sequence < 0) {
+            future.completeExceptionally(rejection());
+            return (CompletableFuture<T>) future;
+        }
+        Slot slot = ring[(int) sequence & mask];
+        if (isStopped()) {
+            future.completeExceptionally(rejection());
+            slot.fill(null, null, null, null, null, 0, future);
+        } else {
+            slot.fill(operation, first, second, third, date, n, future);
+        }
+        slot.sequence = sequence;
+        if (writerFailure != null) {
+            future.completeExceptionally(rejection());
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return (CompletableFuture<T>) future;
+    }
+
+    private boolean isStopped() {
+        return closed || writerFailure != null;
+    }
+
+    private RejectedExecutionException rejection() {
+        Throwable failure = writerFailure;
+        if (failure != null) {
+            RejectedExecutionException rejection = new RejectedExecutionException("The writer has stopped");
+            rejection.initCause(failure);
+            return rejection;
+        }
+        return new RejectedExecutionException(closed ? "The engine is closed" : "The ring buffer is full");
+    }
+
+    /**
+     * Claims the next sequence, waiting for a free slot as the backpressure allows.
+     *
+     * @return the claimed sequence or -1 if no slot became free in time
+     */
+    private long claim() {
+        long maxWait = backpressure.getMaxWaitNanos();
+        long waitStart = 0;
+        boolean waiting = false;
+        while (true) {
+            long current = claimed.get();
+            if (current - consumed < ring.length) {
+                if (claimed.compareAndSet(current, current + 1)) {
+                    return current;
+                }
+                continue;
+            }
+            if (maxWait == 0 || isStopped()) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            if (!waiting) {
+                waiting = true;
+                waitStart = now;
+            } else if (now - waitStart >= maxWait) {
+                return -1;
+            }
+            LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Runs {@link #drain()} and, if it throws, fails every accepted call which has not been completed yet.
+     */
+    private void runWriter() {
+        try {
+            drain();
+        } catch (Throwable e) {
+            writerFailure = e;
+            failAccepted(consumed, e);
+        }
+    }
+
+    /**
+     * Executes the calls in the ring in batches until the engine is closed and every accepted call is done.
+     */
+    private void drain() {
+        long next = 0;
+        int idleSpins = 0;
+        long lastViewNanos = System.nanoTime();
+        while (true) {
+            long end = next;
+            while (end - next < ring.length && ring[(int) end & mask].sequence == end) {
+                end++;
+            }
+            if (end > next) {
+                boolean mutated = false;
+                for (long sequence = next; sequence < end; sequence++) {
+                    mutated |= execute(ring[(int) sequence & mask]);
+                }
+                if (mutated || System.nanoTime() - lastViewNanos >= VIEW_REFRESH_NANOS) {
+                    publishView();
+                    lastViewNanos = System.nanoTime();
+                }
+                for (long sequence = next; sequence < end; sequence++) {
+                    release(sequence);
+                }
+                next = end;
+                idleSpins = 0;
+                continue;
+            }
+            if (closed && claimed.get() == next) {
+                return;
+            }
+            if (System.nanoTime() - lastViewNanos >= VIEW_REFRESH_NANOS) {
+                publishView();
+                lastViewNanos = System.nanoTime();
+            }
+            if (idleSpins < SPINS_BEFORE_PARK) {
+                idleSpins++;
+                Thread.onSpinWait();
+                continue;
+            }
+            writerParked = true;
+            if (ring[(int) next & mask].sequence != next && !closed) {
+                LockSupport.parkNanos(this, VIEW_REFRESH_NANOS);
+            }
+            writerParked = false;
+        }
+    }
+
+    /**
+     * Runs the call in {@code slot} and keeps its outcome in the slot until the batch is completed. Errors are
+     * caught as well, so one failing call does not stop the writer.
+     *
+     * @return whether the call may have changed the state of the engine
+     */
+    private boolean execute(Slot slot) {
+        if (slot.operation == null) {
+            return false;
+        }
+        try {
+            switch (slot.operation) {
+                case REGISTER:
+                    engine.register(slot.first);
+                    return true;
+                case PUBLISH_POST:
+                    slot.result = engine.publishPost(slot.first, slot.date, slot.second);
+                    return true;
+                case PUBLISH_STORY:
+                    slot.result = engine.publishStory(slot.first, slot.date, slot.second);
+                    return true;
+                case LIKE:
+                    engine.like(slot.first, slot.second);
+                    return true;
+                case COMMENT:
+                    engine.comment(slot.first, slot.second, slot.third);
+                    return true;
+                case HAS_LIKED:
+                    slot.result = engine.hasLiked(slot.first, slot.second);
+                    return false;
+                case MOST_POPULAR_CONTENT:
+                    slot.result = engine.getNMostPopularContent(slot.n);
+                    return false;
+                case MOST_RECENT_CONTENT:
+                    slot.result = engine.getNMostRecentContent(slot.first, slot.n);
+                    return false;
+                case CONTENT_BY_TAG:
+                    slot.result = engine.findContentByTag(slot.first);
+                    return false;
+                case FOLLOW:
+                    engine.follow(slot.first, slot.second);
+                    return true;
+                case UNFOLLOW:
+                    engine.unfollow(slot.first, slot.second);
+                    return true;
+                case HOME_FEED:
+                    slot.result = engine.getHomeFeed(slot.first, slot.n);
+                    return false;
+                case USER_STATS:
+                    slot.result = engine.getUserStats(slot.first);
+                    return false;
+                case TOP_USERS:
+                    slot.result = engine.getTopUsersByEngagement(slot.n);
+                    return false;
+                default:
+                    slot.result = engine.getActivityLog(slot.first);
+                    return false;
+            }
+        } catch (Throwable e) {
+            slot.error = e;
+            return false;
+        }
+    }
+
+    /**
+     * Hands the slot with {@code sequence} back to the callers and only then completes its future, so a caller
+     * which submits again as soon as its future completes finds the slot free.
+     */
+    private void release(long sequence) {
+        Slot slot = ring[(int) sequence & mask];
+        boolean executed = slot.operation != null;
+        CompletableFuture<Object> future = slot.future;
+        Object result = slot.result;
+        Throwable error = slot.error;
+        slot.clear();
+        consumed = sequence + 1;
+        if (!executed) {
+            return;
+        }
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * Fails the calls from sequence {@code next} on, once the writer has stopped because of {@code failure}.
+     * Callers which claimed a sequence before they saw the failure publish their slots shortly, so they are
+     * waited for; callers which claim one afterwards fail their own futures.
+     */
+    private void failAccepted(long next, Throwable failure) {
+        for (long sequence = next; sequence < claimed.get(); sequence++) {
+            Slot slot = ring[(int) sequence & mask];
+            while (slot.sequence != sequence) {
+                Thread.onSpinWait();
+            }
+            CompletableFuture<Object> future = slot.future;
+            slot.clear();
+            consumed = sequence + 1;
+            future.completeExceptionally(failure);
+        }
+    }
+
+    private void publishView() {
+        List<Content> mostPopularContent = List.copyOf(engine.getNMostPopularContent(viewSize));
+        String mostPopularUser;
+        try {
+            mostPopularUser = engine.getMostPopularUser();
+        } catch (NoUsersException e) {
+            mostPopularUser = null;
+        }
+        view = new ReadView(mostPopularContent, mostPopularUser);
+    }
+
+    /**
+     * The answers to the global queries after a batch, replaced as a whole and never changed.
+     * A null most popular user means that there are no users.
+     */
+    private static final class ReadView {
+
+        private final List<Content> mostPopularContent;
+        private final String mostPopularUser;
+
+        private ReadView(List<Content> mostPopularContent, String mostPopularUser) {
+            this.mostPopularContent = mostPopularContent;
+            this.mostPopularUser = mostPopularUser;
+        }
+    }
+
+    /**
+     * A pre-allocated entry of the ring. The fields are written by the caller before the sequence is
+     * published and are only read by the writer after it sees that sequence.
+     */
+    private static final class Slot {
+
+        private volatile long sequence = -1;
+        private Operation operation;
+        private String first;
+        private String second;
+        private String third;
+        private LocalDateTime date;
+        private int n;
+        private CompletableFuture<Object> future;
+        private Object result;
+        private Throwable error;
+
+        private void fill(Operation operation, String first, String second, String third, LocalDateTime date,
+                          int n, CompletableFuture<Object> future) {
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.date = date;
+            this.n = n;
+            this.future = future;
+        }
+
+        private void clear() {
+            fill(null, null, null, null, null, 0, null);
+            result = null;
+            error = null;
+        }
+    }
+
+    private class BlockingView implements SocialMediaInator {
+
+        @Override
+        public void register(String username) {
+            await(EventLoopSocialInator.this.register(username));
+        }
+
+        @Override
+        public String publishPost(String username, LocalDateTime publishedOn, String description) {
+            return await(EventLoopSocialInator.this.publishPost(username, publishedOn, description));
+        }
+
+        @Override
+        public String publishStory(String username, LocalDateTime publishedOn, String description) {
+            return await(EventLoopSocialInator.this.publishStory(username, publishedOn, description));
+        }
+
+        @Override
+        public void like(String username, String id) {
+            await(EventLoopSocialInator.this.like(username, id));
+        }
+
+        @Override
+        public void comment(String username, String text, String id) {
+            await(EventLoopSocialInator.this.comment(username, text, id));
+        }
+
+        @Override
+        public boolean hasLiked(String username, String id) {
+            return await(EventLoopSocialInator.this.hasLiked(username, id));
+        }
+
+        @Override
+        public Collection<Content> getNMostPopularContent(int n) {
+            return await(EventLoopSocialInator.this.getNMostPopularContent(n));
+        }
+
+        @Override
+        public Collection<Content> getNMostRecentContent(String username, int n) {
+            return await(EventLoopSocialInator.this.getNMostRecentContent(username, n));
+        }
+
+        @Override
+        public String getMostPopularUser() {
+            return await(EventLoopSocialInator.this.getMostPopularUser());
+        }
+
+        @Override
+        public Collection<Content> findContentByTag(String tag) {
+            return await(EventLoopSocialInator.this.findContentByTag(tag));
+        }
+
+        @Override
+        public List<String> getActivityLog(String username) {
+            return await(EventLoopSocialInator.this.getActivityLog(username));
+        }
+
+        @Override
+        public void follow(String username, String followee) {
+            await(EventLoopSocialInator.this.follow(username, followee));
+        }
+
+        @Override
+        public void unfollow(String username, String followee) {
+            await(EventLoopSocialInator.this.unfollow(username, followee));
+        }
+
+        @Override
+        public Collection<Content> getHomeFeed(String username, int n) {
+            return await(EventLoopSocialInator.this.getHomeFeed(username, n));
+        }
+
+        @Override
+        public UserStats getUserStats(String username) {
+            return await(EventLoopSocialInator.this.getUserStats(username));
+        }
+
+        @Override
+        public List<UserStats> getTopUsersByEngagement(int k) {
+            return await(EventLoopSocialInator.this.getTopUsersByEngagement(k));
+        }
+
+        private <T> T await(CompletableFuture<T> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
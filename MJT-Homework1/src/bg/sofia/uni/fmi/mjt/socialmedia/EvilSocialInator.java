@@ -3,33 +3,190 @@ package bg.sofia.uni.fmi.mjt.socialmedia;
 import java.util.Set;
 import java.util.Map;
 import java.util.List;
-import java.util.HashSet;
 import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
 import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
 import java.time.LocalDateTime;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import bg.sofia.uni.fmi.mjt.socialmedia.content.Post;
 import bg.sofia.uni.fmi.mjt.socialmedia.content.Story;
 import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.ContentPage;
 import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+import bg.sofia.uni.fmi.mjt.socialmedia.feed.HomeTimelines;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityLog;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityType;
+import bg.sofia.uni.fmi.mjt.socialmedia.search.Query;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.ExpiryQueue;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.GaugeSource;
+import bg.sofia.uni.fmi.mjt.socialmedia.search.SearchIndex;
+import bg.sofia.uni.fmi.mjt.socialmedia.search.SearchOrder;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.MentionCounter;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.TimeRangeIndex;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.UserDictionary;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.Journal;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.Snapshot;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SnapshotImage;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.JournalHandler;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SnapshotHandler;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.socialmedia.trending.TrendingTags;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.EngagementRollup;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.ContentNotFoundException;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameAlreadyExistsException;
 
-public class EvilSocialInator implements SocialMediaInator {
+public class EvilSocialInator implements SocialMediaInator, GaugeSource {
 
-    private Set<String> users;
-    private Map<String, Content> contents;
-    private Map<String, List<String>> activityByUser;
+    private static final long EXPIRY_GRANULARITY_SECONDS = 60;
+    private static final long TIME_SEGMENT_SECONDS = 3600;
+    /**
+     * Content living this long, i.e. posts, is dropped from the time index with its whole segment instead of one
+     * by one. Segments are kept a day longer, so that no time zone sees a dropped post as live.
+     */
+    private static final Duration DROPPED_WITH_TIME_SEGMENT = Duration.ofDays(30);
+    private static final Duration TIME_INDEX_RETENTION = DROPPED_WITH_TIME_SEGMENT.plusDays(1);
+    private static final int MAX_PREALLOCATED_PAGE_SIZE = 64;
+    private static final Executor SNAPSHOT_WRITER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Clock clock;
+    private UserDictionary users;
+    private Map<String, AbstractContent> contents;
+    private List<ActivityLog> activityByUser;
+    private Map<String, NavigableSet<AbstractContent>> contentByTag;
+    private TreeSet<AbstractContent> contentByPopularity;
+    private List<TreeSet<AbstractContent>> contentByCreator;
+    /**
+     * Null when the users are shared with other engines; the engagement rollup then counts the mentions.
+     */
+    private MentionCounter mentionCounter;
+    private ExpiryQueue<AbstractContent> expiryQueue;
+    private TimeRangeIndex<AbstractContent> timeIndex;
+    private long nextTimeIndexDrop;
+    private TrendingTags trendingTags;
+    private SearchIndex searchIndex;
+    private HomeTimelines homeTimelines;
+    private EngagementRollup engagement;
+    private Journal journal;
+    private final AtomicLong nextSequence;
+    private final LongAdder contentBytes;
+    private final LongAdder activityLogBytes;
 
     public EvilSocialInator() {
-        users = new HashSet<>();
-        activityByUser = new LinkedHashMap<>();
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates an engine whose state survives restarts.
+     * -> The whole {@code journal} is replayed first to rebuild the state it describes
+     * -> Afterwards every successful register, publish, like and comment is appended to it before it is applied
+     *
+     * @param clock   The source of the current time
+     * @param journal The write-ahead log of the engine
+     * @throws UncheckedIOException If the journal cannot be read
+     */
+    public EvilSocialInator(Clock clock, Journal journal) {
+        this(clock);
+        try {
+            journal.replay(new JournalReplayer());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay the journal", e);
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * Creates an engine whose state survives restarts and which starts from a snapshot of its state.
+     * -> If {@code snapshot} exists, the state is loaded from it and only the part of the {@code journal}
+     * appended after the snapshot was taken is replayed
+     * -> Otherwise the whole journal is replayed
+     *
+     * @param clock    The source of the current time
+     * @param snapshot The file written by {@link #saveSnapshot(Path)}
+     * @param journal  The write-ahead log of the engine
+     * @throws UncheckedIOException If the snapshot or the journal cannot be read
+     */
+    public EvilSocialInator(Clock clock, Path snapshot, Journal journal) {
+        this(clock);
+        try {
+            long journalPosition = 0;
+            if (Files.exists(snapshot)) {
+                journalPosition = Snapshot.read(snapshot, new SnapshotLoader());
+            }
+            journal.replay(new JournalReplayer(), journalPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore the state of the engine", e);
+        }
+        this.journal = journal;
+    }
+
+    public EvilSocialInator(Clock clock) {
+        this(clock, new AtomicLong());
+    }
+
+    /**
+     * Creates an engine which takes the sequences of its content from {@code nextSequence}, so that several
+     * engines can share one numbering of their content.
+     */
+    EvilSocialInator(Clock clock, AtomicLong nextSequence) {
+        this(clock, nextSequence, new UserDictionary());
+    }
+
+    private EvilSocialInator(Clock clock, AtomicLong nextSequence, UserDictionary users) {
+        this(clock, nextSequence, users, new EngagementRollup(users));
+        mentionCounter = new MentionCounter(users);
+    }
+
+    /**
+     * Creates an engine which shares its users and the rollup of their engagement with other engines, so that
+     * several engines can hold parts of one platform.
+     * -> A user is registered in one of the engines but can act on the content of any of them; the activity log
+     * and the content of a user are created in an engine the first time they are needed there
+     * -> The mentions are only counted in {@code engagement}, which sees the content of all engines
+     */
+    EvilSocialInator(Clock clock, AtomicLong nextSequence, UserDictionary users, EngagementRollup engagement) {
+        this.clock = clock;
+        this.users = users;
+        activityByUser = new ArrayList<>();
         contents = new LinkedHashMap<>();
+        contentByTag = new HashMap<>();
+        contentByPopularity = new TreeSet<>(new CompareByTotalLikesAndComments());
+        contentByCreator = new ArrayList<>();
+        expiryQueue = new ExpiryQueue<>(EXPIRY_GRANULARITY_SECONDS);
+        timeIndex = new TimeRangeIndex<>(TIME_SEGMENT_SECONDS, new CompareByPublicationDate(),
+                AbstractContent::getPublishedEpochSecond);
+        trendingTags = new TrendingTags(clock);
+        searchIndex = new SearchIndex();
+        homeTimelines = new HomeTimelines();
+        this.engagement = engagement;
+        this.nextSequence = nextSequence;
+        contentBytes = new LongAdder();
+        activityLogBytes = new LongAdder();
     }
 
     /**
@@ -45,12 +202,14 @@ public class EvilSocialInator implements SocialMediaInator {
     public void register(String username) {
         if (username == null) {
             throw new IllegalArgumentException("Username cannot be null");
-        } else if (users.contains(username)) {
+        }
+        if (users.contains(username)) {
             throw new UsernameAlreadyExistsException("There is already a user with this username");
-        } else {
-            users.add(username);
-            activityByUser.put(username, new ArrayList<>());
         }
+        if (journal != null) {
+            journal.appendRegister(username);
+        }
+        addUser(username);
     }
 
     /**
@@ -72,21 +231,26 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public String publishPost(String username, LocalDateTime publishedOn, String description) {
+        expireContent();
         if (username == null) {
             throw new IllegalArgumentException("Username cannot be null!");
         } else if (publishedOn == null) {
             throw new IllegalArgumentException("Published on date cannot be null!");
         } else if (description == null) {
             throw new IllegalArgumentException("Description cannot be null");
-        } else if (!users.contains(username)) {
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
             throw new UsernameNotFoundException("There is no such user in the system!");
-        } else {
-            Post newPost = new Post(username, description, publishedOn);
-            contents.put(newPost.getId(), newPost);
-            String log = String.format("%s Created a post with id %s", getFormatedDate(publishedOn), newPost.getId());
-            activityByUser.get(username).add(log);
-            return newPost.getId();
         }
+        Post newPost = new Post(users.usernameOf(userId), description, publishedOn,
+                nextSequence.getAndIncrement());
+        if (journal != null) {
+            journal.appendPost(username, publishedOn, description, newPost.getSequence());
+        }
+        index(newPost);
+        activityOf(userId).addPost(publishedOn, newPost.getId());
+        return newPost.getId();
     }
 
     /**
@@ -108,25 +272,31 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public String publishStory(String username, LocalDateTime publishedOn, String description) {
+        expireContent();
         if (username == null) {
             throw new IllegalArgumentException("Username cannot be null!");
         } else if (publishedOn == null) {
             throw new IllegalArgumentException("Published on date cannot be null!");
         } else if (description == null) {
             throw new IllegalArgumentException("Description cannot be null");
-        } else if (!users.contains(username)) {
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
             throw new UsernameNotFoundException("There is no such user in the system!");
-        } else {
-            Story newStory = new Story(username, description, publishedOn);
-            contents.put(newStory.getId(), newStory);
-            String log = String.format("%s Created a story with id %s", getFormatedDate(publishedOn), newStory.getId());
-            activityByUser.get(username).add(log);
-            return newStory.getId();
         }
+        Story newStory = new Story(users.usernameOf(userId), description, publishedOn,
+                nextSequence.getAndIncrement());
+        if (journal != null) {
+            journal.appendStory(username, publishedOn, description, newStory.getSequence());
+        }
+        index(newStory);
+        activityOf(userId).addStory(publishedOn, newStory.getId());
+        return newStory.getId();
     }
 
     /**
      * Likes a content with id {@code id}.
+     * -> Liking the same content more than once has no effect
      *
      * @param username The name of the user who liked the content
      * @param id       The id of the content
@@ -137,20 +307,58 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public void like(String username, String id) {
+        expireContent();
         if (username == null) {
             throw new IllegalArgumentException("Username cannot be null!");
         } else if (id == null) {
             throw new IllegalArgumentException("Id cannot be null!");
-        } else if (!users.contains(username)) {
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
             throw new UsernameNotFoundException("There is no user with this username in the platform!");
-        } else if (!contents.containsKey(id)) {
+        }
+        AbstractContent content = contents.get(id);
+        if (content == null) {
             throw new ContentNotFoundException("There is no content with this id in the platform!");
-        } else {
-            AbstractContent content = (AbstractContent) (contents.get(id));
-            content.like(username);
-            String log = String.format("%s Liked a content with id %s", getFormatedDate(LocalDateTime.now()), id);
-            activityByUser.get(username).add(log);
         }
+        if (content.hasLiked(userId)) {
+            return;
+        }
+        LocalDateTime likedOn = LocalDateTime.now(clock);
+        if (journal != null) {
+            journal.appendLike(username, id, likedOn);
+        }
+        addLike(userId, content, likedOn);
+    }
+
+    /**
+     * Checks whether the user {@code username} has liked the content with id {@code id}.
+     *
+     * @param username The name of the user
+     * @param id       The id of the content
+     * @return true if the user has liked the content
+     * @throws IllegalArgumentException  If any of the parameters is null
+     * @throws UsernameNotFoundException If a user with {@code username} does not exist in the platform
+     * @throws ContentNotFoundException  If there is no content with id {@code id} in the platform
+     */
+
+    @Override
+    public boolean hasLiked(String username, String id) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        AbstractContent content = contents.get(id);
+        if (content == null) {
+            throw new ContentNotFoundException("There is no content with this id in the platform!");
+        }
+        return content.hasLiked(userId);
     }
 
     /**
@@ -166,23 +374,27 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public void comment(String username, String text, String id) {
+        expireContent();
         if (username == null) {
             throw new IllegalArgumentException("Username cannot be null!");
         } else if (text == null) {
             throw new IllegalArgumentException("Text cannot be null!");
         } else if (id == null) {
             throw new IllegalArgumentException("ID cannot be null!");
-        } else if (!users.contains(username)) {
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
             throw new UsernameNotFoundException("There is no user with this username in the platform!");
-        } else if (!contents.containsKey(id)) {
+        }
+        AbstractContent content = contents.get(id);
+        if (content == null) {
             throw new ContentNotFoundException("There is no content with this id in the platform!");
-        } else {
-            AbstractContent content = (AbstractContent) (contents.get(id));
-            content.comment(username, text);
-            String log = String.format("%s Commented \"%s\" on a content with id %s",
-                    getFormatedDate(LocalDateTime.now()), text, id);
-            activityByUser.get(username).add(log);
         }
+        LocalDateTime commentedOn = LocalDateTime.now(clock);
+        if (journal != null) {
+            journal.appendComment(username, text, id, commentedOn);
+        }
+        addComment(userId, content, text, commentedOn);
     }
 
     /**
@@ -199,25 +411,19 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public Collection<Content> getNMostPopularContent(int n) {
+        expireContent();
         if (n < 0) {
             throw new IllegalArgumentException("N cannot be negative number");
         }
-        if (contents.isEmpty()) {
+        if (n == 0 || contentByPopularity.isEmpty()) {
             return Collections.emptyList();
         }
-        List<Content> contents = new ArrayList<>();
-        for (Content content : this.contents.values()) {
-            AbstractContent abstractContent = (AbstractContent) content;
-            if (abstractContent.isActive()) {
-                contents.add(content);
-            }
-        }
-        Collections.sort(contents, new CompareByTotalLikesAndComments());
-        if (n >= contents.size()) {
-            return contents;
-        } else {
-            return contents.subList(0, n);
+        List<Content> mostPopular = new ArrayList<>(Math.min(n, contentByPopularity.size()));
+        Iterator<AbstractContent> iterator = contentByPopularity.iterator();
+        while (iterator.hasNext() && mostPopular.size() < n) {
+            mostPopular.add(iterator.next());
         }
+        return Collections.unmodifiableList(mostPopular);
     }
 
     /**
@@ -228,34 +434,30 @@ public class EvilSocialInator implements SocialMediaInator {
      *
      * @param username
      * @param n        The number of content to be returned
-     * @return Unmodifiable collection of Content sorted by popularity
+     * @return Unmodifiable collection of Content sorted by publication date, newest first
      * @throws IllegalArgumentException  If {@code username} is null or {@code n} is a negative number
      * @throws UsernameNotFoundException if a user with {@code username} does not exist in the platform
      */
 
     @Override
     public Collection<Content> getNMostRecentContent(String username, int n) {
+        expireContent();
         if (n < 0) {
             throw new IllegalArgumentException("N cannot be negative!");
         } else if (username == null) {
             throw new IllegalArgumentException("Username cannot be null");
-        } else if (!users.contains(username)) {
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
             throw new UsernameNotFoundException("There is no user with this username in the platform!");
-        } else {
-            List<Content> list = new ArrayList<>();
-            for (Content content : contents.values()) {
-                AbstractContent abstractContent = (AbstractContent) content;
-                if (abstractContent.equals(username) && abstractContent.isActive()) {
-                    list.add(content);
-                }
-            }
-            if (n >= list.size()) {
-                return list;
-            } else {
-                Collections.reverse(list);
-                return list.subList(0, n);
-            }
         }
+        TreeSet<AbstractContent> created = createdBy(userId);
+        List<Content> mostRecent = new ArrayList<>(Math.min(n, created.size()));
+        Iterator<AbstractContent> iterator = created.descendingIterator();
+        while (iterator.hasNext() && mostRecent.size() < n) {
+            mostRecent.add(iterator.next());
+        }
+        return Collections.unmodifiableList(mostRecent);
     }
 
     /**
@@ -267,30 +469,13 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public String getMostPopularUser() {
+        expireContent();
         if (users.isEmpty()) {
             throw new NoUsersException("There are no users in the platform.");
         } else {
-            Map<String, Integer> frequencyByUsername = new HashMap<>();
-            for (Content content : contents.values()) {
-                for (String mention : content.getMentions()) {
-                    String username = mention.substring(1);
-                    if (!users.contains(username)) {
-                        int frequency =
-                                frequencyByUsername.containsKey(username) ? frequencyByUsername.get(username) : 0;
-                        frequencyByUsername.put(username, frequency + 1);
-                    }
-                }
-            }
-            int max = -1;
-            String mostPopular = "";
-            for (String username : frequencyByUsername.keySet()) {
-                int temp = frequencyByUsername.get(username);
-                if (temp > max) {
-                    max = temp;
-                    mostPopular = username;
-                }
-            }
-            return mostPopular;
+            int mostPopular = mentionCounter == null ? engagement.getMostMentioned()
+                    : mentionCounter.getMostMentioned();
+            return mostPopular == UserDictionary.NOT_FOUND ? "" : users.usernameOf(mostPopular);
         }
     }
 
@@ -307,20 +492,15 @@ public class EvilSocialInator implements SocialMediaInator {
 
     @Override
     public Collection<Content> findContentByTag(String tag) {
+        expireContent();
         if (tag == null) {
             throw new IllegalArgumentException("Tag cannot be null");
         } else if (!tag.startsWith("#")) {
             throw new IllegalArgumentException("Tag should start with #");
-        } else if (contents.size() == 0) {
+        } else if (!contentByTag.containsKey(tag)) {
             return Collections.unmodifiableCollection(Collections.emptyList());
         } else {
-            List<Content> list = new ArrayList<>();
-            for (Content content : contents.values()) {
-                if (content.getTags().contains(tag)) {
-                    list.add(content);
-                }
-            }
-            return Collections.unmodifiableCollection(list);
+            return Collections.unmodifiableCollection(new ArrayList<>(contentByTag.get(tag)));
         }
     }
 
@@ -345,17 +525,849 @@ public class EvilSocialInator implements SocialMediaInator {
     public List<String> getActivityLog(String username) {
         if (username == null) {
             throw new IllegalArgumentException("Username cannot be null!");
-        } else if (!users.contains(username)) {
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
             throw new UsernameNotFoundException("There is no user with this username in the platform");
+        }
+        return activityOf(userId).newestFirst();
+    }
+
+    /**
+     * Makes user {@code username} follow user {@code followee}.
+     * -> Following a user who is already followed does nothing
+     *
+     * @param username The name of the follower
+     * @param followee The name of the followed user
+     * @throws IllegalArgumentException  If any of the parameters is null or if they are the same user
+     * @throws UsernameNotFoundException If any of the users does not exist in the platform
+     */
+    @Override
+    public void follow(String username, String followee) {
+        int[] ids = followIds(username, followee);
+        if (homeTimelines.isFollowing(ids[0], ids[1])) {
+            return;
+        }
+        if (journal != null) {
+            journal.appendFollow(username, followee);
+        }
+        homeTimelines.follow(ids[0], ids[1], createdBy(ids[1]).descendingIterator());
+    }
+
+    /**
+     * Makes user {@code username} stop following user {@code followee}.
+     * -> Unfollowing a user who is not followed does nothing
+     *
+     * @param username The name of the follower
+     * @param followee The name of the followed user
+     * @throws IllegalArgumentException  If any of the parameters is null or if they are the same user
+     * @throws UsernameNotFoundException If any of the users does not exist in the platform
+     */
+    @Override
+    public void unfollow(String username, String followee) {
+        int[] ids = followIds(username, followee);
+        if (!homeTimelines.isFollowing(ids[0], ids[1])) {
+            return;
+        }
+        if (journal != null) {
+            journal.appendUnfollow(username, followee);
+        }
+        homeTimelines.unfollow(ids[0], ids[1]);
+    }
+
+    /**
+     * Returns the {@code n} most recent content of the users followed by {@code username}.
+     * -> The feed is served from a precomputed timeline, into which the content of the few users with very many
+     * followers is merged while reading
+     * -> If the user does not follow anyone, an empty Collection should be returned
+     * -> The returned Collection should not contain expired content
+     *
+     * @param username
+     * @param n        The number of content to be returned
+     * @return Unmodifiable collection of Content sorted by publication date, newest first
+     * @throws IllegalArgumentException  If {@code username} is null or {@code n} is a negative number
+     * @throws UsernameNotFoundException if a user with {@code username} does not exist in the platform
+     */
+    @Override
+    public Collection<Content> getHomeFeed(String username, int n) {
+        expireContent();
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative!");
+        } else if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        List<AbstractContent> feed = homeTimelines.read(userId, n,
+                followee -> createdBy(followee).descendingIterator(),
+                content -> contents.get(content.getId()) == content);
+        return Collections.unmodifiableList(new ArrayList<>(feed));
+    }
+
+    /**
+     * Returns the likes and comments received, the content published and the mentions of user {@code username}.
+     * -> Only live content counts, as if the live content of the platform was summed up
+     * -> The counts are kept up to date on every publication, like, comment and expiry, so the call does not
+     * depend on how much content there is
+     *
+     * @param username
+     * @return The engagement of the user
+     * @throws IllegalArgumentException  If {@code username} is null
+     * @throws UsernameNotFoundException if a user with {@code username} does not exist in the platform
+     */
+    @Override
+    public UserStats getUserStats(String username) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        return engagement.statsOf(userId, users.usernameOf(userId));
+    }
+
+    /**
+     * Returns the {@code k} users whose live content has received the most likes and comments.
+     * -> If there are less than {@code k} users return as many as there are
+     * -> Users with equal engagement are ordered by registration
+     *
+     * @param k The number of users to be returned
+     * @return Unmodifiable list of the engagement of the users, most engaged first
+     * @throws IllegalArgumentException If {@code k} is a negative number
+     */
+    @Override
+    public List<UserStats> getTopUsersByEngagement(int k) {
+        expireContent();
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be negative!");
+        }
+        return engagement.topByEngagement(k, users::usernameOf);
+    }
+
+    /**
+     * Returns the {@code k} tags used in the most posts and stories published within the last {@code window}.
+     * -> The counts are estimated in bounded memory, so a tag may rank slightly higher than it should, but a tag
+     * used in much more content than the others is never left out
+     * -> Expired content still counts, as long as it was published within the window
+     *
+     * @param k      The number of tags to be returned
+     * @param window The hour, day or week before now
+     * @return Unmodifiable list of tags sorted by the estimated number of content in descending order
+     * @throws IllegalArgumentException If {@code k} is negative or {@code window} is null
+     */
+    public List<String> getTrendingTags(int k, TrendingTags.Window window) {
+        return trendingTags.top(k, window);
+    }
+
+    /**
+     * Returns the content matched by {@code query}, which combines tags, mentions and words of descriptions and
+     * comments with AND, OR and NOT.
+     * -> Each tag or mention is a posting list, so a query never scans all content with one of its tags; an
+     * intersection skips through the larger lists guided by the smaller one
+     * -> If there is no matching content, an empty List should be returned
+     * -> The returned List should not contain expired content
+     *
+     * @param query The query, built with the factory methods of {@link Query}
+     * @param n     The maximum number of content to be returned
+     * @param order Whether the newest or the most liked and commented content comes first
+     * @return Unmodifiable list of Content in the given order
+     * @throws IllegalArgumentException If {@code query} or {@code order} is null or {@code n} is a negative number
+     */
+    public List<Content> search(Query query, int n, SearchOrder order) {
+        expireContent();
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null!");
+        } else if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null!");
+        } else if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative!");
+        }
+        return searchIndex.search(query, n, order);
+    }
+
+    /**
+     * Returns the {@code n} newest content published within {@code [from, to)}.
+     * -> Content is kept in segments of one hour of publication dates, so only the content within the interval
+     * is visited
+     * -> If there is no content published within the interval, an empty List should be returned
+     * -> The returned List should not contain expired content
+     *
+     * @param from The first moment of the interval
+     * @param to   The moment right after the interval
+     * @param n    The maximum number of content to be returned
+     * @return Unmodifiable list of Content sorted by publication date, newest first
+     * @throws IllegalArgumentException If {@code from} or {@code to} is null, if {@code to} is before
+     *                                  {@code from} or if {@code n} is a negative number
+     */
+    public List<Content> findContentPublishedBetween(LocalDateTime from, LocalDateTime to, int n) {
+        expireContent();
+        validateInterval(from, to);
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative!");
+        }
+        List<Content> found = new ArrayList<>(Math.min(n, MAX_PREALLOCATED_PAGE_SIZE));
+        Iterator<AbstractContent> iterator = timeIndex.newestFirst(startSecondOf(from), endSecondOf(to));
+        while (iterator.hasNext() && found.size() < n) {
+            AbstractContent content = iterator.next();
+            if (isPublishedWithin(content, from, to) && isLive(content)) {
+                found.add(content);
+            }
+        }
+        return Collections.unmodifiableList(found);
+    }
+
+    /**
+     * Returns all posts and stories with tag {@code tag} published within {@code [from, to)}.
+     * -> Walks either the content with the tag or the content within the interval, whichever is less
+     * -> If there is no such content, an empty Collection should be returned
+     * -> The returned Collection should not contain expired content
+     *
+     * @param tag
+     * @param from The first moment of the interval
+     * @param to   The moment right after the interval
+     * @return Unmodifiable collection of Content sorted by publication date, newest first
+     * @throws IllegalArgumentException If {@code tag} is null or does not start with '#', if {@code from} or
+     *                                  {@code to} is null or if {@code to} is before {@code from}
+     */
+    public Collection<Content> findContentByTag(String tag, LocalDateTime from, LocalDateTime to) {
+        expireContent();
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag cannot be null");
+        } else if (!tag.startsWith("#")) {
+            throw new IllegalArgumentException("Tag should start with #");
+        }
+        validateInterval(from, to);
+        NavigableSet<AbstractContent> tagged = contentByTag.get(tag);
+        if (tagged == null) {
+            return Collections.emptyList();
+        }
+        List<AbstractContent> found = new ArrayList<>();
+        if (tagged.size() <= timeIndex.count(startSecondOf(from), endSecondOf(to))) {
+            for (AbstractContent content : tagged) {
+                if (isPublishedWithin(content, from, to)) {
+                    found.add(content);
+                }
+            }
+            found.sort(new CompareByPublicationDate().reversed());
+        } else {
+            Iterator<AbstractContent> iterator = timeIndex.newestFirst(startSecondOf(from), endSecondOf(to));
+            while (iterator.hasNext()) {
+                AbstractContent content = iterator.next();
+                if (content.getTags().contains(tag) && isPublishedWithin(content, from, to) && isLive(content)) {
+                    found.add(content);
+                }
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(found));
+    }
+
+    /**
+     * Returns the {@code n} most popular content published within {@code [from, to)}.
+     * -> Walks the popularity ranking if the interval holds a large part of the content and ranks the content
+     * within the interval with a bounded heap otherwise
+     * -> If there is no such content, an empty Collection should be returned
+     * -> The returned Collection should not contain expired content
+     *
+     * @param n    The number of content to be returned
+     * @param from The first moment of the interval
+     * @param to   The moment right after the interval
+     * @return Unmodifiable collection of Content sorted by popularity in descending order
+     * @throws IllegalArgumentException If {@code n} is a negative number, if {@code from} or {@code to} is null
+     *                                  or if {@code to} is before {@code from}
+     */
+    public Collection<Content> getNMostPopularContent(int n, LocalDateTime from, LocalDateTime to) {
+        expireContent();
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative number");
+        }
+        validateInterval(from, to);
+        long within = timeIndex.count(startSecondOf(from), endSecondOf(to));
+        if (n == 0 || within == 0) {
+            return Collections.emptyList();
+        }
+        List<AbstractContent> mostPopular = new ArrayList<>(Math.min(n, MAX_PREALLOCATED_PAGE_SIZE));
+        if (within * within >= (long) n * contentByPopularity.size()) {
+            Iterator<AbstractContent> iterator = contentByPopularity.iterator();
+            while (iterator.hasNext() && mostPopular.size() < n) {
+                AbstractContent content = iterator.next();
+                if (isPublishedWithin(content, from, to)) {
+                    mostPopular.add(content);
+                }
+            }
         } else {
-            List<String> temp = activityByUser.get(username);
-            Collections.reverse(temp);
-            return temp;
+            Comparator<AbstractContent> byPopularity = new CompareByTotalLikesAndComments();
+            PriorityQueue<AbstractContent> leastPopularFirst = new PriorityQueue<>(byPopularity.reversed());
+            Iterator<AbstractContent> iterator = timeIndex.newestFirst(startSecondOf(from), endSecondOf(to));
+            while (iterator.hasNext()) {
+                AbstractContent content = iterator.next();
+                if (isPublishedWithin(content, from, to) && isLive(content)) {
+                    leastPopularFirst.add(content);
+                    if (leastPopularFirst.size() > n) {
+                        leastPopularFirst.poll();
+                    }
+                }
+            }
+            mostPopular.addAll(leastPopularFirst);
+            mostPopular.sort(byPopularity);
         }
+        return Collections.unmodifiableList(new ArrayList<>(mostPopular));
     }
 
-    private String getFormatedDate(LocalDateTime ldt) {
-        return String.format("%02d:%02d:%02d %02d.%02d.%d:", ldt.getHour(), ldt.getMinute(), ldt.getSecond(),
-                ldt.getDayOfMonth(), ldt.getMonthValue(), ldt.getYear());
+    /**
+     * Returns one page of the content with tag {@code tag}, newest first.
+     * -> Pass null as {@code cursor} for the first page and the cursor of the previous page for the next ones
+     * -> Content published after the first page was served is left out of the following pages, so paging
+     * neither repeats nor skips content while new content is being published
+     * -> Only the content on the page is materialized, however much content has the tag
+     * -> The returned pages should not contain expired content
+     *
+     * @param tag
+     * @param pageSize The maximum number of content on the page
+     * @param cursor   The cursor of the previous page or null
+     * @return The page, whose cursor is null if it is the last one
+     * @throws IllegalArgumentException If {@code tag} is null or does not start with '#', if {@code pageSize}
+     *                                  is not positive or if {@code cursor} was not returned for this tag
+     */
+    public ContentPage findContentByTag(String tag, int pageSize, String cursor) {
+        expireContent();
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag cannot be null");
+        } else if (!tag.startsWith("#")) {
+            throw new IllegalArgumentException("Tag should start with #");
+        } else if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be positive!");
+        }
+        int scope = tag.hashCode();
+        PageCursor position = cursor == null ? null : PageCursor.decode(cursor, PageCursor.Kind.TAG, scope);
+        long watermark = position == null ? nextSequence.get() : position.getWatermark();
+        NavigableSet<AbstractContent> tagged = contentByTag.get(tag);
+        if (tagged == null) {
+            return new ContentPage(Collections.emptyList(), null);
+        }
+        long before = position == null ? watermark : position.getSequence();
+        Iterator<AbstractContent> iterator = tagged.headSet(new Probe(before, LocalDateTime.MIN, 0), false)
+                .descendingIterator();
+        return page(iterator, pageSize, PageCursor.Kind.TAG, scope, watermark);
+    }
+
+    /**
+     * Returns one page of the content on the platform, most popular first.
+     * -> Pass null as {@code cursor} for the first page and the cursor of the previous page for the next ones
+     * -> The cursor is a position in the ranking, so content published after the first page was served is left
+     * out and content is never returned twice, but content whose popularity grows past the cursor between two
+     * pages is not returned on the following ones
+     * -> The returned pages should not contain expired content
+     *
+     * @param pageSize The maximum number of content on the page
+     * @param cursor   The cursor of the previous page or null
+     * @return The page, whose cursor is null if it is the last one
+     * @throws IllegalArgumentException If {@code pageSize} is not positive or if {@code cursor} was not
+     *                                  returned by this query
+     */
+    public ContentPage getMostPopularContent(int pageSize, String cursor) {
+        expireContent();
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be positive!");
+        }
+        PageCursor position = cursor == null ? null : PageCursor.decode(cursor, PageCursor.Kind.POPULAR, 0);
+        long watermark = position == null ? nextSequence.get() : position.getWatermark();
+        Iterator<AbstractContent> iterator = position == null ? contentByPopularity.iterator()
+                : contentByPopularity.tailSet(new Probe(position.getSequence(), LocalDateTime.MIN,
+                position.getPopularity()), false).iterator();
+        return page(iterator, pageSize, PageCursor.Kind.POPULAR, 0, watermark);
+    }
+
+    /**
+     * Returns one page of the content of user {@code username}, newest first.
+     * -> Pass null as {@code cursor} for the first page and the cursor of the previous page for the next ones
+     * -> Content published after the first page was served is left out of the following pages, even if its
+     * publication date is older than the content already returned
+     * -> The returned pages should not contain expired content
+     *
+     * @param username
+     * @param pageSize The maximum number of content on the page
+     * @param cursor   The cursor of the previous page or null
+     * @return The page, whose cursor is null if it is the last one
+     * @throws IllegalArgumentException  If {@code username} is null, if {@code pageSize} is not positive or if
+     *                                   {@code cursor} was not returned for this user
+     * @throws UsernameNotFoundException if a user with {@code username} does not exist in the platform
+     */
+    public ContentPage getMostRecentContent(String username, int pageSize, String cursor) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        } else if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be positive!");
+        }
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        int scope = username.hashCode();
+        PageCursor position = cursor == null ? null : PageCursor.decode(cursor, PageCursor.Kind.RECENT, scope);
+        long watermark = position == null ? nextSequence.get() : position.getWatermark();
+        TreeSet<AbstractContent> created = createdBy(userId);
+        Iterator<AbstractContent> iterator = position == null ? created.descendingIterator()
+                : created.headSet(new Probe(position.getSequence(), position.getPublicationDate(), 0), false)
+                .descendingIterator();
+        return page(iterator, pageSize, PageCursor.Kind.RECENT, scope, watermark);
+    }
+
+    /**
+     * Writes a snapshot of the current state of the engine to {@code path} in the background.
+     * -> Only the live content and its likes are copied before the method returns, everything else is
+     * append-only and is read while the snapshot is being written
+     * -> The snapshot records the position of the journal it is consistent with, so it can be combined
+     * with the rest of the journal on restart
+     *
+     * @param path The file to write the snapshot to
+     * @return A future which completes once the snapshot is durably written
+     * @throws IllegalArgumentException If {@code path} is null
+     */
+    public CompletableFuture<Void> saveSnapshot(Path path) {
+        expireContent();
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null!");
+        }
+        SnapshotImage image;
+        try {
+            long journalPosition = 0;
+            if (journal != null) {
+                journal.sync();
+                journalPosition = journal.position();
+            }
+            image = new SnapshotImage(journalPosition, nextSequence.get(), users, activityByUser);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        for (AbstractContent content : contents.values()) {
+            image.addContent(content);
+        }
+        image.setFollows(homeTimelines.getFollows());
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Snapshot.write(path, image);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the snapshot", e);
+            }
+        }, SNAPSHOT_WRITER);
+    }
+
+    /**
+     * Registers the sizes of the content, the indexes and the activity logs.
+     * The gauges are read on the thread of the reporter while the engine is written, so none of them walks the
+     * structures of the engine: they read size fields or byte totals which are kept up to date as content is
+     * indexed, liked, commented and retired.
+     */
+    @Override
+    public void registerGauges(MetricsRegistry registry) {
+        registry.registerGauge("users", users::size);
+        registry.registerGauge("contents", contents::size);
+        registry.registerGauge("tags", contentByTag::size);
+        registry.registerGauge("popularityIndex", contentByPopularity::size);
+        registry.registerGauge("expiryQueue", expiryQueue::size);
+        registry.registerGauge("timeIndex", timeIndex::size);
+        registry.registerGauge("timeIndexSegments", timeIndex::getSegmentCount);
+        registry.registerGauge("trendingTagsBytes", trendingTags::getSizeInBytes);
+        registry.registerGauge("searchTerms", searchIndex::getTermCount);
+        registry.registerGauge("searchIndexBytes", searchIndex::getSizeInBytes);
+        registry.registerGauge("homeTimelineEntries", homeTimelines::getTimelineEntries);
+        registry.registerGauge("contentBytes", contentBytes::sum);
+        registry.registerGauge("activityLogBytes", activityLogBytes::sum);
+    }
+
+    /**
+     * Returns the activity log of {@code username} or null if there is no such user or they have not acted on
+     * this engine yet.
+     */
+    ActivityLog activityLogOf(String username) {
+        int userId = users.idOf(username);
+        return userId == UserDictionary.NOT_FOUND || userId >= activityByUser.size() ? null
+                : activityByUser.get(userId);
+    }
+
+    AbstractContent contentOf(String id) {
+        return contents.get(id);
+    }
+
+    String usernameOf(int userId) {
+        return users.usernameOf(userId);
+    }
+
+    int userIdOf(String username) {
+        return users.idOf(username);
+    }
+
+    /**
+     * Returns a copy of the {@code n} most recent live content of the user with id {@code userId}.
+     */
+    List<AbstractContent> newestContentOf(int userId, int n) {
+        expireContent();
+        List<AbstractContent> newest = new ArrayList<>(Math.min(n, MAX_PREALLOCATED_PAGE_SIZE));
+        if (userId >= contentByCreator.size() || contentByCreator.get(userId) == null) {
+            return newest;
+        }
+        Iterator<AbstractContent> iterator = contentByCreator.get(userId).descendingIterator();
+        while (iterator.hasNext() && newest.size() < n) {
+            newest.add(iterator.next());
+        }
+        return newest;
+    }
+
+    EngagementRollup getEngagementRollup() {
+        return engagement;
+    }
+
+    /**
+     * Retires the content which has expired by now.
+     */
+    void retireExpired() {
+        expireContent();
+    }
+
+    private int addUser(String username) {
+        int userId = users.register(username);
+        activityOf(userId);
+        createdBy(userId);
+        if (mentionCounter != null) {
+            mentionCounter.register(userId);
+        }
+        engagement.register(userId);
+        return userId;
+    }
+
+    private ActivityLog activityOf(int userId) {
+        growUserRows(userId);
+        ActivityLog log = activityByUser.get(userId);
+        if (log == null) {
+            log = new ActivityLog(activityLogBytes);
+            activityByUser.set(userId, log);
+        }
+        return log;
+    }
+
+    private TreeSet<AbstractContent> createdBy(int userId) {
+        growUserRows(userId);
+        TreeSet<AbstractContent> created = contentByCreator.get(userId);
+        if (created == null) {
+            created = new TreeSet<>(new CompareByPublicationDate());
+            contentByCreator.set(userId, created);
+        }
+        return created;
+    }
+
+    /**
+     * Makes room for the rows of the user with id {@code userId}. The rows of users who have not been seen by
+     * this engine stay null, which only happens when the dictionary is shared with other engines.
+     */
+    private void growUserRows(int userId) {
+        while (activityByUser.size() <= userId) {
+            activityByUser.add(null);
+        }
+        while (contentByCreator.size() <= userId) {
+            contentByCreator.add(null);
+        }
+    }
+
+    private void addLike(int userId, AbstractContent content, LocalDateTime likedOn) {
+        contentByPopularity.remove(content);
+        long engagementBytes = content.getEngagementSizeInBytes();
+        if (content.like(userId)) {
+            engagement.addLike(users.idOf(content.getCreatorsUsername()));
+            contentBytes.add(content.getEngagementSizeInBytes() - engagementBytes);
+        }
+        contentByPopularity.add(content);
+        activityOf(userId).addLike(likedOn, content.getId());
+    }
+
+    private void addComment(int userId, AbstractContent content, String text, LocalDateTime commentedOn) {
+        contentByPopularity.remove(content);
+        long engagementBytes = content.getEngagementSizeInBytes();
+        content.comment(users.usernameOf(userId), text);
+        contentBytes.add(content.getEngagementSizeInBytes() - engagementBytes);
+        contentByPopularity.add(content);
+        engagement.addComment(users.idOf(content.getCreatorsUsername()));
+        searchIndex.addComment(content, text);
+        activityOf(userId).addComment(commentedOn, content.getId(), text);
+    }
+
+    private void index(AbstractContent content) {
+        contents.put(content.getId(), content);
+        contentBytes.add(content.getFootprint().getTotal());
+        for (String tag : content.getTags()) {
+            contentByTag.computeIfAbsent(tag, k -> new TreeSet<>(new CompareBySequence())).add(content);
+        }
+        contentByPopularity.add(content);
+        int creatorId = users.idOf(content.getCreatorsUsername());
+        createdBy(creatorId).add(content);
+        homeTimelines.publish(creatorId, content);
+        engagement.addContent(creatorId, content.getNumberOfLikes(), content.getNumberOfComments());
+        trendingTags.record(content.getTags(), content.getPublicationDate());
+        searchIndex.add(content);
+        for (String mention : content.getMentions()) {
+            if (mentionCounter != null) {
+                mentionCounter.increment(mention.substring(1));
+            }
+            engagement.addMention(mention.substring(1));
+        }
+        long deadline = content.getExpirationDate().atZone(clock.getZone()).toEpochSecond();
+        expiryQueue.schedule(content, deadline);
+        timeIndex.add(content);
+    }
+
+    /**
+     * Validates a follow or unfollow call and returns the ids of the follower and the followee.
+     */
+    private int[] followIds(String username, String followee) {
+        expireContent();
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (followee == null) {
+            throw new IllegalArgumentException("Followee cannot be null!");
+        } else if (username.equals(followee)) {
+            throw new IllegalArgumentException("Users cannot follow themselves!");
+        }
+        int userId = users.idOf(username);
+        int followeeId = users.idOf(followee);
+        if (userId == UserDictionary.NOT_FOUND || followeeId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        return new int[] {userId, followeeId};
+    }
+
+    private boolean isLive(AbstractContent content) {
+        return contents.get(content.getId()) == content;
+    }
+
+    private static void validateInterval(LocalDateTime from, LocalDateTime to) {
+        if (from == null) {
+            throw new IllegalArgumentException("From cannot be null!");
+        } else if (to == null) {
+            throw new IllegalArgumentException("To cannot be null!");
+        } else if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The interval cannot end before it starts!");
+        }
+    }
+
+    /**
+     * Returns the epoch second, as the content keeps its publication date, which contains {@code from}.
+     */
+    private static long startSecondOf(LocalDateTime from) {
+        return from.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the first epoch second, as the content keeps its publication date, which is not before {@code to}.
+     */
+    private static long endSecondOf(LocalDateTime to) {
+        return to.toEpochSecond(ZoneOffset.UTC) + (to.getNano() > 0 ? 1 : 0);
+    }
+
+    private static boolean isPublishedWithin(AbstractContent content, LocalDateTime from, LocalDateTime to) {
+        return compareWith(content, from) >= 0 && compareWith(content, to) < 0;
+    }
+
+    private static int compareWith(AbstractContent content, LocalDateTime moment) {
+        int seconds = Long.compare(content.getPublishedEpochSecond(), moment.toEpochSecond(ZoneOffset.UTC));
+        return seconds != 0 ? seconds : Integer.compare(content.getPublishedNano(), moment.getNano());
+    }
+
+    /**
+     * Takes up to {@code pageSize} content published before {@code watermark} from {@code iterator} and looks
+     * one item further to find out whether there is a next page.
+     */
+    private ContentPage page(Iterator<AbstractContent> iterator, int pageSize, PageCursor.Kind kind, int scope,
+                             long watermark) {
+        List<Content> page = new ArrayList<>(Math.min(pageSize, MAX_PREALLOCATED_PAGE_SIZE));
+        AbstractContent last = null;
+        while (iterator.hasNext()) {
+            AbstractContent content = iterator.next();
+            if (content.getSequence() >= watermark) {
+                continue;
+            }
+            if (page.size() == pageSize) {
+                String next = PageCursor.after(kind, scope, watermark, last).encode();
+                return new ContentPage(Collections.unmodifiableList(page), next);
+            }
+            page.add(content);
+            last = content;
+        }
+        return new ContentPage(Collections.unmodifiableList(page), null);
+    }
+
+    private void expireContent() {
+        long now = Math.floorDiv(clock.millis(), 1000);
+        if (now >= nextTimeIndexDrop) {
+            timeIndex.dropBefore(LocalDateTime.now(clock).minus(TIME_INDEX_RETENTION).toEpochSecond(ZoneOffset.UTC));
+            nextTimeIndexDrop = now + TIME_SEGMENT_SECONDS;
+        }
+        retire(expiryQueue.pollExpired(now));
+    }
+
+    private void retire(List<AbstractContent> expired) {
+        for (AbstractContent content : expired) {
+            if (contents.remove(content.getId()) == null) {
+                continue;
+            }
+            contentBytes.add(-content.getFootprint().getTotal());
+            for (String tag : content.getTags()) {
+                Set<AbstractContent> tagged = contentByTag.get(tag);
+                if (tagged != null && tagged.remove(content) && tagged.isEmpty()) {
+                    contentByTag.remove(tag);
+                }
+            }
+            contentByPopularity.remove(content);
+            int creatorId = users.idOf(content.getCreatorsUsername());
+            createdBy(creatorId).remove(content);
+            engagement.removeContent(creatorId, content.getNumberOfLikes(), content.getNumberOfComments());
+            if (content.getLifetime().compareTo(DROPPED_WITH_TIME_SEGMENT) < 0) {
+                timeIndex.remove(content);
+            }
+            searchIndex.remove(content);
+            for (String mention : content.getMentions()) {
+                if (mentionCounter != null) {
+                    mentionCounter.decrement(mention.substring(1));
+                }
+                engagement.removeMention(mention.substring(1));
+            }
+        }
+    }
+
+    /**
+     * A stand-in with a given sort key, used to seek in the content indexes when resuming from a cursor.
+     */
+    private static final class Probe extends Post {
+
+        private final int popularity;
+
+        private Probe(long sequence, LocalDateTime publishedOn, int popularity) {
+            super("", "", publishedOn, sequence);
+            this.popularity = popularity;
+        }
+
+        @Override
+        public int getNumberOfLikes() {
+            return popularity;
+        }
+
+        @Override
+        public int getNumberOfComments() {
+            return 0;
+        }
+    }
+
+    /**
+     * Applies journal records to the engine without validating or journaling them again.
+     * Likes and comments on content which has expired in the meantime are skipped.
+     */
+    private class JournalReplayer implements JournalHandler {
+
+        @Override
+        public void onRegister(String username) {
+            if (!users.contains(username)) {
+                addUser(username);
+            }
+        }
+
+        @Override
+        public void onPost(String username, LocalDateTime publishedOn, String description, long sequence) {
+            expireContent();
+            int userId = users.idOf(username);
+            Post post = new Post(users.usernameOf(userId), description, publishedOn, sequence);
+            nextSequence.accumulateAndGet(sequence + 1, Math::max);
+            index(post);
+            activityOf(userId).addPost(publishedOn, post.getId());
+        }
+
+        @Override
+        public void onStory(String username, LocalDateTime publishedOn, String description, long sequence) {
+            expireContent();
+            int userId = users.idOf(username);
+            Story story = new Story(users.usernameOf(userId), description, publishedOn, sequence);
+            nextSequence.accumulateAndGet(sequence + 1, Math::max);
+            index(story);
+            activityOf(userId).addStory(publishedOn, story.getId());
+        }
+
+        @Override
+        public void onLike(String username, String id, LocalDateTime likedOn) {
+            expireContent();
+            AbstractContent content = contents.get(id);
+            int userId = users.idOf(username);
+            if (content != null && !content.hasLiked(userId)) {
+                addLike(userId, content, likedOn);
+            } else {
+                activityOf(userId).addLike(likedOn, id);
+            }
+        }
+
+        @Override
+        public void onComment(String username, String text, String id, LocalDateTime commentedOn) {
+            expireContent();
+            AbstractContent content = contents.get(id);
+            int userId = users.idOf(username);
+            if (content != null) {
+                addComment(userId, content, text, commentedOn);
+            } else {
+                activityOf(userId).addComment(commentedOn, id, text);
+            }
+        }
+
+        @Override
+        public void onFollow(String follower, String followee) {
+            int followeeId = users.idOf(followee);
+            homeTimelines.follow(users.idOf(follower), followeeId,
+                    createdBy(followeeId).descendingIterator());
+        }
+
+        @Override
+        public void onUnfollow(String follower, String followee) {
+            homeTimelines.unfollow(users.idOf(follower), users.idOf(followee));
+        }
+    }
+
+    /**
+     * Rebuilds the state stored in a snapshot. Content which has expired since is retired on the next call.
+     */
+    private class SnapshotLoader implements SnapshotHandler {
+
+        @Override
+        public void onStart(long sequence) {
+            nextSequence.accumulateAndGet(sequence, Math::max);
+        }
+
+        @Override
+        public void onUser(String username) {
+            addUser(username);
+        }
+
+        @Override
+        public void onActivity(int userId, ActivityType type, long epochSecond, String id, String text) {
+            activityOf(userId).add(type, epochSecond, id, text);
+        }
+
+        @Override
+        public void onContent(boolean story, int creatorId, LocalDateTime publishedOn, String description,
+                              long sequence, int[] likedBy, int[] commenterIds, String[] commentTexts) {
+            String creator = users.usernameOf(creatorId);
+            AbstractContent content = story ? new Story(creator, description, publishedOn, sequence)
+                    : new Post(creator, description, publishedOn, sequence);
+            for (int userId : likedBy) {
+                content.like(userId);
+            }
+            for (int i = 0; i < commenterIds.length; i++) {
+                content.comment(users.usernameOf(commenterIds[i]), commentTexts[i]);
+            }
+            index(content);
+        }
+
+        @Override
+        public void onFollow(int followerId, int followeeId) {
+            homeTimelines.follow(followerId, followeeId, createdBy(followeeId).descendingIterator());
+        }
     }
 }
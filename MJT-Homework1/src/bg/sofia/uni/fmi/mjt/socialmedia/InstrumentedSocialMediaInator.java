@@ -0,0 +1,286 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.util.List;
+import java.util.Collection;
+import java.time.LocalDateTime;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.GaugeSource;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MethodMetrics;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsRegistry;
+
+/**
+ * Wraps any {@link SocialMediaInator} and records the latency and the exceptions of every call to it.
+ * -> Each method has its own {@link MethodMetrics}, resolved once here, so a call only adds two
+ * {@link System#nanoTime()} reads and a few lock-free increments
+ * -> If the wrapped engine is a {@link GaugeSource}, its internal sizes are registered as gauges as well
+ * -> The metrics are pulled through {@link #getMetrics()} or dumped by a
+ * {@link bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsReporter}
+ */
+public class InstrumentedSocialMediaInator implements SocialMediaInator {
+
+    private final SocialMediaInator delegate;
+    private final MetricsRegistry registry;
+    private final MethodMetrics registerMetrics;
+    private final MethodMetrics publishPostMetrics;
+    private final MethodMetrics publishStoryMetrics;
+    private final MethodMetrics likeMetrics;
+    private final MethodMetrics commentMetrics;
+    private final MethodMetrics hasLikedMetrics;
+    private final MethodMetrics getNMostPopularContentMetrics;
+    private final MethodMetrics getNMostRecentContentMetrics;
+    private final MethodMetrics getMostPopularUserMetrics;
+    private final MethodMetrics findContentByTagMetrics;
+    private final MethodMetrics getActivityLogMetrics;
+    private final MethodMetrics followMetrics;
+    private final MethodMetrics unfollowMetrics;
+    private final MethodMetrics getHomeFeedMetrics;
+    private final MethodMetrics getUserStatsMetrics;
+    private final MethodMetrics getTopUsersByEngagementMetrics;
+
+    public InstrumentedSocialMediaInator(SocialMediaInator delegate) {
+        this(delegate, new MetricsRegistry());
+    }
+
+    public InstrumentedSocialMediaInator(SocialMediaInator delegate, MetricsRegistry registry) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate cannot be null!");
+        } else if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null!");
+        }
+        this.delegate = delegate;
+        this.registry = registry;
+        registerMetrics = registry.method("register");
+        publishPostMetrics = registry.method("publishPost");
+        publishStoryMetrics = registry.method("publishStory");
+        likeMetrics = registry.method("like");
+        commentMetrics = registry.method("comment");
+        hasLikedMetrics = registry.method("hasLiked");
+        getNMostPopularContentMetrics = registry.method("getNMostPopularContent");
+        getNMostRecentContentMetrics = registry.method("getNMostRecentContent");
+        getMostPopularUserMetrics = registry.method("getMostPopularUser");
+        findContentByTagMetrics = registry.method("findContentByTag");
+        getActivityLogMetrics = registry.method("getActivityLog");
+        followMetrics = registry.method("follow");
+        unfollowMetrics = registry.method("unfollow");
+        getHomeFeedMetrics = registry.method("getHomeFeed");
+        getUserStatsMetrics = registry.method("getUserStats");
+        getTopUsersByEngagementMetrics = registry.method("getTopUsersByEngagement");
+        if (delegate instanceof GaugeSource) {
+            ((GaugeSource) delegate).registerGauges(registry);
+        }
+    }
+
+    public MetricsRegistry getMetrics() {
+        return registry;
+    }
+
+    @Override
+    public void register(String username) {
+        long start = System.nanoTime();
+        try {
+            delegate.register(username);
+        } catch (RuntimeException e) {
+            registerMetrics.recordException(e);
+            throw e;
+        } finally {
+            registerMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String publishPost(String username, LocalDateTime publishedOn, String description) {
+        long start = System.nanoTime();
+        try {
+            return delegate.publishPost(username, publishedOn, description);
+        } catch (RuntimeException e) {
+            publishPostMetrics.recordException(e);
+            throw e;
+        } finally {
+            publishPostMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String publishStory(String username, LocalDateTime publishedOn, String description) {
+        long start = System.nanoTime();
+        try {
+            return delegate.publishStory(username, publishedOn, description);
+        } catch (RuntimeException e) {
+            publishStoryMetrics.recordException(e);
+            throw e;
+        } finally {
+            publishStoryMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void like(String username, String id) {
+        long start = System.nanoTime();
+        try {
+            delegate.like(username, id);
+        } catch (RuntimeException e) {
+            likeMetrics.recordException(e);
+            throw e;
+        } finally {
+            likeMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void comment(String username, String text, String id) {
+        long start = System.nanoTime();
+        try {
+            delegate.comment(username, text, id);
+        } catch (RuntimeException e) {
+            commentMetrics.recordException(e);
+            throw e;
+        } finally {
+            commentMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean hasLiked(String username, String id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.hasLiked(username, id);
+        } catch (RuntimeException e) {
+            hasLikedMetrics.recordException(e);
+            throw e;
+        } finally {
+            hasLikedMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Collection<Content> getNMostPopularContent(int n) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNMostPopularContent(n);
+        } catch (RuntimeException e) {
+            getNMostPopularContentMetrics.recordException(e);
+            throw e;
+        } finally {
+            getNMostPopularContentMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Collection<Content> getNMostRecentContent(String username, int n) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNMostRecentContent(username, n);
+        } catch (RuntimeException e) {
+            getNMostRecentContentMetrics.recordException(e);
+            throw e;
+        } finally {
+            getNMostRecentContentMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getMostPopularUser() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getMostPopularUser();
+        } catch (RuntimeException e) {
+            getMostPopularUserMetrics.recordException(e);
+            throw e;
+        } finally {
+            getMostPopularUserMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Collection<Content> findContentByTag(String tag) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findContentByTag(tag);
+        } catch (RuntimeException e) {
+            findContentByTagMetrics.recordException(e);
+            throw e;
+        } finally {
+            findContentByTagMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<String> getActivityLog(String username) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getActivityLog(username);
+        } catch (RuntimeException e) {
+            getActivityLogMetrics.recordException(e);
+            throw e;
+        } finally {
+            getActivityLogMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void follow(String username, String followee) {
+        long start = System.nanoTime();
+        try {
+            delegate.follow(username, followee);
+        } catch (RuntimeException e) {
+            followMetrics.recordException(e);
+            throw e;
+        } finally {
+            followMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void unfollow(String username, String followee) {
+        long start = System.nanoTime();
+        try {
+            delegate.unfollow(username, followee);
+        } catch (RuntimeException e) {
+            unfollowMetrics.recordException(e);
+            throw e;
+        } finally {
+            unfollowMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Collection<Content> getHomeFeed(String username, int n) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHomeFeed(username, n);
+        } catch (RuntimeException e) {
+            getHomeFeedMetrics.recordException(e);
+            throw e;
+        } finally {
+            getHomeFeedMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public UserStats getUserStats(String username) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUserStats(username);
+        } catch (RuntimeException e) {
+            getUserStatsMetrics.recordException(e);
+            throw e;
+        } finally {
+            getUserStatsMetrics.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<UserStats> getTopUsersByEngagement(int k) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTopUsersByEngagement(k);
+        } catch (RuntimeException e) {
+            getTopUsersByEngagementMetrics.recordException(e);
+            throw e;
+        } finally {
+            getTopUsersByEngagementMetrics.record(System.nanoTime() - start);
+        }
+    }
+}
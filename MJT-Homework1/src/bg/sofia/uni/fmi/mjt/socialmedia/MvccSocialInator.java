@@ -0,0 +1,603 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.util.List;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Collections;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.ContentVersion;
+import bg.sofia.uni.fmi.mjt.socialmedia.feed.FeedMerger;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityLog;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.ExpiryQueue;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.UserDictionary;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.PersistentSortedMap;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.ContentNotFoundException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+
+/**
+ * A {@link SocialMediaInator} whose queries run on immutable versions of the state (multi-version concurrency
+ * control), so they never block writers, never block on writers and never see a half-applied write.
+ * -> Writes are serialized and applied to an {@link EvilSocialInator}, which validates them and keeps the
+ * activity logs; every write then publishes a new {@link Version} of the query indexes
+ * -> The indexes are {@link PersistentSortedMap}s, so a new version copies only the paths to the changed entries
+ * and shares the rest with the previous version
+ * -> Content is exposed as {@link ContentVersion}s, whose like and comment counts are those of their version
+ * -> {@link #pin()} returns a {@link View} of the latest version with one volatile read; all queries on a view
+ * are consistent with each other, however long the view is kept
+ * -> The activity logs are append-only, so a version only records how many entries every log had
+ * -> A version holds the follow graph, and a home feed is merged on read from the creator indexes of the
+ * followed users in the pinned version, so it is consistent with the other queries of the view; pushing
+ * every publication into timelines instead would copy a path per follower on every write
+ * -> Only the versions hold the follow graph; follows are not applied to the engine, so it keeps no fan-out
+ * timelines which its publications would have to update
+ * -> Expired content is retired by the writers and, when no write comes, by a task scheduled for the earliest
+ * expiry on a shared daemon thread, which takes the write lock like any writer; until then views filter it
+ * out, so queries never take a lock and never change the state
+ * -> The engagement of users is not versioned: it is read from the striped counters of the engine without
+ * pinning a version or taking the write lock
+ */
+public class MvccSocialInator implements SocialMediaInator {
+
+    private static final long EXPIRY_GRANULARITY_SECONDS = 60;
+    private static final ScheduledExecutorService RETIRER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "mvcc-retirer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Comparator<String> BY_HASH = Comparator.comparingInt(String::hashCode)
+            .thenComparing(Comparator.naturalOrder());
+    private static final Comparator<ContentVersion> BY_POPULARITY = Comparator
+            .comparingInt(ContentVersion::getPopularity).reversed()
+            .thenComparingLong(ContentVersion::getSequence);
+    private static final Comparator<ContentVersion> BY_SEQUENCE = Comparator
+            .comparingLong(ContentVersion::getSequence);
+    private static final Comparator<ContentVersion> BY_PUBLICATION = Comparator
+            .comparingLong((ContentVersion version) -> version.getSource().getPublishedEpochSecond())
+            .thenComparingInt(version -> version.getSource().getPublishedNano())
+            .thenComparingLong(ContentVersion::getSequence);
+
+    private final Clock clock;
+    private final EvilSocialInator engine;
+    private final ReentrantLock writeLock;
+    private final ExpiryQueue<String> expiryQueue;
+    private volatile Version current;
+    private long retirementDueAt;
+
+    public MvccSocialInator() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public MvccSocialInator(Clock clock) {
+        this.clock = clock;
+        this.engine = new EvilSocialInator(clock);
+        this.writeLock = new ReentrantLock();
+        this.expiryQueue = new ExpiryQueue<>(EXPIRY_GRANULARITY_SECONDS);
+        this.current = new Version();
+        this.retirementDueAt = Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns a consistent, immutable view of the latest version, in which expired content is filtered out.
+     */
+    public View pin() {
+        return new View(current, Math.floorDiv(clock.millis(), 1000));
+    }
+
+    @Override
+    public void register(String username) {
+        writeLock.lock();
+        try {
+            engine.register(username);
+            Version next = current.copy();
+            int userId = next.userIds.size();
+            next.userIds = next.userIds.put(username, userId);
+            next.ranking = next.ranking.put(rankOf(mentionsOf(next, username), userId), username);
+            next.activity = next.activity.put(username, new LogPosition(engine.activityLogOf(username)));
+            current = next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String publishPost(String username, LocalDateTime publishedOn, String description) {
+        writeLock.lock();
+        try {
+            String id = engine.publishPost(username, publishedOn, description);
+            publishContent(username, id);
+            return id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String publishStory(String username, LocalDateTime publishedOn, String description) {
+        writeLock.lock();
+        try {
+            String id = engine.publishStory(username, publishedOn, description);
+            publishContent(username, id);
+            return id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void like(String username, String id) {
+        writeLock.lock();
+        try {
+            engine.like(username, id);
+            publishInteraction(username, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void comment(String username, String text, String id) {
+        writeLock.lock();
+        try {
+            engine.comment(username, text, id);
+            publishInteraction(username, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasLiked(String username, String id) {
+        return pin().hasLiked(username, id);
+    }
+
+    @Override
+    public Collection<Content> getNMostPopularContent(int n) {
+        return pin().getNMostPopularContent(n);
+    }
+
+    @Override
+    public Collection<Content> getNMostRecentContent(String username, int n) {
+        return pin().getNMostRecentContent(username, n);
+    }
+
+    @Override
+    public String getMostPopularUser() {
+        return pin().getMostPopularUser();
+    }
+
+    @Override
+    public Collection<Content> findContentByTag(String tag) {
+        return pin().findContentByTag(tag);
+    }
+
+    @Override
+    public List<String> getActivityLog(String username) {
+        return pin().getActivityLog(username);
+    }
+
+    @Override
+    public void follow(String username, String followee) {
+        writeLock.lock();
+        try {
+            checkFollow(username, followee);
+            Version next = current.copy();
+            PersistentSortedMap<String, String> followed = next.following.get(username);
+            if (followed == null) {
+                followed = PersistentSortedMap.empty(BY_HASH);
+            }
+            next.following = next.following.put(username, followed.put(followee, followee));
+            current = next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void unfollow(String username, String followee) {
+        writeLock.lock();
+        try {
+            checkFollow(username, followee);
+            PersistentSortedMap<String, String> followed = current.following.get(username);
+            if (followed == null || followed.get(followee) == null) {
+                return;
+            }
+            Version next = current.copy();
+            followed = followed.remove(followee);
+            next.following = followed.isEmpty() ? next.following.remove(username)
+                    : next.following.put(username, followed);
+            current = next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<Content> getHomeFeed(String username, int n) {
+        return pin().getHomeFeed(username, n);
+    }
+
+    @Override
+    public UserStats getUserStats(String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        int userId = engine.userIdOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        return engine.getEngagementRollup().statsOf(userId, engine.usernameOf(userId));
+    }
+
+    @Override
+    public List<UserStats> getTopUsersByEngagement(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be negative!");
+        }
+        return engine.getEngagementRollup().topByEngagement(k, engine::usernameOf);
+    }
+
+    /**
+     * Retires the content which has expired by now in the versions and in the engine, then schedules the next
+     * retirement. Runs on the retirer thread.
+     */
+    private void retireExpired() {
+        writeLock.lock();
+        try {
+            retirementDueAt = Long.MAX_VALUE;
+            engine.retireExpired();
+            expire(Math.floorDiv(clock.millis(), 1000));
+            scheduleRetirement(expiryQueue.nextDeadline());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes sure a retirement runs by {@code deadline}, in epoch seconds. Called with the write lock held.
+     * The task only holds the engine weakly, so a pending retirement does not keep a dropped engine alive.
+     */
+    private void scheduleRetirement(long deadline) {
+        if (deadline >= retirementDueAt) {
+            return;
+        }
+        retirementDueAt = deadline;
+        WeakReference<MvccSocialInator> reference = new WeakReference<>(this);
+        RETIRER.schedule(() -> {
+            MvccSocialInator socialMedia = reference.get();
+            if (socialMedia != null) {
+                socialMedia.retireExpired();
+            }
+        }, Math.max(0, deadline * 1000 - clock.millis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void checkFollow(String username, String followee) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (followee == null) {
+            throw new IllegalArgumentException("Followee cannot be null!");
+        } else if (username.equals(followee)) {
+            throw new IllegalArgumentException("Users cannot follow themselves!");
+        } else if (current.userIds.get(username) == null || current.userIds.get(followee) == null) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+    }
+
+    private void publishContent(String username, String id) {
+        long now = Math.floorDiv(clock.millis(), 1000);
+        expire(now);
+        AbstractContent content = engine.contentOf(id);
+        long expiresAt = content.getExpirationDate().atZone(clock.getZone()).toEpochSecond();
+        Version next = current.copy();
+        add(next, new ContentVersion(content, expiresAt));
+        for (String mention : content.getMentions()) {
+            changeMentions(next, mention.substring(1), 1);
+        }
+        next.activity = next.activity.put(username, new LogPosition(engine.activityLogOf(username)));
+        expiryQueue.schedule(id, expiresAt);
+        scheduleRetirement(expiresAt);
+        current = next;
+    }
+
+    private void publishInteraction(String username, String id) {
+        expire(Math.floorDiv(clock.millis(), 1000));
+        Version next = current.copy();
+        ContentVersion old = next.contentById.get(id);
+        AbstractContent content = engine.contentOf(id);
+        if (old != null && content != null) {
+            replace(next, old, new ContentVersion(content, old.getExpiresAt()));
+        }
+        next.activity = next.activity.put(username, new LogPosition(engine.activityLogOf(username)));
+        current = next;
+    }
+
+    private void expire(long now) {
+        List<String> expired = expiryQueue.pollExpired(now);
+        if (expired.isEmpty()) {
+            return;
+        }
+        Version next = current.copy();
+        for (String id : expired) {
+            ContentVersion version = next.contentById.get(id);
+            if (version != null) {
+                remove(next, version);
+                for (String mention : version.getMentions()) {
+                    changeMentions(next, mention.substring(1), -1);
+                }
+            }
+        }
+        current = next;
+    }
+
+    private static void add(Version next, ContentVersion version) {
+        next.contentById = next.contentById.put(version.getId(), version);
+        next.byPopularity = next.byPopularity.put(version, version);
+        for (String tag : version.getTags()) {
+            PersistentSortedMap<ContentVersion, ContentVersion> tagged = next.byTag.get(tag);
+            if (tagged == null) {
+                tagged = PersistentSortedMap.empty(BY_SEQUENCE);
+            }
+            next.byTag = next.byTag.put(tag, tagged.put(version, version));
+        }
+        String creator = version.getSource().getCreatorsUsername();
+        PersistentSortedMap<ContentVersion, ContentVersion> created = next.byCreator.get(creator);
+        if (created == null) {
+            created = PersistentSortedMap.empty(BY_PUBLICATION);
+        }
+        next.byCreator = next.byCreator.put(creator, created.put(version, version));
+    }
+
+    /**
+     * Only the popularity of a content item changes, so it is the only index in which the item moves; in the
+     * others the new version takes the place of the old one.
+     */
+    private static void replace(Version next, ContentVersion old, ContentVersion updated) {
+        next.contentById = next.contentById.put(updated.getId(), updated);
+        next.byPopularity = next.byPopularity.remove(old).put(updated, updated);
+        for (String tag : updated.getTags()) {
+            next.byTag = next.byTag.put(tag, next.byTag.get(tag).put(updated, updated));
+        }
+        String creator = updated.getSource().getCreatorsUsername();
+        next.byCreator = next.byCreator.put(creator, next.byCreator.get(creator).put(updated, updated));
+    }
+
+    private static void remove(Version next, ContentVersion version) {
+        next.contentById = next.contentById.remove(version.getId());
+        next.byPopularity = next.byPopularity.remove(version);
+        for (String tag : version.getTags()) {
+            PersistentSortedMap<ContentVersion, ContentVersion> tagged = next.byTag.get(tag);
+            if (tagged != null) {
+                tagged = tagged.remove(version);
+                next.byTag = tagged.isEmpty() ? next.byTag.remove(tag) : next.byTag.put(tag, tagged);
+            }
+        }
+        String creator = version.getSource().getCreatorsUsername();
+        PersistentSortedMap<ContentVersion, ContentVersion> created = next.byCreator.get(creator);
+        if (created != null) {
+            next.byCreator = next.byCreator.put(creator, created.remove(version));
+        }
+    }
+
+    private static void changeMentions(Version next, String username, int delta) {
+        int before = mentionsOf(next, username);
+        int after = before + delta;
+        next.mentions = after == 0 ? next.mentions.remove(username) : next.mentions.put(username, after);
+        Integer userId = next.userIds.get(username);
+        if (userId != null) {
+            next.ranking = next.ranking.remove(rankOf(before, userId)).put(rankOf(after, userId), username);
+        }
+    }
+
+    private static int mentionsOf(Version version, String username) {
+        Integer mentions = version.mentions.get(username);
+        return mentions == null ? 0 : mentions;
+    }
+
+    /**
+     * Orders users by mentions and then by registration, so the greatest key is the most mentioned user who
+     * registered first.
+     */
+    private static long rankOf(int mentions, int userId) {
+        return ((long) mentions << Integer.SIZE) | (Integer.MAX_VALUE - userId);
+    }
+
+    /**
+     * The state of the query indexes after one write. A version is only modified by the writer before it is
+     * published and never afterwards.
+     */
+    private static final class Version {
+
+        private PersistentSortedMap<String, ContentVersion> contentById;
+        private PersistentSortedMap<ContentVersion, ContentVersion> byPopularity;
+        private PersistentSortedMap<String, PersistentSortedMap<ContentVersion, ContentVersion>> byTag;
+        private PersistentSortedMap<String, PersistentSortedMap<ContentVersion, ContentVersion>> byCreator;
+        private PersistentSortedMap<String, Integer> userIds;
+        private PersistentSortedMap<String, Integer> mentions;
+        private PersistentSortedMap<Long, String> ranking;
+        private PersistentSortedMap<String, LogPosition> activity;
+        private PersistentSortedMap<String, PersistentSortedMap<String, String>> following;
+
+        private Version() {
+            contentById = PersistentSortedMap.empty(BY_HASH);
+            byPopularity = PersistentSortedMap.empty(BY_POPULARITY);
+            byTag = PersistentSortedMap.empty(BY_HASH);
+            byCreator = PersistentSortedMap.empty(BY_HASH);
+            userIds = PersistentSortedMap.empty(BY_HASH);
+            mentions = PersistentSortedMap.empty(BY_HASH);
+            ranking = PersistentSortedMap.empty(Comparator.naturalOrder());
+            activity = PersistentSortedMap.empty(BY_HASH);
+            following = PersistentSortedMap.empty(BY_HASH);
+        }
+
+        private Version(Version source) {
+            contentById = source.contentById;
+            byPopularity = source.byPopularity;
+            byTag = source.byTag;
+            byCreator = source.byCreator;
+            userIds = source.userIds;
+            mentions = source.mentions;
+            ranking = source.ranking;
+            activity = source.activity;
+            following = source.following;
+        }
+
+        private Version copy() {
+            return new Version(this);
+        }
+    }
+
+    /**
+     * An activity log together with the number of its entries in a version.
+     */
+    private static final class LogPosition {
+
+        private final ActivityLog log;
+        private final int count;
+
+        private LogPosition(ActivityLog log) {
+            this.log = log;
+            this.count = log.size();
+        }
+    }
+
+    /**
+     * A pinned version of the state. Its queries behave like those of {@link SocialMediaInator}, as of the moment
+     * it was pinned: content which expired by then is left out and later writes are not seen.
+     * -> Who liked a content item is not versioned, so {@link #hasLiked(String, String)} sees the latest likes
+     * of the content items in the view
+     */
+    public static final class View {
+
+        private final Version version;
+        private final long now;
+
+        private View(Version version, long now) {
+            this.version = version;
+            this.now = now;
+        }
+
+        public boolean hasLiked(String username, String id) {
+            if (username == null) {
+                throw new IllegalArgumentException("Username cannot be null!");
+            } else if (id == null) {
+                throw new IllegalArgumentException("Id cannot be null!");
+            }
+            Integer userId = version.userIds.get(username);
+            if (userId == null) {
+                throw new UsernameNotFoundException("There is no user with this username in the platform!");
+            }
+            ContentVersion content = version.contentById.get(id);
+            if (content == null || !content.isActive(now)) {
+                throw new ContentNotFoundException("There is no content with this id in the platform!");
+            }
+            return content.getSource().hasLiked(userId);
+        }
+
+        public Collection<Content> getNMostPopularContent(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("N cannot be negative number");
+            }
+            return first(version.byPopularity.values(false), n);
+        }
+
+        public Collection<Content> getNMostRecentContent(String username, int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("N cannot be negative!");
+            } else if (username == null) {
+                throw new IllegalArgumentException("Username cannot be null");
+            }
+            if (version.userIds.get(username) == null) {
+                throw new UsernameNotFoundException("There is no user with this username in the platform!");
+            }
+            PersistentSortedMap<ContentVersion, ContentVersion> created = version.byCreator.get(username);
+            if (created == null) {
+                return Collections.emptyList();
+            }
+            return first(created.values(true), n);
+        }
+
+        /**
+         * Ties are resolved in favour of the user who registered first.
+         */
+        public String getMostPopularUser() {
+            if (version.userIds.isEmpty()) {
+                throw new NoUsersException("There are no users in the platform.");
+            }
+            String mostPopular = version.ranking.lastValue();
+            return mentionsOf(version, mostPopular) == 0 ? "" : mostPopular;
+        }
+
+        public Collection<Content> findContentByTag(String tag) {
+            if (tag == null) {
+                throw new IllegalArgumentException("Tag cannot be null");
+            } else if (!tag.startsWith("#")) {
+                throw new IllegalArgumentException("Tag should start with #");
+            }
+            PersistentSortedMap<ContentVersion, ContentVersion> tagged = version.byTag.get(tag);
+            if (tagged == null) {
+                return Collections.emptyList();
+            }
+            return first(tagged.values(false), Integer.MAX_VALUE);
+        }
+
+        public List<String> getActivityLog(String username) {
+            if (username == null) {
+                throw new IllegalArgumentException("Username cannot be null!");
+            }
+            LogPosition position = version.activity.get(username);
+            if (position == null) {
+                throw new UsernameNotFoundException("There is no user with this username in the platform");
+            }
+            return position.log.newestFirst(position.count);
+        }
+
+        public Collection<Content> getHomeFeed(String username, int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("N cannot be negative!");
+            } else if (username == null) {
+                throw new IllegalArgumentException("Username cannot be null");
+            }
+            if (version.userIds.get(username) == null) {
+                throw new UsernameNotFoundException("There is no user with this username in the platform!");
+            }
+            PersistentSortedMap<String, String> followed = version.following.get(username);
+            if (followed == null) {
+                return Collections.emptyList();
+            }
+            List<Iterator<ContentVersion>> sources = new ArrayList<>(followed.size());
+            Iterator<String> followees = followed.values(false);
+            while (followees.hasNext()) {
+                PersistentSortedMap<ContentVersion, ContentVersion> created = version.byCreator.get(followees.next());
+                if (created != null) {
+                    sources.add(created.values(true));
+                }
+            }
+            List<Content> feed = new ArrayList<>(FeedMerger.merge(sources, BY_PUBLICATION.reversed(), n,
+                    content -> content.isActive(now)));
+            return Collections.unmodifiableList(feed);
+        }
+
+        private Collection<Content> first(Iterator<ContentVersion> iterator, int n) {
+            List<Content> result = new ArrayList<>();
+            while (iterator.hasNext() && result.size() < n) {
+                ContentVersion content = iterator.next();
+                if (content.isActive(now)) {
+                    result.add(content);
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.nio.ByteBuffer;
+import java.time.ZoneOffset;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+
+/**
+ * The position of a paged content query after its last returned item, encoded as an opaque URL-safe string.
+ * -> The watermark is the sequence the next content would have got when the first page was served; content
+ * published later is left out of every following page
+ * -> The sort key of the last item (its sequence and its popularity or publication date) is stored instead of
+ * its id, so the next page starts right after it even if the item has expired in the meantime
+ * -> The kind of the query and a hash of its argument are stored as well, so a cursor is not accepted by
+ * another query
+ * -> The encoded fields end with their CRC32C, so a cursor whose text was changed is rejected; the checksum
+ * catches edits and corruption, it is not a signature against deliberately forged cursors
+ */
+final class PageCursor {
+
+    enum Kind {
+        TAG, POPULAR, RECENT
+    }
+
+    private static final int FIELD_BYTES = Byte.BYTES + Integer.BYTES + 3 * Long.BYTES + Integer.BYTES;
+    private static final int ENCODED_BYTES = FIELD_BYTES + Integer.BYTES;
+
+    private final Kind kind;
+    private final int scope;
+    private final long watermark;
+    private final long sequence;
+    private final long key;
+    private final int nanos;
+
+    private PageCursor(Kind kind, int scope, long watermark, long sequence, long key, int nanos) {
+        this.kind = kind;
+        this.scope = scope;
+        this.watermark = watermark;
+        this.sequence = sequence;
+        this.key = key;
+        this.nanos = nanos;
+    }
+
+    static PageCursor after(Kind kind, int scope, long watermark, AbstractContent last) {
+        switch (kind) {
+            case POPULAR:
+                return new PageCursor(kind, scope, watermark, last.getSequence(),
+                        last.getNumberOfLikes() + last.getNumberOfComments(), 0);
+            case RECENT:
+                return new PageCursor(kind, scope, watermark, last.getSequence(), last.getPublishedEpochSecond(),
+                        last.getPublishedNano());
+            default:
+                return new PageCursor(kind, scope, watermark, last.getSequence(), 0, 0);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If {@code cursor} was not produced by a query of {@code kind} with an
+     *                                  argument hashing to {@code scope}
+     */
+    static PageCursor decode(String cursor, Kind kind, int scope) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor!", e);
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(FIELD_BYTES) != checksumOf(bytes)) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+        byte ordinal = buffer.get();
+        int encodedScope = buffer.getInt();
+        if (ordinal != kind.ordinal() || encodedScope != scope) {
+            throw new IllegalArgumentException("The cursor belongs to another query!");
+        }
+        long watermark = buffer.getLong();
+        long sequence = buffer.getLong();
+        long key = buffer.getLong();
+        int nanos = buffer.getInt();
+        if (sequence < 0 || sequence >= watermark || nanos < 0 || nanos > 999_999_999) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+        PageCursor decoded = new PageCursor(kind, scope, watermark, sequence, key, nanos);
+        if (kind == Kind.RECENT) {
+            try {
+                decoded.getPublicationDate();
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Invalid cursor!", e);
+            }
+        }
+        return decoded;
+    }
+
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES);
+        buffer.put((byte) kind.ordinal())
+                .putInt(scope)
+                .putLong(watermark)
+                .putLong(sequence)
+                .putLong(key)
+                .putInt(nanos);
+        buffer.putInt(checksumOf(buffer.array()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    private static int checksumOf(byte[] encoded) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(encoded, 0, FIELD_BYTES);
+        return (int) checksum.getValue();
+    }
+
+    long getWatermark() {
+        return watermark;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getPopularity() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, key));
+    }
+
+    LocalDateTime getPublicationDate() {
+        return LocalDateTime.ofEpochSecond(key, nanos, ZoneOffset.UTC);
+    }
+}
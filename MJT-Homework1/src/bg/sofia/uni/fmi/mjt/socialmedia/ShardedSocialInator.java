@@ -0,0 +1,454 @@
+package bg.sofia.uni.fmi.mjt.socialmedia;
+
+import java.util.List;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+import bg.sofia.uni.fmi.mjt.socialmedia.feed.HomeTimelines;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.UserDictionary;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityLog;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.EngagementRollup;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+
+/**
+ * A {@link SocialMediaInator} which partitions content across several {@link EvilSocialInator} shards.
+ * -> Content lives in the shard of its creator, chosen by the hash of the username, so publishing and the
+ * most recent content of a user touch a single shard
+ * -> Likes, comments and like checks go to the shard of the content, found from the creator part of its id
+ * -> All shards share one {@link UserDictionary}, so a user is registered once, under the lock of their home
+ * shard only, has one id everywhere and is checked against the same dictionary when acting on content in any
+ * shard
+ * -> The activity of a user is spread over the shards of the content they acted on and is merged by time on read
+ * -> Global queries fan out to all shards in parallel and merge the partial results
+ * -> Every shard is guarded by its own monitor, so operations on different shards run in parallel
+ * -> Follows cross shards, so the follow graph and the home timelines live outside of them; they lock one
+ * timeline at a time and never while a shard is locked, and the recent content of followed celebrities is
+ * copied from their shards after the timeline of the reader has been copied and unlocked
+ * -> All shards count the engagement of users in one {@link EngagementRollup} of striped adders, so reading
+ * the engagement of a user does not merge anything or lock any shard, and updates from different shards do
+ * not contend; the rollup also counts the mentions, so the most popular user is found without asking the
+ * shards; expired content leaves the counts when its shard retires it on its next call
+ */
+public class ShardedSocialInator implements SocialMediaInator, Closeable {
+
+    private final EvilSocialInator[] shards;
+    private final ExecutorService workers;
+    private final UserDictionary users;
+    private final HomeTimelines homeTimelines;
+    private final EngagementRollup engagement;
+    private final Clock clock;
+
+    public ShardedSocialInator(int shardCount) {
+        this(shardCount, Clock.systemDefaultZone());
+    }
+
+    public ShardedSocialInator(int shardCount, Clock clock) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count should be positive!");
+        }
+        AtomicLong nextSequence = new AtomicLong();
+        users = new UserDictionary();
+        engagement = new EngagementRollup(users);
+        shards = new EvilSocialInator[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new EvilSocialInator(clock, nextSequence, users, engagement);
+        }
+        workers = Executors.newFixedThreadPool(shardCount, task -> {
+            Thread thread = new Thread(task, "social-media-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        homeTimelines = new HomeTimelines();
+        this.clock = clock;
+    }
+
+    /**
+     * Registers the user in their home shard only. Registrations of the same username meet in the same shard,
+     * so its lock is enough to accept only one of them.
+     */
+    @Override
+    public void register(String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        EvilSocialInator home = shardOfUser(username);
+        synchronized (home) {
+            home.register(username);
+        }
+    }
+
+    @Override
+    public String publishPost(String username, LocalDateTime publishedOn, String description) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        EvilSocialInator shard = shardOfUser(username);
+        String id;
+        AbstractContent content;
+        synchronized (shard) {
+            id = shard.publishPost(username, publishedOn, description);
+            content = shard.contentOf(id);
+        }
+        fanOut(username, content);
+        return id;
+    }
+
+    @Override
+    public String publishStory(String username, LocalDateTime publishedOn, String description) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        EvilSocialInator shard = shardOfUser(username);
+        String id;
+        AbstractContent content;
+        synchronized (shard) {
+            id = shard.publishStory(username, publishedOn, description);
+            content = shard.contentOf(id);
+        }
+        fanOut(username, content);
+        return id;
+    }
+
+    @Override
+    public void like(String username, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        EvilSocialInator shard = shardOfContent(id);
+        synchronized (shard) {
+            shard.like(username, id);
+        }
+    }
+
+    @Override
+    public boolean hasLiked(String username, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Id cannot be null!");
+        }
+        EvilSocialInator shard = shardOfContent(id);
+        synchronized (shard) {
+            return shard.hasLiked(username, id);
+        }
+    }
+
+    @Override
+    public void comment(String username, String text, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null!");
+        }
+        EvilSocialInator shard = shardOfContent(id);
+        synchronized (shard) {
+            shard.comment(username, text, id);
+        }
+    }
+
+    /**
+     * Takes the {@code n} most popular content of every shard and merges the lists, most popular first.
+     * The popularity of every item is read once, under the lock of its shard, so the merge is consistent
+     * even while the content is being liked.
+     */
+    @Override
+    public Collection<Content> getNMostPopularContent(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative number");
+        }
+        if (n == 0) {
+            return Collections.emptyList();
+        }
+        List<List<RankedContent>> partial = scatter(shard -> {
+            List<RankedContent> ranked = new ArrayList<>();
+            for (Content content : shard.getNMostPopularContent(n)) {
+                ranked.add(new RankedContent((AbstractContent) content));
+            }
+            return ranked;
+        });
+        PriorityQueue<Cursor> heads = new PriorityQueue<>();
+        for (List<RankedContent> ranked : partial) {
+            if (!ranked.isEmpty()) {
+                heads.add(new Cursor(ranked.iterator()));
+            }
+        }
+        List<Content> mostPopular = new ArrayList<>();
+        while (!heads.isEmpty() && mostPopular.size() < n) {
+            Cursor cursor = heads.poll();
+            mostPopular.add(cursor.current.content);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return Collections.unmodifiableList(mostPopular);
+    }
+
+    @Override
+    public Collection<Content> getNMostRecentContent(String username, int n) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        EvilSocialInator shard = shardOfUser(username);
+        synchronized (shard) {
+            return shard.getNMostRecentContent(username, n);
+        }
+    }
+
+    /**
+     * Reads the mentions counted by all shards in the shared rollup, without locking any shard.
+     * Ties are resolved in favour of the user who registered first.
+     */
+    @Override
+    public String getMostPopularUser() {
+        if (users.isEmpty()) {
+            throw new NoUsersException("There are no users in the platform.");
+        }
+        int mostPopular = engagement.getMostMentioned();
+        return mostPopular == UserDictionary.NOT_FOUND ? "" : usernameOf(mostPopular);
+    }
+
+    @Override
+    public Collection<Content> findContentByTag(String tag) {
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag cannot be null");
+        } else if (!tag.startsWith("#")) {
+            throw new IllegalArgumentException("Tag should start with #");
+        }
+        List<Content> tagged = new ArrayList<>();
+        for (Collection<Content> partial : scatter(shard -> shard.findContentByTag(tag))) {
+            tagged.addAll(partial);
+        }
+        return Collections.unmodifiableCollection(tagged);
+    }
+
+    @Override
+    public List<String> getActivityLog(String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        if (!users.contains(username)) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform");
+        }
+        List<ActivityLog> logs = new ArrayList<>(shards.length);
+        for (EvilSocialInator shard : shards) {
+            ActivityLog log;
+            synchronized (shard) {
+                log = shard.activityLogOf(username);
+            }
+            if (log != null && log.size() > 0) {
+                logs.add(log);
+            }
+        }
+        if (logs.isEmpty()) {
+            return Collections.emptyList();
+        } else if (logs.size() == 1) {
+            return logs.get(0).newestFirst();
+        }
+        return ActivityLog.merge(logs).newestFirst();
+    }
+
+    @Override
+    public void follow(String username, String followee) {
+        int[] ids = followIds(username, followee);
+        if (homeTimelines.isFollowing(ids[0], ids[1])) {
+            return;
+        }
+        EvilSocialInator shard = shardOfUser(followee);
+        List<AbstractContent> newest;
+        synchronized (shard) {
+            newest = shard.newestContentOf(ids[1], HomeTimelines.DEFAULT_TIMELINE_CAPACITY);
+        }
+        homeTimelines.follow(ids[0], ids[1], newest.iterator());
+    }
+
+    @Override
+    public void unfollow(String username, String followee) {
+        int[] ids = followIds(username, followee);
+        homeTimelines.unfollow(ids[0], ids[1]);
+    }
+
+    /**
+     * Merges the timeline of the user with the recent content of the followed celebrities, each copied from
+     * the shard of its author under the lock of that shard.
+     */
+    @Override
+    public Collection<Content> getHomeFeed(String username, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("N cannot be negative!");
+        } else if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null");
+        }
+        int userId = userIdOf(username);
+        if (userId == -1) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<AbstractContent> feed = homeTimelines.read(userId, n, followee -> {
+            EvilSocialInator shard = shardOfUser(usernameOf(followee));
+            synchronized (shard) {
+                return shard.newestContentOf(followee, n).iterator();
+            }
+        }, content -> content.isActive(now));
+        return Collections.unmodifiableList(new ArrayList<>(feed));
+    }
+
+    /**
+     * Retires the expired content of the home shard of the user, which holds all of their content, and reads the
+     * shared counters, so the likes, comments and content are counted over live content only. Mentions made in
+     * other shards leave the counts when those shards next retire, so they may still include expired content.
+     */
+    @Override
+    public UserStats getUserStats(String username) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        }
+        int userId = userIdOf(username);
+        if (userId == -1) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        EvilSocialInator home = shardOfUser(username);
+        synchronized (home) {
+            home.retireExpired();
+        }
+        return engagement.statsOf(userId, usernameOf(userId));
+    }
+
+    @Override
+    public List<UserStats> getTopUsersByEngagement(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be negative!");
+        }
+        return engagement.topByEngagement(k, this::usernameOf);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private EvilSocialInator shardOfUser(String username) {
+        return shards[Math.floorMod(username.hashCode(), shards.length)];
+    }
+
+    /**
+     * Content ids are [creator]-[sequence] and sequences have no dashes, so the creator is everything
+     * before the last dash.
+     */
+    private EvilSocialInator shardOfContent(String id) {
+        int dash = id.lastIndexOf('-');
+        return shardOfUser(dash < 0 ? id : id.substring(0, dash));
+    }
+
+    private void fanOut(String username, AbstractContent content) {
+        int creatorId = userIdOf(username);
+        homeTimelines.publish(creatorId, content);
+    }
+
+    private int[] followIds(String username, String followee) {
+        if (username == null) {
+            throw new IllegalArgumentException("Username cannot be null!");
+        } else if (followee == null) {
+            throw new IllegalArgumentException("Followee cannot be null!");
+        } else if (username.equals(followee)) {
+            throw new IllegalArgumentException("Users cannot follow themselves!");
+        }
+        int userId = userIdOf(username);
+        int followeeId = userIdOf(followee);
+        if (userId == -1 || followeeId == -1) {
+            throw new UsernameNotFoundException("There is no user with this username in the platform!");
+        }
+        return new int[] {userId, followeeId};
+    }
+
+    /**
+     * Lookups in the shared user dictionary never lock, so they need no shard monitor.
+     */
+    private int userIdOf(String username) {
+        return users.idOf(username);
+    }
+
+    private String usernameOf(int userId) {
+        return users.usernameOf(userId);
+    }
+
+    /**
+     * Runs {@code query} on every shard in parallel, each under the lock of its shard, and returns the
+     * results in shard order.
+     */
+    private <T> List<T> scatter(Function<EvilSocialInator, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.length);
+        for (EvilSocialInator shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                synchronized (shard) {
+                    return query.apply(shard);
+                }
+            }, workers));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static final class RankedContent {
+
+        private final AbstractContent content;
+        private final int popularity;
+
+        private RankedContent(AbstractContent content) {
+            this.content = content;
+            this.popularity = content.getNumberOfLikes() + content.getNumberOfComments();
+        }
+    }
+
+    /**
+     * The position in the top list of one shard during the merge.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+
+        private final Iterator<RankedContent> iterator;
+        private RankedContent current;
+
+        private Cursor(Iterator<RankedContent> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int popularity = Integer.compare(other.current.popularity, current.popularity);
+            if (popularity != 0) {
+                return popularity;
+            }
+            return Long.compare(current.content.getSequence(), other.current.content.getSequence());
+        }
+    }
+}
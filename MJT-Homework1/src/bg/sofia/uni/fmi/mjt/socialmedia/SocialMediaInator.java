@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.List;
 
 import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
 
 public interface SocialMediaInator {
 
@@ -18,6 +19,8 @@ public interface SocialMediaInator {
 
     void comment(String username, String text, String id);
 
+    boolean hasLiked(String username, String id);
+
     Collection<Content> getNMostPopularContent(int n);
 
     Collection<Content> getNMostRecentContent(String username, int n);
@@ -29,4 +32,14 @@ public interface SocialMediaInator {
 
     List<String> getActivityLog(String username);
 
+    void follow(String username, String followee);
+
+    void unfollow(String username, String followee);
+
+    Collection<Content> getHomeFeed(String username, int n);
+
+    UserStats getUserStats(String username);
+
+    List<UserStats> getTopUsersByEngagement(int k);
+
 }
\ No newline at end of file
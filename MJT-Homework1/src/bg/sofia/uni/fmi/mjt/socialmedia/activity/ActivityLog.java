@@ -0,0 +1,268 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.activity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only log of the activities of a single user.
+ * -> Every activity is kept as a primitive record: its type, its time in epoch seconds and a reference to the
+ * id of the content (plus the text for comments), stored in fixed size chunks of parallel arrays
+ * -> The text form is only built when an entry is read
+ * -> Appends are synchronized, while reads never lock and see every entry appended before they started
+ * -> The logs of an engine can share a counter of the bytes they allocate, so their total size is known without
+ * walking them
+ */
+public class ActivityLog {
+
+    private static final int CHUNK_SIZE = 64;
+    private static final ActivityType[] TYPES = ActivityType.values();
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+
+    private final LongAdder allocatedBytes;
+    private Chunk[] chunks;
+    private volatile int size;
+
+    public ActivityLog() {
+        this(null);
+    }
+
+    /**
+     * Creates a log which adds the size of every array it allocates to {@code allocatedBytes}, unless it is null.
+     */
+    public ActivityLog(LongAdder allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+        chunks = new Chunk[1];
+        size = 0;
+        allocated(ARRAY_HEADER_BYTES + REFERENCE_BYTES);
+    }
+
+    public void addPost(LocalDateTime publishedOn, String id) {
+        append(ActivityType.POST, publishedOn, id, null);
+    }
+
+    public void addStory(LocalDateTime publishedOn, String id) {
+        append(ActivityType.STORY, publishedOn, id, null);
+    }
+
+    public void addLike(LocalDateTime likedOn, String id) {
+        append(ActivityType.LIKE, likedOn, id, null);
+    }
+
+    public void addComment(LocalDateTime commentedOn, String id, String text) {
+        append(ActivityType.COMMENT, commentedOn, id, text);
+    }
+
+    /**
+     * Appends an entry whose time is already given in epoch seconds, e.g. when the log is restored from disk.
+     */
+    public void add(ActivityType type, long epochSecond, String id, String text) {
+        append(type, epochSecond, id, text);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an estimate of the heap used by the entries, not counting the id and text strings they refer to.
+     */
+    public long getSizeInBytes() {
+        int count = size;
+        Chunk[] snapshot = chunks;
+        long bytes = ARRAY_HEADER_BYTES + REFERENCE_BYTES * snapshot.length;
+        for (int i = 0; i * CHUNK_SIZE < count; i++) {
+            bytes += snapshot[i].getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Passes the first {@code count} entries, oldest first, to {@code visitor} in their stored form.
+     */
+    public void forEach(int count, EntryVisitor visitor) {
+        if (count > size) {
+            throw new IllegalArgumentException("The log has only " + size + " entries!");
+        }
+        Chunk[] snapshot = chunks;
+        for (int position = 0; position < count; position++) {
+            Chunk chunk = snapshot[position / CHUNK_SIZE];
+            int offset = position % CHUNK_SIZE;
+            visitor.visit(TYPES[chunk.types[offset]], chunk.times[offset], chunk.ids[offset],
+                    chunk.texts == null ? null : chunk.texts[offset]);
+        }
+    }
+
+    /**
+     * Merges the entries of several logs of the same user into a new log.
+     * The relative order of the entries of every log is kept and the logs are interleaved by time.
+     */
+    public static ActivityLog merge(List<ActivityLog> logs) {
+        ActivityLog merged = new ActivityLog();
+        int[] counts = new int[logs.size()];
+        Chunk[][] snapshots = new Chunk[logs.size()][];
+        for (int i = 0; i < logs.size(); i++) {
+            counts[i] = logs.get(i).size;
+            snapshots[i] = logs.get(i).chunks;
+        }
+        int[] positions = new int[logs.size()];
+        while (true) {
+            int earliest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                if (positions[i] < counts[i] && (earliest == -1
+                        || timeAt(snapshots[i], positions[i]) < timeAt(snapshots[earliest], positions[earliest]))) {
+                    earliest = i;
+                }
+            }
+            if (earliest == -1) {
+                return merged;
+            }
+            Chunk chunk = snapshots[earliest][positions[earliest] / CHUNK_SIZE];
+            int offset = positions[earliest] % CHUNK_SIZE;
+            merged.append(TYPES[chunk.types[offset]], chunk.times[offset], chunk.ids[offset],
+                    chunk.texts == null ? null : chunk.texts[offset]);
+            positions[earliest]++;
+        }
+    }
+
+    private static long timeAt(Chunk[] chunks, int position) {
+        return chunks[position / CHUNK_SIZE].times[position % CHUNK_SIZE];
+    }
+
+    /**
+     * Returns a read-only view of the entries appended so far, newest first.
+     * Activities added after this call are not part of the returned view.
+     */
+    public List<String> newestFirst() {
+        return newestFirst(size);
+    }
+
+    /**
+     * Returns a read-only view of the first {@code count} entries, newest first, i.e. the log as it was when it
+     * had {@code count} entries.
+     */
+    public List<String> newestFirst(int count) {
+        if (count < 0 || count > size) {
+            throw new IllegalArgumentException("The log has only " + size + " entries!");
+        }
+        final Chunk[] snapshot = chunks;
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                return render(snapshot, count - 1 - index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private void append(ActivityType type, LocalDateTime time, String id, String text) {
+        append(type, time.toEpochSecond(ZoneOffset.UTC), id, text);
+    }
+
+    private synchronized void append(ActivityType type, long epochSecond, String id, String text) {
+        int position = size;
+        int chunkIndex = position / CHUNK_SIZE;
+        if (chunkIndex == chunks.length) {
+            Chunk[] grown = new Chunk[chunks.length * 2];
+            System.arraycopy(chunks, 0, grown, 0, chunks.length);
+            allocated(REFERENCE_BYTES * chunks.length);
+            chunks = grown;
+        }
+        if (chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new Chunk();
+            allocated(chunks[chunkIndex].getSizeInBytes());
+        }
+        allocated(chunks[chunkIndex].set(position % CHUNK_SIZE, type, epochSecond, id, text));
+        size = position + 1;
+    }
+
+    private void allocated(long bytes) {
+        if (allocatedBytes != null && bytes > 0) {
+            allocatedBytes.add(bytes);
+        }
+    }
+
+    private static String render(Chunk[] chunks, int position) {
+        Chunk chunk = chunks[position / CHUNK_SIZE];
+        int offset = position % CHUNK_SIZE;
+        LocalDateTime time = LocalDateTime.ofEpochSecond(chunk.times[offset], 0, ZoneOffset.UTC);
+        StringBuilder builder = new StringBuilder(64);
+        appendTwoDigits(builder, time.getHour()).append(':');
+        appendTwoDigits(builder, time.getMinute()).append(':');
+        appendTwoDigits(builder, time.getSecond()).append(' ');
+        appendTwoDigits(builder, time.getDayOfMonth()).append('.');
+        appendTwoDigits(builder, time.getMonthValue()).append('.');
+        builder.append(time.getYear()).append(": ");
+        switch (TYPES[chunk.types[offset]]) {
+            case COMMENT:
+                builder.append("Commented \"").append(chunk.texts[offset]).append("\" on a content with id ");
+                break;
+            case LIKE:
+                builder.append("Liked a content with id ");
+                break;
+            case POST:
+                builder.append("Created a post with id ");
+                break;
+            default:
+                builder.append("Created a story with id ");
+                break;
+        }
+        return builder.append(chunk.ids[offset]).toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        if (value < 10) {
+            builder.append('0');
+        }
+        return builder.append(value);
+    }
+
+    private static final class Chunk {
+
+        private final byte[] types = new byte[CHUNK_SIZE];
+        private final long[] times = new long[CHUNK_SIZE];
+        private final String[] ids = new String[CHUNK_SIZE];
+        private String[] texts;
+
+        private long getSizeInBytes() {
+            long bytes = 3 * ARRAY_HEADER_BYTES + CHUNK_SIZE * (Byte.BYTES + Long.BYTES + REFERENCE_BYTES);
+            if (texts != null) {
+                bytes += ARRAY_HEADER_BYTES + CHUNK_SIZE * REFERENCE_BYTES;
+            }
+            return bytes;
+        }
+
+        /**
+         * Returns the bytes allocated for the entry, i.e. the array of texts if this is the first comment.
+         */
+        private long set(int offset, ActivityType type, long time, String id, String text) {
+            types[offset] = (byte) type.ordinal();
+            times[offset] = time;
+            ids[offset] = id;
+            if (text == null) {
+                return 0;
+            }
+            long allocated = 0;
+            if (texts == null) {
+                texts = new String[CHUNK_SIZE];
+                allocated = ARRAY_HEADER_BYTES + CHUNK_SIZE * REFERENCE_BYTES;
+            }
+            texts[offset] = text;
+            return allocated;
+        }
+    }
+
+    public interface EntryVisitor {
+        void visit(ActivityType type, long epochSecond, String id, String text);
+    }
+}
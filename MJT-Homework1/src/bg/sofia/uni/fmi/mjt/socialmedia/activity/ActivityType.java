@@ -0,0 +1,8 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.activity;
+
+public enum ActivityType {
+    COMMENT,
+    LIKE,
+    POST,
+    STORY
+}
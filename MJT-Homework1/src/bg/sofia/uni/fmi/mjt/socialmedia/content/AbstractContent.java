@@ -1,39 +1,120 @@
 package bg.sofia.uni.fmi.mjt.socialmedia.content;
 
 import java.time.Duration;
+import java.time.ZoneOffset;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+import bg.sofia.uni.fmi.mjt.socialmedia.index.CompressedBitmap;
+
+/**
+ * The state shared by posts and stories, laid out to keep the heap per content item small.
+ * -> The publication date is kept as epoch seconds (at UTC) and nanoseconds instead of a {@link LocalDateTime}
+ * -> Up to eight likes are kept as a sorted int array, which a like replaces as a whole with a compare-and-set,
+ * and their number is the length of the array; more likes are split into eight stripes by blocks of 64
+ * consecutive user ids, each a compressed bitmap with a count of its own, so runs of ids can still be compressed;
+ * a like only locks and counts in the stripe it touches and the number of likes is summed over the stripes
+ * -> Up to eight comments are a lock-free stack of small nodes pushed with a compare-and-set, each node knowing
+ * how many comments it completes; more comments are pushed onto one of eight such stacks picked by the
+ * commenting thread, with nodes which also keep the time they were added, so that they can be put back in
+ * order; the number of comments is summed over the stacks;
+ * the text is the same instance the activity log of the commenter keeps, so it is not copied
+ * -> The stripes of likes and comments are only allocated once the first eight spill over, so hot content
+ * spreads concurrent likers and commenters over several locks, counters and stack heads, while most content
+ * pays for none of them
+ * -> Tags and mentions are interned, so content with the same tag shares one string
+ * -> Nothing locks the content as a whole, so hot content does not become a bottleneck
+ */
 public abstract class AbstractContent implements Content {
 
-    static long idCounter = 0;
+    private static final int FEW_LIKES = 8;
+    private static final int LIKE_STRIPES = 8;
+    private static final int LIKE_BLOCK_BITS = 6;
+    private static final int FEW_COMMENTS = 8;
+    private static final int COMMENT_STRIPES = 8;
+    private static final int[] NO_LIKES = new int[0];
+    private static final long OBJECT_BYTES = ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + 7 * ContentFootprint.REFERENCE_BYTES + 2 * Long.BYTES + Integer.BYTES);
+    private static final long LIKE_STRIPE_BYTES = ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + ContentFootprint.REFERENCE_BYTES + Integer.BYTES)
+            + ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + 2 * ContentFootprint.REFERENCE_BYTES + 2 * Integer.BYTES);
+    private static final long COMMENT_NODE_BYTES = ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + 3 * ContentFootprint.REFERENCE_BYTES + Integer.BYTES);
+    private static final long TIMED_COMMENT_NODE_BYTES = ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + 3 * ContentFootprint.REFERENCE_BYTES + Integer.BYTES + Long.BYTES);
+    private static final long COMMENT_STRIPES_BYTES = ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + 2 * ContentFootprint.REFERENCE_BYTES)
+            + ContentFootprint.align(ContentFootprint.ARRAY_HEADER_BYTES
+            + ContentFootprint.REFERENCE_BYTES * COMMENT_STRIPES)
+            + COMMENT_STRIPES * ContentFootprint.align(ContentFootprint.OBJECT_HEADER_BYTES
+            + ContentFootprint.REFERENCE_BYTES);
+    private static final Comparator<TimedCommentNode> BY_TIME_ADDED = Comparator.comparingLong(node -> node.addedAt);
+    private static final AtomicReferenceFieldUpdater<AbstractContent, Object> LIKES =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractContent.class, Object.class, "likes");
+    private static final AtomicReferenceFieldUpdater<AbstractContent, Object> COMMENTS =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractContent.class, Object.class, "comments");
+    private static final AtomicReferenceFieldUpdater<CommentStripe, CommentNode> STRIPE_HEAD =
+            AtomicReferenceFieldUpdater.newUpdater(CommentStripe.class, CommentNode.class, "head");
+
     private final String creatorsUsername;
+    private final long sequence;
     private final String id;
-    private String description;
-    private List<Comment> comments;
-    private List<String> likes;
-    private LocalDateTime publicationDate;
+    private final String description;
+    private List<String> tags;
+    private List<String> mentions;
+    private final long publishedEpochSecond;
+    private final int publishedNano;
+    /**
+     * Either the sorted int array of the first likes or the {@link LikeStripe}s.
+     */
+    private volatile Object likes;
+    /**
+     * Either the head of the stack of the first comments, null before the first one, or {@link CommentStripes}.
+     */
+    private volatile Object comments;
 
-    AbstractContent(String creatorsUsername, String description, LocalDateTime publicationDate) {
+    /**
+     * Creates content with the publication sequence handed out by the engine which publishes or restores it.
+     */
+    AbstractContent(String creatorsUsername, String description, LocalDateTime publicationDate, long sequence) {
         this.creatorsUsername = creatorsUsername;
-        this.publicationDate = publicationDate;
+        this.publishedEpochSecond = publicationDate.toEpochSecond(ZoneOffset.UTC);
+        this.publishedNano = publicationDate.getNano();
         this.description = description;
-        comments = new ArrayList<>();
+        this.sequence = sequence;
         this.id = this.generateId();
-        likes = new ArrayList<>();
+        likes = NO_LIKES;
+        comments = null;
+        parseTagsAndMentions();
     }
 
     @Override
     public int getNumberOfLikes() {
-        return likes.size();
+        Object current = likes;
+        if (!(current instanceof LikeStripe[])) {
+            return ((int[]) current).length;
+        }
+        int count = 0;
+        for (LikeStripe stripe : (LikeStripe[]) current) {
+            count += stripe.count;
+        }
+        return count;
     }
 
     @Override
     public int getNumberOfComments() {
-        return comments.size();
+        Object current = comments;
+        if (current instanceof CommentStripes) {
+            return ((CommentStripes) current).count();
+        }
+        return current == null ? 0 : ((CommentNode) current).count;
     }
 
     @Override
@@ -43,28 +124,53 @@ public abstract class AbstractContent implements Content {
 
     @Override
     public Collection<String> getTags() {
-        return getWordsStartingWithFromDescription("#");
+        return tags;
     }
 
     @Override
     public Collection<String> getMentions() {
-        return getWordsStartingWithFromDescription("@");
+        return mentions;
     }
 
-    private List<String> getWordsStartingWithFromDescription(String symbol) {
-        List<String> temp = new ArrayList<>();
-        String strippedDescription = this.description.replaceAll("\\s{2,}", " ").trim();
-        String[] words = strippedDescription.split(" ");
-        for (String word : words) {
-            if (word.startsWith(symbol)) {
-                temp.add(word);
+    /**
+     * Splits the description on whitespace in a single pass and keeps the words
+     * starting with '#' and '@' as immutable lists of tags and mentions.
+     */
+    private void parseTagsAndMentions() {
+        List<String> foundTags = null;
+        List<String> foundMentions = null;
+        int length = description.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(description.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(description.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+            char first = description.charAt(start);
+            if (first == '#') {
+                if (foundTags == null) {
+                    foundTags = new ArrayList<>();
+                }
+                foundTags.add(description.substring(start, i).intern());
+            } else if (first == '@') {
+                if (foundMentions == null) {
+                    foundMentions = new ArrayList<>();
+                }
+                foundMentions.add(description.substring(start, i).intern());
             }
         }
-        return temp;
+        tags = foundTags == null ? List.of() : List.copyOf(foundTags);
+        mentions = foundMentions == null ? List.of() : List.copyOf(foundMentions);
     }
 
     private String generateId() {
-        return String.format("%s-%s", creatorsUsername, idCounter++);
+        return creatorsUsername + "-" + sequence;
     }
 
     public void commentContent(String text, String username) {
@@ -73,20 +179,33 @@ public abstract class AbstractContent implements Content {
         } else if (text == null) {
             throw new IllegalArgumentException("Text cannot be null!");
         }
-        comments.add(new Comment(text, username));
+        comment(username, text);
     }
 
-    public void likeContent(String username) {
-        if (username == null) {
-            throw new IllegalArgumentException("Username cannot be null!");
-        }
-        likes.add(username);
+    /**
+     * Returns for how long the content stays active after it was published.
+     */
+    public abstract Duration getLifetime();
+
+    public LocalDateTime getExpirationDate() {
+        return getPublicationDate().plus(getLifetime());
+    }
+
+    /**
+     * Returns the expiration date as epoch seconds at UTC, without building a {@link LocalDateTime}.
+     */
+    public long getExpirationEpochSecond() {
+        return publishedEpochSecond + getLifetime().getSeconds();
     }
 
     public boolean isActive() {
-        LocalDateTime today = LocalDateTime.now();
-        long difference = Duration.between(this.publicationDate, today).toDays();
-        return difference < 30;
+        return isActive(LocalDateTime.now());
+    }
+
+    public boolean isActive(LocalDateTime now) {
+        long second = now.toEpochSecond(ZoneOffset.UTC);
+        long expiresAt = getExpirationEpochSecond();
+        return second < expiresAt || (second == expiresAt && now.getNano() < publishedNano);
     }
 
     @Override
@@ -106,15 +225,310 @@ public abstract class AbstractContent implements Content {
         return Objects.hash(id);
     }
 
-    public void like(String username) {
-        likes.add(username);
+    /**
+     * Records a like from the user with id {@code userId}. Liking the same content more than once has no effect.
+     *
+     * @return true if the user had not liked the content before
+     */
+    public boolean like(int userId) {
+        while (true) {
+            Object current = likes;
+            if (current instanceof LikeStripe[]) {
+                LikeStripe stripe = ((LikeStripe[]) current)[stripeOf(userId)];
+                synchronized (stripe) {
+                    if (!stripe.userIds.add(userId)) {
+                        return false;
+                    }
+                    stripe.count = stripe.userIds.getCardinality();
+                }
+                return true;
+            }
+            int[] fewLikes = (int[]) current;
+            int position = Arrays.binarySearch(fewLikes, userId);
+            if (position >= 0) {
+                return false;
+            }
+            Object updated = fewLikes.length == FEW_LIKES ? stripesOf(fewLikes, userId)
+                    : insertLike(fewLikes, -position - 1, userId);
+            if (LIKES.compareAndSet(this, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean hasLiked(int userId) {
+        Object current = likes;
+        if (current instanceof LikeStripe[]) {
+            LikeStripe stripe = ((LikeStripe[]) current)[stripeOf(userId)];
+            synchronized (stripe) {
+                return stripe.userIds.contains(userId);
+            }
+        }
+        return Arrays.binarySearch((int[]) current, userId) >= 0;
     }
 
     public void comment(String username, String text) {
-        comments.add(new Comment(text, username));
+        while (true) {
+            Object current = comments;
+            if (current instanceof CommentStripes) {
+                ((CommentStripes) current).push(username, text);
+                return;
+            }
+            CommentNode head = (CommentNode) current;
+            if (head != null && head.count == FEW_COMMENTS) {
+                COMMENTS.compareAndSet(this, current, new CommentStripes(head));
+            } else if (COMMENTS.compareAndSet(this, current, new CommentNode(username, text, head))) {
+                return;
+            }
+        }
+    }
+
+    private static int[] insertLike(int[] fewLikes, int insertion, int userId) {
+        int[] grown = new int[fewLikes.length + 1];
+        System.arraycopy(fewLikes, 0, grown, 0, insertion);
+        grown[insertion] = userId;
+        System.arraycopy(fewLikes, insertion, grown, insertion + 1, fewLikes.length - insertion);
+        return grown;
+    }
+
+    private static int stripeOf(int userId) {
+        return (userId >>> LIKE_BLOCK_BITS) & (LIKE_STRIPES - 1);
+    }
+
+    private static LikeStripe[] stripesOf(int[] fewLikes, int userId) {
+        LikeStripe[] stripes = new LikeStripe[LIKE_STRIPES];
+        for (int i = 0; i < LIKE_STRIPES; i++) {
+            stripes[i] = new LikeStripe();
+        }
+        for (int liked : fewLikes) {
+            stripes[stripeOf(liked)].userIds.add(liked);
+        }
+        stripes[stripeOf(userId)].userIds.add(userId);
+        for (LikeStripe stripe : stripes) {
+            stripe.count = stripe.userIds.getCardinality();
+        }
+        return stripes;
+    }
+
+    public LocalDateTime getPublicationDate() {
+        return LocalDateTime.ofEpochSecond(publishedEpochSecond, publishedNano, ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the publication date as epoch seconds at UTC, without building a {@link LocalDateTime}.
+     */
+    public long getPublishedEpochSecond() {
+        return publishedEpochSecond;
+    }
+
+    public int getPublishedNano() {
+        return publishedNano;
+    }
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Returns the ids of the users who liked the content in increasing order.
+     */
+    public int[] getLikedBy() {
+        Object current = likes;
+        if (!(current instanceof LikeStripe[])) {
+            return ((int[]) current).clone();
+        }
+        int[][] parts = new int[LIKE_STRIPES][];
+        int total = 0;
+        for (int i = 0; i < LIKE_STRIPES; i++) {
+            LikeStripe stripe = ((LikeStripe[]) current)[i];
+            synchronized (stripe) {
+                parts[i] = stripe.userIds.toArray();
+            }
+            total += parts[i].length;
+        }
+        int[] likedBy = new int[total];
+        int position = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, likedBy, position, part.length);
+            position += part.length;
+        }
+        Arrays.sort(likedBy);
+        return likedBy;
+    }
+
+    /**
+     * Returns a copy of the comments of the content in the order in which they were added.
+     */
+    public List<Comment> getComments() {
+        Object current = comments;
+        if (!(current instanceof CommentStripes)) {
+            return copyOf((CommentNode) current);
+        }
+        CommentStripes spilled = (CommentStripes) current;
+        List<Comment> copy = copyOf(spilled.first);
+        List<TimedCommentNode> later = new ArrayList<>();
+        for (CommentStripe stripe : spilled.stripes) {
+            CommentNode head = stripe.head;
+            TimedCommentNode[] nodes = new TimedCommentNode[head == null ? 0 : head.count];
+            for (CommentNode node = head; node != null; node = node.next) {
+                nodes[node.count - 1] = (TimedCommentNode) node;
+            }
+            later.addAll(Arrays.asList(nodes));
+        }
+        later.sort(BY_TIME_ADDED);
+        for (CommentNode node : later) {
+            copy.add(new Comment(node.text, node.username));
+        }
+        return copy;
+    }
+
+    private static List<Comment> copyOf(CommentNode head) {
+        Comment[] copy = new Comment[head == null ? 0 : head.count];
+        for (CommentNode node = head; node != null; node = node.next) {
+            copy[node.count - 1] = new Comment(node.text, node.username);
+        }
+        return new ArrayList<>(Arrays.asList(copy));
+    }
+
+    /**
+     * Estimates the heap held by this content item, see {@link ContentFootprint} for what is counted.
+     */
+    public ContentFootprint getFootprint() {
+        return new ContentFootprint(OBJECT_BYTES, ContentFootprint.sizeOf(id), ContentFootprint.sizeOf(description),
+                ContentFootprint.sizeOf(tags) + ContentFootprint.sizeOf(mentions), getLikesSizeInBytes(),
+                getCommentsSizeInBytes());
+    }
+
+    /**
+     * Returns the part of the footprint which grows with likes and comments, without measuring the strings.
+     */
+    public long getEngagementSizeInBytes() {
+        return getLikesSizeInBytes() + getCommentsSizeInBytes();
+    }
+
+    private long getLikesSizeInBytes() {
+        Object current = likes;
+        if (!(current instanceof LikeStripe[])) {
+            return current == NO_LIKES ? 0
+                    : ContentFootprint.align(ContentFootprint.ARRAY_HEADER_BYTES
+                    + (long) Integer.BYTES * ((int[]) current).length);
+        }
+        long likesBytes = ContentFootprint.align(ContentFootprint.ARRAY_HEADER_BYTES
+                + ContentFootprint.REFERENCE_BYTES * LIKE_STRIPES);
+        for (LikeStripe stripe : (LikeStripe[]) current) {
+            synchronized (stripe) {
+                likesBytes += LIKE_STRIPE_BYTES + stripe.userIds.getSizeInBytes();
+            }
+        }
+        return likesBytes;
+    }
+
+    private long getCommentsSizeInBytes() {
+        Object current = comments;
+        if (!(current instanceof CommentStripes)) {
+            return COMMENT_NODE_BYTES * getNumberOfComments();
+        }
+        return COMMENT_STRIPES_BYTES + COMMENT_NODE_BYTES * FEW_COMMENTS
+                + TIMED_COMMENT_NODE_BYTES * (((CommentStripes) current).count() - FEW_COMMENTS);
     }
 
     public String getCreatorsUsername() {
         return this.creatorsUsername;
     }
+
+    /**
+     * The likes of the users in one stripe of blocks of user ids, guarded by the monitor of the stripe.
+     * The count is written under the monitor and read without it.
+     */
+    private static final class LikeStripe {
+
+        private final CompressedBitmap userIds = new CompressedBitmap();
+        private volatile int count;
+    }
+
+    /**
+     * One comment on a stack of comments, linked to the comment added before it on the same stack.
+     */
+    private static class CommentNode {
+
+        private final String username;
+        private final String text;
+        private final CommentNode next;
+        private final int count;
+
+        private CommentNode(String username, String text, CommentNode next) {
+            this.username = username;
+            this.text = text;
+            this.next = next;
+            this.count = next == null ? 1 : next.count + 1;
+        }
+    }
+
+    /**
+     * A comment on one of the stripes, which also keeps when it was added as the stripes have no order between
+     * them.
+     */
+    private static final class TimedCommentNode extends CommentNode {
+
+        private final long addedAt;
+
+        private TimedCommentNode(String username, String text, CommentNode next, long addedAt) {
+            super(username, text, next);
+            this.addedAt = addedAt;
+        }
+    }
+
+    private static final class CommentStripe {
+
+        private volatile CommentNode head;
+    }
+
+    /**
+     * The comments of content which has had more than {@value #FEW_COMMENTS} of them: the stack of the first
+     * ones, which no longer changes, and the stacks of the comments after them.
+     */
+    private static final class CommentStripes {
+
+        private final CommentNode first;
+        private final CommentStripe[] stripes;
+
+        private CommentStripes(CommentNode first) {
+            this.first = first;
+            stripes = new CommentStripe[COMMENT_STRIPES];
+            for (int i = 0; i < COMMENT_STRIPES; i++) {
+                stripes[i] = new CommentStripe();
+            }
+        }
+
+        /**
+         * Pushes the comment onto the stack of the current thread, so that threads commenting on the same
+         * content at the same time mostly retry on different heads.
+         */
+        private void push(String username, String text) {
+            CommentStripe stripe = stripes[stripeOfThread()];
+            long addedAt = System.nanoTime();
+            CommentNode head;
+            do {
+                head = stripe.head;
+            } while (!STRIPE_HEAD.compareAndSet(stripe, head, new TimedCommentNode(username, text, head, addedAt)));
+        }
+
+        private int count() {
+            int count = first.count;
+            for (CommentStripe stripe : stripes) {
+                CommentNode head = stripe.head;
+                count += head == null ? 0 : head.count;
+            }
+            return count;
+        }
+
+        private static int stripeOfThread() {
+            long mixed = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            return (int) (mixed >>> (Long.SIZE - Integer.numberOfTrailingZeros(COMMENT_STRIPES)));
+        }
+    }
 }
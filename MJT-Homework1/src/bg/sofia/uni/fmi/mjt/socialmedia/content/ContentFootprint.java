@@ -0,0 +1,99 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.content;
+
+import java.util.List;
+
+/**
+ * An estimate of the heap held by one content item, assuming a 64-bit JVM with compressed references.
+ * -> Only what the item owns is counted: the object itself, its id and description, the lists of its tags and
+ * mentions, its likes and its comment nodes
+ * -> Strings shared with other structures are left out: the usernames, the interned tags and mentions and the
+ * comment texts, which the activity logs of the commenters keep as well
+ */
+public class ContentFootprint {
+
+    static final long OBJECT_HEADER_BYTES = 12;
+    static final long ARRAY_HEADER_BYTES = 16;
+    static final long REFERENCE_BYTES = 4;
+
+    private final long object;
+    private final long id;
+    private final long description;
+    private final long tagsAndMentions;
+    private final long likes;
+    private final long comments;
+
+    ContentFootprint(long object, long id, long description, long tagsAndMentions, long likes, long comments) {
+        this.object = object;
+        this.id = id;
+        this.description = description;
+        this.tagsAndMentions = tagsAndMentions;
+        this.likes = likes;
+        this.comments = comments;
+    }
+
+    public long getObject() {
+        return object;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDescription() {
+        return description;
+    }
+
+    public long getTagsAndMentions() {
+        return tagsAndMentions;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getTotal() {
+        return object + id + description + tagsAndMentions + likes + comments;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("total=%d object=%d id=%d description=%d tagsAndMentions=%d likes=%d comments=%d",
+                getTotal(), object, id, description, tagsAndMentions, likes, comments);
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * A string is an object with a reference, a hash and a coder, plus a byte array with one byte per character
+     * if all characters are Latin-1 and two bytes otherwise.
+     */
+    static long sizeOf(String string) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return align(OBJECT_HEADER_BYTES + REFERENCE_BYTES + 2 * Integer.BYTES)
+                + align(ARRAY_HEADER_BYTES + (long) bytesPerChar * string.length());
+    }
+
+    /**
+     * Immutable lists of one or two elements are a single object with two references, longer ones wrap an array.
+     */
+    static long sizeOf(List<String> list) {
+        if (list.isEmpty()) {
+            return 0;
+        } else if (list.size() <= 2) {
+            return align(OBJECT_HEADER_BYTES + 2 * REFERENCE_BYTES);
+        }
+        return align(OBJECT_HEADER_BYTES + REFERENCE_BYTES) + align(ARRAY_HEADER_BYTES + REFERENCE_BYTES * list.size());
+    }
+}
@@ -0,0 +1,43 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.content;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One page of the results of a content query together with an opaque cursor to the next page.
+ * -> The cursor is null on the last page
+ * -> The cursor only makes sense to the query which produced it; passing it to another query or changing its
+ * text makes the query throw {@link IllegalArgumentException}, as the cursor carries a checksum of its fields
+ */
+public class ContentPage {
+
+    private final List<Content> content;
+    private final String nextCursor;
+
+    public ContentPage(List<Content> content, String nextCursor) {
+        if (content == null) {
+            throw new IllegalArgumentException("Content cannot be null!");
+        }
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the content on this page as an unmodifiable list.
+     */
+    public List<Content> getContent() {
+        return content;
+    }
+
+    public Stream<Content> stream() {
+        return content.stream();
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
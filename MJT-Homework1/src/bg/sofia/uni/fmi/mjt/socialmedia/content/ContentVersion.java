@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.content;
+
+import java.util.Collection;
+
+/**
+ * An immutable copy of the state of a content item at one moment, so it can be shared with readers which must
+ * not see later likes and comments.
+ * -> Tags and mentions are shared with the live item, since they never change
+ * -> The live item is kept as well, for what is not copied (e.g. who liked it)
+ */
+public class ContentVersion implements Content {
+
+    private final AbstractContent source;
+    private final int numberOfLikes;
+    private final int numberOfComments;
+    private final long expiresAt;
+
+    /**
+     * @param source    The live content item, whose likes and comments must not change during the call
+     * @param expiresAt The moment the item expires, in epoch seconds
+     */
+    public ContentVersion(AbstractContent source, long expiresAt) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source cannot be null!");
+        }
+        this.source = source;
+        this.numberOfLikes = source.getNumberOfLikes();
+        this.numberOfComments = source.getNumberOfComments();
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public int getNumberOfLikes() {
+        return numberOfLikes;
+    }
+
+    @Override
+    public int getNumberOfComments() {
+        return numberOfComments;
+    }
+
+    @Override
+    public String getId() {
+        return source.getId();
+    }
+
+    @Override
+    public Collection<String> getTags() {
+        return source.getTags();
+    }
+
+    @Override
+    public Collection<String> getMentions() {
+        return source.getMentions();
+    }
+
+    public int getPopularity() {
+        return numberOfLikes + numberOfComments;
+    }
+
+    public long getSequence() {
+        return source.getSequence();
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isActive(long epochSecond) {
+        return epochSecond < expiresAt;
+    }
+
+    public AbstractContent getSource() {
+        return source;
+    }
+}
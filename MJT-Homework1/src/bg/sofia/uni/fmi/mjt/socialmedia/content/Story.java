@@ -1,9 +1,18 @@
 package bg.sofia.uni.fmi.mjt.socialmedia.content;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 public class Story extends AbstractContent {
-    public Story(String creatorsUsername, String description, LocalDateTime publicationDate) {
-        super(creatorsUsername, description, publicationDate);
+
+    private static final Duration LIFETIME = Duration.ofHours(24);
+
+    public Story(String creatorsUsername, String description, LocalDateTime publicationDate, long sequence) {
+        super(creatorsUsername, description, publicationDate, sequence);
+    }
+
+    @Override
+    public Duration getLifetime() {
+        return LIFETIME;
     }
 }
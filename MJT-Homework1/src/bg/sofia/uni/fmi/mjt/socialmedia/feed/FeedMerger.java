@@ -0,0 +1,75 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.feed;
+
+import java.util.List;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Merges sources which are already sorted, e.g. the content of several authors newest first, into one sorted
+ * list of bounded length.
+ * -> A heap holds the head of every source, so taking {@code n} items out of {@code k} sources pulls at most
+ * {@code n + k} items from them, however long the sources are
+ */
+public final class FeedMerger {
+
+    private FeedMerger() {
+    }
+
+    /**
+     * Returns the first {@code n} items, in {@code order}, among those of {@code sources} which satisfy
+     * {@code include}. Every source should be sorted by {@code order}.
+     */
+    public static <T> List<T> merge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order,
+                                    int n, Predicate<? super T> include) {
+        if (n == 0 || sources.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(sources.size(),
+                (first, second) -> order.compare(first.item, second.item));
+        for (Iterator<? extends T> source : sources) {
+            Head<T> head = new Head<>(source);
+            if (head.advance(include)) {
+                heads.add(head);
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.min(n, 64));
+        while (!heads.isEmpty() && merged.size() < n) {
+            Head<T> head = heads.poll();
+            merged.add(head.item);
+            if (head.advance(include)) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Head<T> {
+
+        private final Iterator<? extends T> source;
+        private T item;
+
+        private Head(Iterator<? extends T> source) {
+            this.source = source;
+        }
+
+        /**
+         * Moves to the next item of the source which satisfies {@code include}.
+         *
+         * @return false if the source is exhausted
+         */
+        private boolean advance(Predicate<? super T> include) {
+            while (source.hasNext()) {
+                T next = source.next();
+                if (include.test(next)) {
+                    item = next;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.feed;
+
+import java.util.Set;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.function.Predicate;
+import java.util.function.IntFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.index.ChunkedArray;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+
+/**
+ * The follow graph together with a precomputed home timeline of every user who follows someone.
+ * -> Users are identified by their dense ids
+ * -> Content of an ordinary author is pushed into the timelines of all of their followers when it is published
+ * (fan-out on write), so reading a feed only walks one timeline
+ * -> Once an author reaches {@code celebrityThreshold} followers they become a celebrity for good: their
+ * content is no longer pushed, but merged into the feeds of their followers at read time from the per-author
+ * recency data of the engine, so one publication never touches millions of timelines
+ * -> A timeline keeps the newest {@code timelineCapacity} items; a feed which needs older content than its
+ * timeline kept is merged from the recency data of all followed authors instead
+ * -> Following someone backfills the timeline with their recent content and unfollowing removes it
+ * -> The class is thread safe without a lock of its own: the follow graph is kept in concurrent sets and every
+ * timeline is guarded by its own monitor, so a publication only locks the timelines it is pushed into, and a
+ * feed read only locks its own timeline while it copies the newest items, merging in the content of celebrities
+ * after it has let go
+ */
+public class HomeTimelines {
+
+    public static final int DEFAULT_TIMELINE_CAPACITY = 800;
+    public static final int DEFAULT_CELEBRITY_THRESHOLD = 1000;
+
+    private static final int INITIAL_TIMELINE_SIZE = 16;
+    private static final Comparator<AbstractContent> OLDEST_FIRST = Comparator
+            .comparingLong(AbstractContent::getPublishedEpochSecond)
+            .thenComparingInt(AbstractContent::getPublishedNano)
+            .thenComparingLong(AbstractContent::getSequence);
+    private static final Comparator<AbstractContent> NEWEST_FIRST = OLDEST_FIRST.reversed();
+
+    private final int timelineCapacity;
+    private final int celebrityThreshold;
+    private final ChunkedArray<Member> members;
+    private final LongAdder entries;
+
+    public HomeTimelines() {
+        this(DEFAULT_TIMELINE_CAPACITY, DEFAULT_CELEBRITY_THRESHOLD);
+    }
+
+    public HomeTimelines(int timelineCapacity, int celebrityThreshold) {
+        if (timelineCapacity <= 0) {
+            throw new IllegalArgumentException("Timeline capacity should be positive!");
+        } else if (celebrityThreshold <= 0) {
+            throw new IllegalArgumentException("Celebrity threshold should be positive!");
+        }
+        this.timelineCapacity = timelineCapacity;
+        this.celebrityThreshold = celebrityThreshold;
+        members = new ChunkedArray<>();
+        entries = new LongAdder();
+    }
+
+    /**
+     * Makes {@code follower} follow {@code followee}.
+     *
+     * @param newestOfFollowee The content of the followee, newest first, to backfill the timeline from
+     * @return false if {@code follower} already follows {@code followee}
+     */
+    public boolean follow(int follower, int followee, Iterator<AbstractContent> newestOfFollowee) {
+        Member followerMember = memberOf(follower);
+        if (!followerMember.following.add(followee)) {
+            return false;
+        }
+        Member followeeMember = memberOf(followee);
+        followeeMember.followers.add(follower);
+        if (followeeMember.followers.size() >= celebrityThreshold) {
+            followeeMember.celebrity = true;
+        }
+        if (!followeeMember.celebrity) {
+            List<AbstractContent> recent = new ArrayList<>();
+            while (newestOfFollowee.hasNext() && recent.size() < timelineCapacity) {
+                recent.add(newestOfFollowee.next());
+            }
+            Timeline timeline = followerMember.timeline;
+            synchronized (timeline) {
+                if (followerMember.following.contains(followee)) {
+                    for (int i = recent.size() - 1; i >= 0; i--) {
+                        timeline.insert(recent.get(i), followee);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if {@code follower} does not follow {@code followee}
+     */
+    public boolean unfollow(int follower, int followee) {
+        Member followerMember = members.get(follower);
+        if (followerMember == null || !followerMember.following.remove(followee)) {
+            return false;
+        }
+        members.get(followee).followers.remove(follower);
+        synchronized (followerMember.timeline) {
+            followerMember.timeline.removeAuthor(followee);
+        }
+        return true;
+    }
+
+    public boolean isFollowing(int follower, int followee) {
+        Member member = members.get(follower);
+        return member != null && member.following.contains(followee);
+    }
+
+    public boolean isCelebrity(int user) {
+        Member member = members.get(user);
+        return member != null && member.celebrity;
+    }
+
+    /**
+     * Pushes new {@code content} of {@code author} into the timelines of their followers, unless the author is
+     * a celebrity.
+     * A follower who unfollows the author meanwhile either has the content removed with the rest of the author
+     * or is skipped, since the follow is checked again under the lock of the timeline.
+     */
+    public void publish(int author, AbstractContent content) {
+        Member authorMember = members.get(author);
+        if (authorMember == null || authorMember.celebrity) {
+            return;
+        }
+        for (int follower : authorMember.followers) {
+            Member followerMember = members.get(follower);
+            synchronized (followerMember.timeline) {
+                if (followerMember.following.contains(author)) {
+                    followerMember.timeline.insert(content, author);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the newest {@code n} items of the feed of {@code user} for which {@code live} holds.
+     * The recency data of the followed authors is only read after the timeline of the user has been copied and
+     * unlocked, so it can take locks of its own.
+     *
+     * @param newestOf The content of a user, newest first, by user id
+     */
+    public List<AbstractContent> read(int user, int n, IntFunction<Iterator<AbstractContent>> newestOf,
+                                      Predicate<AbstractContent> live) {
+        Member member = members.get(user);
+        if (n == 0 || member == null || member.following.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<AbstractContent> pushed;
+        boolean truncated;
+        synchronized (member.timeline) {
+            pushed = member.timeline.newest(n, live);
+            truncated = member.timeline.truncated;
+        }
+        List<Iterator<AbstractContent>> sources = new ArrayList<>();
+        sources.add(pushed.iterator());
+        for (int followee : member.following) {
+            if (isCelebrity(followee)) {
+                sources.add(newestOf.apply(followee));
+            }
+        }
+        List<AbstractContent> feed = FeedMerger.merge(sources, NEWEST_FIRST, n, live);
+        if (feed.size() < n && truncated) {
+            sources.clear();
+            for (int followee : member.following) {
+                sources.add(newestOf.apply(followee));
+            }
+            feed = FeedMerger.merge(sources, NEWEST_FIRST, n, live);
+        }
+        return feed;
+    }
+
+    /**
+     * Returns every follow edge as pairs of follower and followee ids.
+     */
+    public int[] getFollows() {
+        int[] edges = new int[16];
+        int position = 0;
+        int capacity = members.capacity();
+        for (int follower = 0; follower < capacity; follower++) {
+            Member member = members.get(follower);
+            if (member == null) {
+                continue;
+            }
+            for (int followee : member.following) {
+                if (position == edges.length) {
+                    edges = Arrays.copyOf(edges, edges.length * 2);
+                }
+                edges[position++] = follower;
+                edges[position++] = followee;
+            }
+        }
+        return Arrays.copyOf(edges, position);
+    }
+
+    public long getTimelineEntries() {
+        return entries.sum();
+    }
+
+    private Member memberOf(int user) {
+        return members.computeIfAbsent(user, id -> new Member());
+    }
+
+    /**
+     * The follows of one user in both directions, together with their timeline.
+     */
+    private final class Member {
+
+        private final Set<Integer> following = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> followers = ConcurrentHashMap.newKeySet();
+        private final Timeline timeline = new Timeline();
+        private volatile boolean celebrity;
+    }
+
+    /**
+     * The newest content of the followed authors, sorted oldest first in a bounded array, together with the id
+     * of the author of every item.
+     */
+    private final class Timeline {
+
+        private AbstractContent[] items;
+        private int[] authors;
+        private int size;
+        private boolean truncated;
+
+        private Timeline() {
+            items = new AbstractContent[0];
+            authors = new int[0];
+        }
+
+        /**
+         * Inserts {@code content} in its place, which is the end unless it was published with an older date,
+         * dropping the oldest item if the timeline is full.
+         */
+        private void insert(AbstractContent content, int author) {
+            int index = Arrays.binarySearch(items, 0, size, content, OLDEST_FIRST);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == timelineCapacity) {
+                truncated = true;
+                if (index == 0) {
+                    return;
+                }
+                System.arraycopy(items, 1, items, 0, index - 1);
+                System.arraycopy(authors, 1, authors, 0, index - 1);
+                items[index - 1] = content;
+                authors[index - 1] = author;
+                return;
+            }
+            if (size == items.length) {
+                int capacity = Math.min(timelineCapacity, Math.max(INITIAL_TIMELINE_SIZE, size * 2));
+                items = Arrays.copyOf(items, capacity);
+                authors = Arrays.copyOf(authors, capacity);
+            }
+            System.arraycopy(items, index, items, index + 1, size - index);
+            System.arraycopy(authors, index, authors, index + 1, size - index);
+            items[index] = content;
+            authors[index] = author;
+            size++;
+            entries.increment();
+        }
+
+        private void removeAuthor(int author) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (authors[i] != author) {
+                    items[kept] = items[i];
+                    authors[kept] = authors[i];
+                    kept++;
+                }
+            }
+            Arrays.fill(items, kept, size, null);
+            entries.add(kept - size);
+            size = kept;
+        }
+
+        /**
+         * Copies the newest {@code n} items for which {@code live} holds, skipping the content of authors who
+         * have become celebrities since it was pushed, as that content is merged in from the author.
+         */
+        private List<AbstractContent> newest(int n, Predicate<AbstractContent> live) {
+            List<AbstractContent> newest = new ArrayList<>(Math.min(n, size));
+            for (int i = size - 1; i >= 0 && newest.size() < n; i--) {
+                if (!isCelebrity(authors[i]) && live.test(items[i])) {
+                    newest.add(items[i]);
+                }
+            }
+            return newest;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.function.IntFunction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An array indexed by dense ids, e.g. user ids, which grows without copying and without locking.
+ * -> Slots are stored in chunks which double in size: chunk k holds the ids from 16 * (2^k - 1) on and has
+ * 16 * 2^k slots, so the slots of an id never move once it has been set
+ * -> A chunk is created with a compare-and-set the first time one of its ids is set
+ * -> Reads and writes of a slot are volatile, so whoever reads an element also sees how it was built
+ */
+public class ChunkedArray<T> {
+
+    private static final int FIRST_CHUNK_BITS = 4;
+    private static final int CHUNKS = Integer.SIZE - FIRST_CHUNK_BITS;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks;
+
+    public ChunkedArray() {
+        chunks = new AtomicReferenceArray<>(CHUNKS);
+    }
+
+    /**
+     * Returns the element with id {@code id} or null if it has not been set.
+     */
+    public T get(int id) {
+        int chunk = chunkOf(id);
+        AtomicReferenceArray<T> slots = chunks.get(chunk);
+        return slots == null ? null : slots.get(offsetOf(id, chunk));
+    }
+
+    public void set(int id, T element) {
+        int chunk = chunkOf(id);
+        slotsOf(chunk).set(offsetOf(id, chunk), element);
+    }
+
+    /**
+     * Returns the element with id {@code id}, setting it to {@code factory.apply(id)} first if it is null.
+     * Concurrent callers may both build an element, but only one of them is kept and returned to both.
+     */
+    public T computeIfAbsent(int id, IntFunction<? extends T> factory) {
+        int chunk = chunkOf(id);
+        AtomicReferenceArray<T> slots = slotsOf(chunk);
+        int offset = offsetOf(id, chunk);
+        T element = slots.get(offset);
+        if (element != null) {
+            return element;
+        }
+        T created = factory.apply(id);
+        return slots.compareAndSet(offset, null, created) ? created : slots.get(offset);
+    }
+
+    /**
+     * Returns an upper bound of the ids which have been set, so that ids below it can be walked with
+     * {@link #get(int)}.
+     */
+    public int capacity() {
+        for (int chunk = CHUNKS - 1; chunk >= 0; chunk--) {
+            if (chunks.get(chunk) != null) {
+                return (int) Math.min(Integer.MAX_VALUE, ((1L << (chunk + 1)) - 1) << FIRST_CHUNK_BITS);
+            }
+        }
+        return 0;
+    }
+
+    private AtomicReferenceArray<T> slotsOf(int chunk) {
+        AtomicReferenceArray<T> slots = chunks.get(chunk);
+        if (slots == null) {
+            chunks.compareAndSet(chunk, null, new AtomicReferenceArray<>(1 << (FIRST_CHUNK_BITS + chunk)));
+            slots = chunks.get(chunk);
+        }
+        return slots;
+    }
+
+    private static int chunkOf(int id) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros((id >>> FIRST_CHUNK_BITS) + 1);
+    }
+
+    private static int offsetOf(int id, int chunk) {
+        return id - (((1 << chunk) - 1) << FIRST_CHUNK_BITS);
+    }
+}
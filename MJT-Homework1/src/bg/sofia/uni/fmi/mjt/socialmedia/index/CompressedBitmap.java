@@ -0,0 +1,377 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative ints in the style of Roaring bitmaps.
+ * -> Values are split by their high 16 bits into containers, kept sorted by that key
+ * -> A container stores the low 16 bits either as a sorted array (sparse), as a 65536 bit bitmap (dense)
+ * or as a list of runs (consecutive values)
+ * -> Every time the cardinality of a container reaches a power of two from {@value #OPTIMIZE_FROM} on, it is
+ * converted to whichever representation is the smallest for its content, so the cost of choosing is amortized
+ * over the adds; {@link #runOptimize()} does the same for all containers at once
+ * -> The cardinality is maintained on every change, so reading it is O(1)
+ * -> The class is not thread safe
+ */
+public class CompressedBitmap {
+
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final int OPTIMIZE_FROM = 64;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    private int cardinality;
+
+    public CompressedBitmap() {
+        keys = new char[0];
+        containers = new Container[0];
+        size = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * Adds {@code value} to the set.
+     *
+     * @return true if the value was not in the set before
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            insertContainer(-index - 1, high, new ArrayContainer());
+            index = -index - 1;
+        }
+        Container container = containers[index];
+        if (container.contains(low)) {
+            return false;
+        }
+        container = container.add(low);
+        int containerCardinality = container.getCardinality();
+        if (containerCardinality >= OPTIMIZE_FROM && (containerCardinality & (containerCardinality - 1)) == 0) {
+            container = container.optimize();
+        }
+        containers[index] = container;
+        cardinality++;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns all values of the set in increasing order.
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] position = {0};
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            containers[i].forEach(low -> values[position[0]++] = high | low);
+        }
+        return values;
+    }
+
+    /**
+     * Converts every container to the representation which takes the least memory for its current content.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++) {
+            containers[i] = containers[i].optimize();
+        }
+    }
+
+    /**
+     * Returns an estimate of the heap used by the containers, not counting object headers.
+     */
+    public long getSizeInBytes() {
+        long bytes = 2L * keys.length + 8L * containers.length;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be stored!");
+        }
+    }
+
+    private abstract static class Container {
+
+        abstract boolean contains(char value);
+
+        /**
+         * Adds a value which is not in the container and returns the container which holds the result.
+         */
+        abstract Container add(char value);
+
+        abstract int getCardinality();
+
+        abstract long getSizeInBytes();
+
+        abstract int countRuns();
+
+        abstract void forEach(CharConsumer consumer);
+
+        Container optimize() {
+            int cardinality = getCardinality();
+            int runs = countRuns();
+            long runBytes = 4L * runs;
+            long arrayBytes = 2L * cardinality;
+            long bitmapBytes = 8L * BITMAP_WORDS;
+            if (runBytes < arrayBytes && runBytes < bitmapBytes) {
+                return this instanceof RunContainer ? this : RunContainer.from(this, runs);
+            }
+            if (cardinality <= ARRAY_MAX_SIZE) {
+                return this instanceof ArrayContainer ? this : ArrayContainer.from(this);
+            }
+            return this instanceof BitmapContainer ? this : BitmapContainer.from(this);
+        }
+    }
+
+    private interface CharConsumer {
+        void accept(char value);
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values = new char[4];
+        private int cardinality;
+
+        static ArrayContainer from(Container container) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(4, container.getCardinality())];
+            container.forEach(value -> result.values[result.cardinality++] = value);
+            return result;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            if (cardinality == ARRAY_MAX_SIZE) {
+                return BitmapContainer.from(this).add(value);
+            }
+            int index = -Arrays.binarySearch(values, 0, cardinality, value) - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 2L * values.length;
+        }
+
+        @Override
+        int countRuns() {
+            int runs = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (i == 0 || values[i] != values[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            return runs;
+        }
+
+        @Override
+        void forEach(CharConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(values[i]);
+            }
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+
+        static BitmapContainer from(Container container) {
+            BitmapContainer result = new BitmapContainer();
+            container.forEach(value -> {
+                result.words[value >>> 6] |= 1L << value;
+                result.cardinality++;
+            });
+            return result;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            words[value >>> 6] |= 1L << value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 8L * BITMAP_WORDS;
+        }
+
+        @Override
+        int countRuns() {
+            int runs = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                long previousBit = i == 0 ? 0 : words[i - 1] >>> 63;
+                runs += Long.bitCount(word & ~((word << 1) | previousBit));
+            }
+            return runs;
+        }
+
+        @Override
+        void forEach(CharConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept((char) ((i << 6) + Long.numberOfTrailingZeros(word)));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    private static final class RunContainer extends Container {
+
+        private char[] starts;
+        private char[] lengths;
+        private int runs;
+        private int cardinality;
+
+        static RunContainer from(Container container, int runCount) {
+            RunContainer result = new RunContainer();
+            result.starts = new char[Math.max(1, runCount)];
+            result.lengths = new char[Math.max(1, runCount)];
+            container.forEach(value -> {
+                int last = result.runs - 1;
+                if (last >= 0 && result.starts[last] + result.lengths[last] + 1 == value) {
+                    result.lengths[last]++;
+                } else {
+                    result.starts[result.runs] = value;
+                    result.lengths[result.runs] = 0;
+                    result.runs++;
+                }
+                result.cardinality++;
+            });
+            return result;
+        }
+
+        @Override
+        boolean contains(char value) {
+            int index = findRun(value);
+            return index >= 0 && value <= starts[index] + lengths[index];
+        }
+
+        @Override
+        Container add(char value) {
+            int index = findRun(value);
+            boolean extendsPrevious = index >= 0 && starts[index] + lengths[index] + 1 == value;
+            boolean extendsNext = index + 1 < runs && starts[index + 1] == value + 1;
+            if (extendsPrevious && extendsNext) {
+                lengths[index] = (char) (lengths[index] + lengths[index + 1] + 2);
+                System.arraycopy(starts, index + 2, starts, index + 1, runs - index - 2);
+                System.arraycopy(lengths, index + 2, lengths, index + 1, runs - index - 2);
+                runs--;
+            } else if (extendsPrevious) {
+                lengths[index]++;
+            } else if (extendsNext) {
+                starts[index + 1] = value;
+                lengths[index + 1]++;
+            } else {
+                if (runs == starts.length) {
+                    starts = Arrays.copyOf(starts, runs * 2);
+                    lengths = Arrays.copyOf(lengths, runs * 2);
+                }
+                int position = index + 1;
+                System.arraycopy(starts, position, starts, position + 1, runs - position);
+                System.arraycopy(lengths, position, lengths, position + 1, runs - position);
+                starts[position] = value;
+                lengths[position] = 0;
+                runs++;
+            }
+            cardinality++;
+            return this;
+        }
+
+        /**
+         * Returns the index of the last run starting at or before {@code value}, or -1 if there is none.
+         */
+        private int findRun(char value) {
+            int index = Arrays.binarySearch(starts, 0, runs, value);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 4L * starts.length;
+        }
+
+        @Override
+        int countRuns() {
+            return runs;
+        }
+
+        @Override
+        void forEach(CharConsumer consumer) {
+            for (int i = 0; i < runs; i++) {
+                for (int value = starts[i]; value <= starts[i] + lengths[i]; value++) {
+                    consumer.accept((char) value);
+                }
+            }
+        }
+    }
+}
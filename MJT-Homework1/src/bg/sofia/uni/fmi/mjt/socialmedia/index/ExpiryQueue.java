@@ -0,0 +1,109 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.ArrayList;
+
+/**
+ * Schedules items for expiry and hands them back once their deadline has passed.
+ * -> Deadlines are grouped into buckets of {@code granularity} seconds, so scheduling an item
+ * touches a single bucket and expiring a whole bucket does not look at its items one by one
+ * -> Only the bucket which contains the current moment is filtered item by item
+ * -> Deadlines and the current moment are both in epoch seconds
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class ExpiryQueue<T> {
+
+    private final long granularity;
+    private final TreeMap<Long, Bucket<T>> buckets;
+    private int size;
+
+    public ExpiryQueue(long granularity) {
+        if (granularity <= 0) {
+            throw new IllegalArgumentException("Granularity should be positive!");
+        }
+        this.granularity = granularity;
+        this.buckets = new TreeMap<>();
+    }
+
+    public void schedule(T item, long deadline) {
+        buckets.computeIfAbsent(Math.floorDiv(deadline, granularity), k -> new Bucket<>()).add(item, deadline);
+        size++;
+    }
+
+    /**
+     * Removes and returns all items whose deadline is not after {@code now}.
+     */
+    public List<T> pollExpired(long now) {
+        if (buckets.isEmpty() || buckets.firstKey() > Math.floorDiv(now, granularity)) {
+            return List.of();
+        }
+        long currentBucket = Math.floorDiv(now, granularity);
+        List<T> expired = new ArrayList<>();
+        while (!buckets.isEmpty() && buckets.firstKey() < currentBucket) {
+            Bucket<T> bucket = buckets.pollFirstEntry().getValue();
+            expired.addAll(bucket.items);
+        }
+        Map.Entry<Long, Bucket<T>> current = buckets.firstEntry();
+        if (current != null && current.getKey() == currentBucket) {
+            Bucket<T> bucket = current.getValue();
+            bucket.drainExpired(now, expired);
+            if (bucket.items.isEmpty()) {
+                buckets.pollFirstEntry();
+            }
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    /**
+     * Returns the earliest deadline of the scheduled items, or {@link Long#MAX_VALUE} if there are none.
+     */
+    public long nextDeadline() {
+        if (buckets.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        Bucket<T> first = buckets.firstEntry().getValue();
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < first.items.size(); i++) {
+            earliest = Math.min(earliest, first.deadlines[i]);
+        }
+        return earliest;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static final class Bucket<T> {
+
+        private final List<T> items = new ArrayList<>();
+        private long[] deadlines = new long[4];
+
+        private void add(T item, long deadline) {
+            if (items.size() == deadlines.length) {
+                long[] grown = new long[deadlines.length * 2];
+                System.arraycopy(deadlines, 0, grown, 0, deadlines.length);
+                deadlines = grown;
+            }
+            deadlines[items.size()] = deadline;
+            items.add(item);
+        }
+
+        private void drainExpired(long now, List<T> expired) {
+            int kept = 0;
+            for (int i = 0; i < items.size(); i++) {
+                if (deadlines[i] <= now) {
+                    expired.add(items.get(i));
+                } else {
+                    items.set(kept, items.get(i));
+                    deadlines[kept] = deadlines[i];
+                    kept++;
+                }
+            }
+            items.subList(kept, items.size()).clear();
+        }
+    }
+}
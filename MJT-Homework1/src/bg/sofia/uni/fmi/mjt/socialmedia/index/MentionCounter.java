@@ -0,0 +1,152 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Counts how many times each user is mentioned in live content and keeps the
+ * registered users bucketed by that count, so that the most mentioned one is
+ * always known without scanning.
+ * -> Registered users are kept in int arrays indexed by their id in the {@link UserDictionary}:
+ * every bucket is a doubly linked list threaded through those arrays
+ * -> Mentions of names which are not registered yet are counted by name and move
+ * into the buckets as soon as the user registers
+ */
+public class MentionCounter {
+
+    private static final int NONE = -1;
+
+    private final UserDictionary users;
+    private final Map<String, Integer> unregisteredMentions;
+    private int[] mentions;
+    private int[] next;
+    private int[] previous;
+    private int[] head;
+    private int[] tail;
+    private int maxMentions;
+
+    public MentionCounter(UserDictionary users) {
+        this.users = users;
+        unregisteredMentions = new HashMap<>();
+        mentions = new int[16];
+        next = new int[16];
+        previous = new int[16];
+        head = new int[16];
+        tail = new int[16];
+        Arrays.fill(head, NONE);
+        Arrays.fill(tail, NONE);
+        maxMentions = 0;
+    }
+
+    public void register(int userId) {
+        ensureUserCapacity(userId);
+        Integer pending = unregisteredMentions.remove(users.usernameOf(userId));
+        mentions[userId] = pending == null ? 0 : pending;
+        link(userId, mentions[userId]);
+    }
+
+    public void increment(String username) {
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            unregisteredMentions.merge(username, 1, Integer::sum);
+            return;
+        }
+        int count = mentions[userId];
+        unlink(userId, count);
+        mentions[userId] = count + 1;
+        link(userId, count + 1);
+    }
+
+    public void decrement(String username) {
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            unregisteredMentions.computeIfPresent(username, (name, count) -> count == 1 ? null : count - 1);
+            return;
+        }
+        int count = mentions[userId];
+        if (count == 0) {
+            return;
+        }
+        unlink(userId, count);
+        mentions[userId] = count - 1;
+        link(userId, count - 1);
+    }
+
+    public int getMentions(String username) {
+        int userId = users.idOf(username);
+        if (userId == UserDictionary.NOT_FOUND) {
+            return unregisteredMentions.getOrDefault(username, 0);
+        }
+        return mentions[userId];
+    }
+
+    /**
+     * Returns the id of the registered user with the most mentions or {@link UserDictionary#NOT_FOUND}
+     * if no registered user is mentioned.
+     * Ties are resolved in favour of the user who reached that number of mentions first.
+     */
+    public int getMostMentioned() {
+        if (maxMentions == 0) {
+            return UserDictionary.NOT_FOUND;
+        }
+        return head[maxMentions];
+    }
+
+    private void link(int userId, int count) {
+        if (count == 0) {
+            return;
+        }
+        ensureCountCapacity(count);
+        previous[userId] = tail[count];
+        next[userId] = NONE;
+        if (tail[count] == NONE) {
+            head[count] = userId;
+        } else {
+            next[tail[count]] = userId;
+        }
+        tail[count] = userId;
+        if (count > maxMentions) {
+            maxMentions = count;
+        }
+    }
+
+    private void unlink(int userId, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (previous[userId] == NONE) {
+            head[count] = next[userId];
+        } else {
+            next[previous[userId]] = next[userId];
+        }
+        if (next[userId] == NONE) {
+            tail[count] = previous[userId];
+        } else {
+            previous[next[userId]] = previous[userId];
+        }
+        if (head[count] == NONE && count == maxMentions) {
+            maxMentions--;
+        }
+    }
+
+    private void ensureUserCapacity(int userId) {
+        if (userId >= mentions.length) {
+            int capacity = Math.max(mentions.length * 2, userId + 1);
+            mentions = Arrays.copyOf(mentions, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+        }
+    }
+
+    private void ensureCountCapacity(int count) {
+        if (count >= head.length) {
+            int oldCapacity = head.length;
+            int capacity = Math.max(oldCapacity * 2, count + 1);
+            head = Arrays.copyOf(head, capacity);
+            tail = Arrays.copyOf(tail, capacity);
+            Arrays.fill(head, oldCapacity, capacity, NONE);
+            Arrays.fill(tail, oldCapacity, capacity, NONE);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An immutable sorted map: every update returns a new map and leaves the old one untouched.
+ * -> It is a treap; an update copies only the O(log n) nodes on the path to the changed key and shares every
+ * other node with the previous version, so keeping old versions around is cheap
+ * -> Since nothing is ever modified in place, any number of threads can read any version without locking
+ * -> Keys are ordered by the given comparator and must not be null
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class PersistentSortedMap<K, V> {
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null!");
+        }
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = comparator.compare(key, node.key);
+            if (comparison == 0) {
+                return node.value;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public PersistentSortedMap<K, V> put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null!");
+        }
+        return new PersistentSortedMap<>(comparator, insert(root, key, value));
+    }
+
+    public PersistentSortedMap<K, V> remove(K key) {
+        Node<K, V> removed = delete(root, key);
+        return removed == root ? this : new PersistentSortedMap<>(comparator, removed);
+    }
+
+    public int size() {
+        return Node.size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Returns the value of the greatest key or null if the map is empty.
+     */
+    public V lastValue() {
+        Node<K, V> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.value;
+    }
+
+    /**
+     * Iterates over the values in the order of their keys, lazily, so taking the first few is O(log n) each.
+     */
+    public Iterator<V> values(boolean descending) {
+        return new ValueIterator<>(root, descending);
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, ThreadLocalRandom.current().nextInt(), null, null);
+        }
+        int comparison = comparator.compare(key, node.key);
+        if (comparison == 0) {
+            return new Node<>(key, value, node.priority, node.left, node.right);
+        } else if (comparison < 0) {
+            Node<K, V> left = insert(node.left, key, value);
+            if (left.priority > node.priority) {
+                return new Node<>(left.key, left.value, left.priority, left.left,
+                        new Node<>(node.key, node.value, node.priority, left.right, node.right));
+            }
+            return new Node<>(node.key, node.value, node.priority, left, node.right);
+        } else {
+            Node<K, V> right = insert(node.right, key, value);
+            if (right.priority > node.priority) {
+                return new Node<>(right.key, right.value, right.priority,
+                        new Node<>(node.key, node.value, node.priority, node.left, right.left), right.right);
+            }
+            return new Node<>(node.key, node.value, node.priority, node.left, right);
+        }
+    }
+
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = comparator.compare(key, node.key);
+        if (comparison == 0) {
+            return merge(node.left, node.right);
+        } else if (comparison < 0) {
+            Node<K, V> left = delete(node.left, key);
+            return left == node.left ? node : new Node<>(node.key, node.value, node.priority, left, node.right);
+        } else {
+            Node<K, V> right = delete(node.right, key);
+            return right == node.right ? node : new Node<>(node.key, node.value, node.priority, node.left, right);
+        }
+    }
+
+    /**
+     * Joins two treaps where every key of {@code left} is smaller than every key of {@code right}.
+     */
+    private static <K, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        } else if (left.priority > right.priority) {
+            return new Node<>(left.key, left.value, left.priority, left.left, merge(left.right, right));
+        } else {
+            return new Node<>(right.key, right.value, right.priority, merge(left, right.left), right.right);
+        }
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final int priority;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int size;
+
+        private Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        private static int size(Node<?, ?> node) {
+            return node == null ? 0 : node.size;
+        }
+    }
+
+    private static final class ValueIterator<K, V> implements Iterator<V> {
+
+        private final ArrayDeque<Node<K, V>> path;
+        private final boolean descending;
+
+        private ValueIterator(Node<K, V> root, boolean descending) {
+            this.path = new ArrayDeque<>();
+            this.descending = descending;
+            descend(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = path.pop();
+            descend(descending ? node.left : node.right);
+            return node.value;
+        }
+
+        private void descend(Node<K, V> node) {
+            while (node != null) {
+                path.push(node);
+                node = descending ? node.right : node.left;
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.Iterator;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps items ordered by their time, partitioned into segments of {@code segmentSeconds} seconds.
+ * -> Every segment is a sorted array with the times of its items alongside, so a range query seeks into its
+ * first and last segment with a binary search and walks everything in between without comparisons
+ * -> Items arriving in time order are appended to the newest segment, others are inserted in their place
+ * -> Whole segments older than a moment can be dropped at once, without looking at their items
+ * -> Times are in epoch seconds; within a second items are ordered by {@code order}, which has to be
+ * consistent with their time
+ * -> The class is not thread safe
+ *
+ * @param <T> the type of the indexed items
+ */
+public class TimeRangeIndex<T> {
+
+    private static final int INITIAL_SEGMENT_SIZE = 16;
+
+    private final long segmentSeconds;
+    private final Comparator<? super T> order;
+    private final ToLongFunction<? super T> time;
+    private final TreeMap<Long, Segment<T>> segments;
+    private int size;
+
+    public TimeRangeIndex(long segmentSeconds, Comparator<? super T> order, ToLongFunction<? super T> time) {
+        if (segmentSeconds <= 0) {
+            throw new IllegalArgumentException("Segment length should be positive!");
+        } else if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null!");
+        } else if (time == null) {
+            throw new IllegalArgumentException("Time cannot be null!");
+        }
+        this.segmentSeconds = segmentSeconds;
+        this.order = order;
+        this.time = time;
+        this.segments = new TreeMap<>();
+    }
+
+    public void add(T item) {
+        long itemTime = time.applyAsLong(item);
+        segments.computeIfAbsent(Math.floorDiv(itemTime, segmentSeconds), k -> new Segment<>())
+                .insert(item, itemTime, order);
+        size++;
+    }
+
+    /**
+     * @return false if {@code item} is not in the index, e.g. because its segment has been dropped
+     */
+    public boolean remove(T item) {
+        Long key = Math.floorDiv(time.applyAsLong(item), segmentSeconds);
+        Segment<T> segment = segments.get(key);
+        if (segment == null || !segment.remove(item, order)) {
+            return false;
+        }
+        if (segment.size == 0) {
+            segments.remove(key);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Drops every segment which holds only times before {@code moment}.
+     *
+     * @return The number of dropped items
+     */
+    public int dropBefore(long moment) {
+        NavigableMap<Long, Segment<T>> dropped = segments.headMap(Math.floorDiv(moment, segmentSeconds), false);
+        int count = 0;
+        for (Segment<T> segment : dropped.values()) {
+            count += segment.size;
+        }
+        dropped.clear();
+        size -= count;
+        return count;
+    }
+
+    /**
+     * Returns the number of items whose time is in {@code [from, to)}.
+     */
+    public int count(long from, long to) {
+        if (from >= to) {
+            return 0;
+        }
+        int count = 0;
+        for (Segment<T> segment : range(from, to).values()) {
+            count += segment.lowerBound(to) - segment.lowerBound(from);
+        }
+        return count;
+    }
+
+    /**
+     * Walks the items whose time is in {@code [from, to)}, newest first.
+     */
+    public Iterator<T> newestFirst(long from, long to) {
+        Iterator<Segment<T>> remaining = from >= to ? Collections.emptyIterator()
+                : range(from, to).descendingMap().values().iterator();
+        return new Iterator<>() {
+
+            private Segment<T> segment;
+            private int index = -1;
+            private int end;
+
+            @Override
+            public boolean hasNext() {
+                while (index < end && remaining.hasNext()) {
+                    segment = remaining.next();
+                    index = segment.lowerBound(to) - 1;
+                    end = segment.lowerBound(from);
+                }
+                return index >= end;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) segment.items[index--];
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    private NavigableMap<Long, Segment<T>> range(long from, long to) {
+        return segments.subMap(Math.floorDiv(from, segmentSeconds), true, Math.floorDiv(to - 1, segmentSeconds),
+                true);
+    }
+
+    private static final class Segment<T> {
+
+        private Object[] items = new Object[INITIAL_SEGMENT_SIZE];
+        private long[] times = new long[INITIAL_SEGMENT_SIZE];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        private void insert(T item, long itemTime, Comparator<? super T> order) {
+            int index = size;
+            if (size > 0 && order.compare((T) items[size - 1], item) > 0) {
+                int found = Arrays.binarySearch((T[]) items, 0, size, item, order);
+                index = found >= 0 ? found : -found - 1;
+            }
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                times = Arrays.copyOf(times, size * 2);
+            }
+            System.arraycopy(items, index, items, index + 1, size - index);
+            System.arraycopy(times, index, times, index + 1, size - index);
+            items[index] = item;
+            times[index] = itemTime;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean remove(T item, Comparator<? super T> order) {
+            int index = Arrays.binarySearch((T[]) items, 0, size, item, order);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(items, index + 1, items, index, size - index - 1);
+            System.arraycopy(times, index + 1, times, index, size - index - 1);
+            items[--size] = null;
+            return true;
+        }
+
+        /**
+         * Returns the index of the first item whose time is not before {@code moment}.
+         */
+        private int lowerBound(long moment) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (times[middle] < moment) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
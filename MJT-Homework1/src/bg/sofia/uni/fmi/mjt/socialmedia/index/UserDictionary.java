@@ -0,0 +1,67 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.index;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns every registered username a dense int id, starting from 0, so that per-user state can live in
+ * arrays and primitive collections indexed by that id.
+ * -> The dictionary also keeps the canonical instance of every username, so the engine never holds copies
+ * -> Ids come from an atomic counter which is only advanced when the username is absent from the concurrent
+ * map, so registrations do not lock the dictionary and ids stay dense
+ * -> Usernames are stored by id in a {@link ChunkedArray}, so a registration never copies the names registered
+ * before it
+ * -> Lookups never lock and can run concurrently with registrations
+ */
+public class UserDictionary {
+
+    public static final int NOT_FOUND = -1;
+
+    private final Map<String, Integer> idByUsername;
+    private final ChunkedArray<String> usernames;
+    private final AtomicInteger nextId;
+
+    public UserDictionary() {
+        idByUsername = new ConcurrentHashMap<>();
+        usernames = new ChunkedArray<>();
+        nextId = new AtomicInteger();
+    }
+
+    /**
+     * Assigns the next free id to {@code username}.
+     *
+     * @return the id of the user or {@link #NOT_FOUND} if the username is already registered
+     */
+    public int register(String username) {
+        boolean[] added = {false};
+        int id = idByUsername.computeIfAbsent(username, k -> {
+            int assigned = nextId.getAndIncrement();
+            usernames.set(assigned, k);
+            added[0] = true;
+            return assigned;
+        });
+        return added[0] ? id : NOT_FOUND;
+    }
+
+    public int idOf(String username) {
+        Integer id = idByUsername.get(username);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    public boolean contains(String username) {
+        return idByUsername.containsKey(username);
+    }
+
+    public String usernameOf(int id) {
+        return usernames.get(id);
+    }
+
+    public int size() {
+        return idByUsername.size();
+    }
+
+    public boolean isEmpty() {
+        return idByUsername.isEmpty();
+    }
+}
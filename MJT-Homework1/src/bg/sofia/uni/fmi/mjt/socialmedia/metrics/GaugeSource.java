@@ -0,0 +1,9 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+/**
+ * Something which can report its internal sizes, e.g. an engine with its content count and index sizes.
+ */
+public interface GaugeSource {
+
+    void registerGauges(MetricsRegistry registry);
+}
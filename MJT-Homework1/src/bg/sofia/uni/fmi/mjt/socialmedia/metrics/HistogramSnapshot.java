@@ -0,0 +1,60 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+/**
+ * An immutable copy of the counts of a {@link LatencyHistogram}.
+ * Percentiles are reported as the highest value of the bucket they fall in, so they are never underestimated.
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long totalCount;
+    private final long max;
+    private final double mean;
+
+    HistogramSnapshot(long[] counts, long max, long sum) {
+        this.counts = counts;
+        this.max = max;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+        this.mean = total == 0 ? 0 : (double) sum / total;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the value below or at which {@code percentile} percent of the recorded values are.
+     *
+     * @param percentile A number between 0 and 100
+     * @throws IllegalArgumentException If {@code percentile} is outside of [0, 100]
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100!");
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+}
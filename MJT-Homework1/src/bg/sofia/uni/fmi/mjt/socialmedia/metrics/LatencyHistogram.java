@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values (latencies in nanoseconds) with a bounded relative error,
+ * in the style of HdrHistogram.
+ * -> Values below 128 get a bucket each; above that every power of two is split into 64 linear sub-buckets,
+ * so a value is reported with less than 1.6% error while the whole long range fits in a few thousand buckets
+ * -> Recording is a single atomic increment in one of several stripes, picked by the recording thread, so
+ * concurrent recorders rarely touch the same cache line
+ * -> {@link #snapshot()} adds the stripes up without stopping the recorders, so values recorded meanwhile
+ * may or may not be part of it
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+    private static final int STRIPES = Integer.highestOneBit(Math.min(16,
+            Math.max(1, Runtime.getRuntime().availableProcessors())));
+
+    private final AtomicLongArray[] stripes;
+    private final AtomicLong max;
+    private final LongAdder sum;
+
+    public LatencyHistogram() {
+        stripes = new AtomicLongArray[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        max = new AtomicLong();
+        sum = new LongAdder();
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be recorded!");
+        }
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        stripes[stripe].incrementAndGet(indexOf(value));
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+        sum.add(value);
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new HistogramSnapshot(counts, max.get(), sum.sum());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest value which falls in the bucket with index {@code index}.
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
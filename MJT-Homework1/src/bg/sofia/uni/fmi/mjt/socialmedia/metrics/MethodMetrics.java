@@ -0,0 +1,41 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latency histogram and the exception counters of a single method.
+ * Every call is recorded in the histogram, including the ones which threw.
+ */
+public class MethodMetrics {
+
+    private final String name;
+    private final LatencyHistogram latency;
+    private final Map<String, LongAdder> exceptions;
+
+    MethodMetrics(String name) {
+        this.name = name;
+        this.latency = new LatencyHistogram();
+        this.exceptions = new ConcurrentHashMap<>();
+    }
+
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+
+    public void recordException(Throwable exception) {
+        exceptions.computeIfAbsent(exception.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    MethodSnapshot snapshot(long uptimeNanos) {
+        Map<String, Long> exceptionCounts = new TreeMap<>();
+        exceptions.forEach((type, count) -> exceptionCounts.put(type, count.sum()));
+        return new MethodSnapshot(name, latency.snapshot(), exceptionCounts, uptimeNanos);
+    }
+}
@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+import java.util.Map;
+import java.util.Collections;
+
+/**
+ * The state of the metrics of a single method at the moment a {@link MetricsSnapshot} was taken.
+ */
+public class MethodSnapshot {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final String name;
+    private final HistogramSnapshot latency;
+    private final Map<String, Long> exceptions;
+    private final long uptimeNanos;
+
+    MethodSnapshot(String name, HistogramSnapshot latency, Map<String, Long> exceptions, long uptimeNanos) {
+        this.name = name;
+        this.latency = latency;
+        this.exceptions = Collections.unmodifiableMap(exceptions);
+        this.uptimeNanos = uptimeNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the latencies of the calls in nanoseconds.
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    public long getCalls() {
+        return latency.getTotalCount();
+    }
+
+    /**
+     * Returns the average number of calls per second since the metrics were created.
+     */
+    public double getCallsPerSecond() {
+        return uptimeNanos == 0 ? 0 : getCalls() * NANOS_PER_SECOND / uptimeNanos;
+    }
+
+    /**
+     * Returns how many calls threw, by the simple name of the exception class.
+     */
+    public Map<String, Long> getExceptions() {
+        return exceptions;
+    }
+
+    public long getExceptionCount() {
+        long total = 0;
+        for (long count : exceptions.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,70 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.LongSupplier;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds the metrics of every instrumented method and the registered gauges, ordered by name.
+ * -> Recording goes straight to the {@link MethodMetrics} of a method, the registry is only involved when
+ * metrics are created and when a {@link MetricsSnapshot} is pulled
+ * -> Gauges are evaluated when a snapshot is taken; a gauge which throws is reported as unavailable, so one
+ * broken gauge neither hides the others nor stops a {@link MetricsReporter}
+ */
+public class MetricsRegistry {
+
+    private final long startNanos;
+    private final ConcurrentMap<String, MethodMetrics> methods;
+    private final ConcurrentMap<String, LongSupplier> gauges;
+
+    public MetricsRegistry() {
+        startNanos = System.nanoTime();
+        methods = new ConcurrentSkipListMap<>();
+        gauges = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Returns the metrics of the method {@code name}, creating them on first use.
+     */
+    public MethodMetrics method(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null!");
+        }
+        return methods.computeIfAbsent(name, MethodMetrics::new);
+    }
+
+    /**
+     * Registers a gauge which is evaluated on every snapshot, replacing any gauge with the same name.
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null!");
+        } else if (gauge == null) {
+            throw new IllegalArgumentException("Gauge cannot be null!");
+        }
+        gauges.put(name, gauge);
+    }
+
+    public MetricsSnapshot snapshot() {
+        long uptimeNanos = System.nanoTime() - startNanos;
+        List<MethodSnapshot> methodSnapshots = new ArrayList<>(methods.size());
+        for (MethodMetrics metrics : methods.values()) {
+            methodSnapshots.add(metrics.snapshot(uptimeNanos));
+        }
+        Map<String, Long> gaugeValues = new LinkedHashMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, evaluate(gauge)));
+        return new MetricsSnapshot(System.currentTimeMillis(), methodSnapshots, gaugeValues);
+    }
+
+    private static Long evaluate(LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
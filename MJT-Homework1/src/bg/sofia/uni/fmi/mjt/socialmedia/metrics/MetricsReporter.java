@@ -0,0 +1,100 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Periodically dumps snapshots of a {@link MetricsRegistry} as text or CSV to a sink, e.g. a log or a file.
+ * -> The dumps run on a daemon thread of the reporter and never block the recorders
+ * -> In CSV format the header is written once, before the first dump
+ * -> A scheduled dump which fails, e.g. because the sink throws, is counted and skipped; the next ones still run
+ */
+public class MetricsReporter implements Closeable {
+
+    public enum Format {
+        TEXT, CSV
+    }
+
+    private final MetricsRegistry registry;
+    private final Format format;
+    private final Consumer<String> sink;
+    private final ScheduledExecutorService scheduler;
+    private boolean headerWritten;
+    private final AtomicLong failedReports;
+
+    public MetricsReporter(MetricsRegistry registry, Format format, Consumer<String> sink) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null!");
+        } else if (format == null) {
+            throw new IllegalArgumentException("Format cannot be null!");
+        } else if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null!");
+        }
+        this.registry = registry;
+        this.format = format;
+        this.sink = sink;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.headerWritten = false;
+        this.failedReports = new AtomicLong();
+    }
+
+    /**
+     * Starts dumping a snapshot every {@code period}.
+     */
+    public void start(Duration period) {
+        if (period == null || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Period should be positive!");
+        }
+        long millis = period.toMillis();
+        scheduler.scheduleAtFixedRate(this::reportOnSchedule, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns how many scheduled dumps have failed so far.
+     */
+    public long getFailedReports() {
+        return failedReports.get();
+    }
+
+    /**
+     * Dumps a snapshot right away.
+     */
+    public synchronized void report() {
+        MetricsSnapshot snapshot = registry.snapshot();
+        if (format == Format.TEXT) {
+            sink.accept(snapshot.toText());
+            return;
+        }
+        if (!headerWritten) {
+            sink.accept(MetricsSnapshot.CSV_HEADER + System.lineSeparator());
+            headerWritten = true;
+        }
+        sink.accept(snapshot.toCsv());
+    }
+
+    /**
+     * An exception escaping a task of {@link ScheduledExecutorService#scheduleAtFixedRate} cancels all the runs
+     * after it, so it is caught here.
+     */
+    private void reportOnSchedule() {
+        try {
+            report();
+        } catch (RuntimeException e) {
+            failedReports.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,110 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.metrics;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Locale;
+import java.util.Collections;
+
+/**
+ * The state of a {@link MetricsRegistry} at a moment in time.
+ * -> Latencies are in nanoseconds here and in microseconds in the text and CSV forms
+ * -> The CSV form has one row per statistic, [timestamp,metric,statistic,value], so consecutive dumps can be
+ * appended to the same file
+ * -> A gauge which could not be evaluated has a null value and is written as {@value #UNAVAILABLE}
+ */
+public class MetricsSnapshot {
+
+    public static final String CSV_HEADER = "timestamp,metric,statistic,value";
+    public static final String UNAVAILABLE = "unavailable";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    private final long timestampMillis;
+    private final List<MethodSnapshot> methods;
+    private final Map<String, Long> gauges;
+
+    MetricsSnapshot(long timestampMillis, List<MethodSnapshot> methods, Map<String, Long> gauges) {
+        this.timestampMillis = timestampMillis;
+        this.methods = Collections.unmodifiableList(methods);
+        this.gauges = Collections.unmodifiableMap(gauges);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public List<MethodSnapshot> getMethods() {
+        return methods;
+    }
+
+    public MethodSnapshot getMethod(String name) {
+        for (MethodSnapshot method : methods) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * Returns a human readable form with one line per method and one per gauge.
+     */
+    public String toText() {
+        StringBuilder builder = new StringBuilder();
+        for (MethodSnapshot method : methods) {
+            HistogramSnapshot latency = method.getLatency();
+            builder.append(String.format(Locale.ROOT, "%-24s calls=%d rate=%.1f/s errors=%d mean=%.1fus",
+                    method.getName(), method.getCalls(), method.getCallsPerSecond(), method.getExceptionCount(),
+                    latency.getMean() / NANOS_PER_MICRO));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                builder.append(String.format(Locale.ROOT, " %s=%.1fus", PERCENTILE_NAMES[i],
+                        latency.getValueAtPercentile(PERCENTILES[i]) / NANOS_PER_MICRO));
+            }
+            builder.append(String.format(Locale.ROOT, " max=%.1fus", latency.getMax() / NANOS_PER_MICRO));
+            method.getExceptions().forEach((type, count) -> builder.append(' ').append(type).append('=').append(count));
+            builder.append(System.lineSeparator());
+        }
+        gauges.forEach((name, value) -> builder.append(String.format(Locale.ROOT, "%-24s %s%n", name,
+                value == null ? UNAVAILABLE : value)));
+        return builder.toString();
+    }
+
+    /**
+     * Returns the CSV rows of the snapshot, without the {@link #CSV_HEADER}.
+     */
+    public String toCsv() {
+        StringBuilder builder = new StringBuilder();
+        for (MethodSnapshot method : methods) {
+            HistogramSnapshot latency = method.getLatency();
+            String name = method.getName();
+            appendRow(builder, name, "calls", Long.toString(method.getCalls()));
+            appendRow(builder, name, "calls_per_second", format(method.getCallsPerSecond()));
+            appendRow(builder, name, "errors", Long.toString(method.getExceptionCount()));
+            appendRow(builder, name, "mean_us", format(latency.getMean() / NANOS_PER_MICRO));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                appendRow(builder, name, PERCENTILE_NAMES[i] + "_us",
+                        format(latency.getValueAtPercentile(PERCENTILES[i]) / NANOS_PER_MICRO));
+            }
+            appendRow(builder, name, "max_us", format(latency.getMax() / NANOS_PER_MICRO));
+            method.getExceptions().forEach((type, count) -> appendRow(builder, name, type, Long.toString(count)));
+        }
+        gauges.forEach((name, value) -> appendRow(builder, name, "value",
+                value == null ? UNAVAILABLE : Long.toString(value)));
+        return builder.toString();
+    }
+
+    private void appendRow(StringBuilder builder, String metric, String statistic, String value) {
+        builder.append(timestampMillis).append(',').append(metric).append(',').append(statistic).append(',')
+                .append(value).append(System.lineSeparator());
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,434 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Append-only binary write-ahead log of the mutations of a social media engine.
+ * -> Every record is framed as [int payload length][int CRC32C of the payload][payload], where the payload
+ * starts with a one byte record type followed by its fields
+ * -> Strings are written as [int byte length][UTF-8 bytes] and dates as [long epoch second][int nano]
+ * -> Records are collected in a direct buffer and written through a {@link FileChannel}; when they are forced
+ * to the device is decided by the {@link SyncPolicy}
+ * -> If the policy bounds the delay, a force is scheduled on a shared daemon thread whenever records are left
+ * pending, so they are forced in time even if nothing is appended after them; a failure of that force is
+ * thrown by the next append
+ * -> A torn or corrupted tail, left by a crash in the middle of a write, is cut off the first time the journal
+ * is replayed or appended to
+ */
+public class Journal implements Closeable {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte REGISTER = 1;
+    private static final byte POST = 2;
+    private static final byte STORY = 3;
+    private static final byte LIKE = 4;
+    private static final byte COMMENT = 5;
+    private static final byte FOLLOW = 6;
+    private static final byte UNFOLLOW = 7;
+
+    private static final ScheduledExecutorService SYNCER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "journal-syncer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private final ByteBuffer writeBuffer;
+    private final CRC32C checksum;
+    private ByteBuffer payload;
+    private long end;
+    private boolean recovered;
+    private int unsyncedRecords;
+    private long lastSyncNanos;
+    private ScheduledFuture<?> scheduledSync;
+    private IOException syncFailure;
+
+    private Journal(FileChannel channel, SyncPolicy syncPolicy) {
+        this.channel = channel;
+        this.syncPolicy = syncPolicy;
+        this.writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.checksum = new CRC32C();
+        this.payload = ByteBuffer.allocate(256);
+        this.recovered = false;
+        this.lastSyncNanos = System.nanoTime();
+    }
+
+    public static Journal open(Path path, SyncPolicy syncPolicy) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null!");
+        } else if (syncPolicy == null) {
+            throw new IllegalArgumentException("Sync policy cannot be null!");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new Journal(channel, syncPolicy);
+    }
+
+    public synchronized void appendRegister(String username) {
+        startRecord(REGISTER);
+        putString(username);
+        finishRecord();
+    }
+
+    public synchronized void appendPost(String username, LocalDateTime publishedOn, String description,
+                                        long sequence) {
+        appendPublication(POST, username, publishedOn, description, sequence);
+    }
+
+    public synchronized void appendStory(String username, LocalDateTime publishedOn, String description,
+                                         long sequence) {
+        appendPublication(STORY, username, publishedOn, description, sequence);
+    }
+
+    public synchronized void appendLike(String username, String id, LocalDateTime likedOn) {
+        startRecord(LIKE);
+        putString(username);
+        putString(id);
+        putDate(likedOn);
+        finishRecord();
+    }
+
+    public synchronized void appendComment(String username, String text, String id, LocalDateTime commentedOn) {
+        startRecord(COMMENT);
+        putString(username);
+        putString(text);
+        putString(id);
+        putDate(commentedOn);
+        finishRecord();
+    }
+
+    public synchronized void appendFollow(String follower, String followee) {
+        startRecord(FOLLOW);
+        putString(follower);
+        putString(followee);
+        finishRecord();
+    }
+
+    public synchronized void appendUnfollow(String follower, String followee) {
+        startRecord(UNFOLLOW);
+        putString(follower);
+        putString(followee);
+        finishRecord();
+    }
+
+    /**
+     * Feeds every record of the journal to {@code handler} in append order.
+     *
+     * @return the number of replayed records
+     */
+    public synchronized long replay(JournalHandler handler) throws IOException {
+        return replay(handler, 0);
+    }
+
+    /**
+     * Feeds the records starting at byte offset {@code from}, as returned by {@link #position()}, to {@code handler}.
+     * Anything after the last complete and intact record is truncated.
+     *
+     * @return the number of replayed records
+     */
+    public synchronized long replay(JournalHandler handler, long from) throws IOException {
+        flush();
+        long size = channel.size();
+        if (from < 0 || from > size) {
+            throw new IllegalArgumentException("Position is outside of the journal!");
+        }
+        ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        readBuffer.flip();
+        long position = from;
+        long readPosition = from;
+        long records = 0;
+        while (true) {
+            if (readBuffer.remaining() < HEADER_SIZE) {
+                readPosition = refill(readBuffer, readPosition, HEADER_SIZE);
+                if (readBuffer.remaining() < HEADER_SIZE) {
+                    break;
+                }
+            }
+            int length = readBuffer.getInt(readBuffer.position());
+            int expectedChecksum = readBuffer.getInt(readBuffer.position() + Integer.BYTES);
+            if (length <= 0 || length > size - position - HEADER_SIZE) {
+                break;
+            }
+            if (readBuffer.remaining() < HEADER_SIZE + length) {
+                if (readBuffer.capacity() < HEADER_SIZE + length) {
+                    ByteBuffer grown = ByteBuffer.allocate(HEADER_SIZE + length);
+                    grown.put(readBuffer);
+                    grown.flip();
+                    readBuffer = grown;
+                }
+                readPosition = refill(readBuffer, readPosition, HEADER_SIZE + length);
+                if (readBuffer.remaining() < HEADER_SIZE + length) {
+                    break;
+                }
+            }
+            readBuffer.position(readBuffer.position() + HEADER_SIZE);
+            ByteBuffer record = readBuffer.slice();
+            record.limit(length);
+            checksum.reset();
+            checksum.update(record.duplicate());
+            if ((int) checksum.getValue() != expectedChecksum) {
+                break;
+            }
+            dispatch(record, handler);
+            readBuffer.position(readBuffer.position() + length);
+            position += HEADER_SIZE + length;
+            records++;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        end = position;
+        recovered = true;
+        return records;
+    }
+
+    /**
+     * Returns the byte offset right after the last appended record.
+     */
+    public synchronized long position() throws IOException {
+        recover();
+        return end;
+    }
+
+    /**
+     * Writes all appended records to the file and forces them to the storage device.
+     */
+    public synchronized void sync() throws IOException {
+        flush();
+        channel.force(false);
+        unsyncedRecords = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduledSync != null) {
+            scheduledSync.cancel(false);
+            scheduledSync = null;
+        }
+        try {
+            if (recovered) {
+                sync();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void appendPublication(byte type, String username, LocalDateTime publishedOn, String description,
+                                   long sequence) {
+        startRecord(type);
+        putString(username);
+        putDate(publishedOn);
+        putString(description);
+        ensurePayloadCapacity(Long.BYTES);
+        payload.putLong(sequence);
+        finishRecord();
+    }
+
+    private void startRecord(byte type) {
+        payload.clear();
+        payload.put(type);
+    }
+
+    private void finishRecord() {
+        if (syncFailure != null) {
+            IOException failure = syncFailure;
+            syncFailure = null;
+            throw new UncheckedIOException("Could not sync the journal", failure);
+        }
+        try {
+            recover();
+            payload.flip();
+            int length = payload.remaining();
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            if (writeBuffer.remaining() < HEADER_SIZE + length) {
+                flush();
+            }
+            if (writeBuffer.remaining() < HEADER_SIZE + length) {
+                ByteBuffer large = ByteBuffer.allocate(HEADER_SIZE + length);
+                large.putInt(length).putInt((int) checksum.getValue()).put(payload).flip();
+                while (large.hasRemaining()) {
+                    channel.write(large, end + (HEADER_SIZE + length) - large.remaining());
+                }
+            } else {
+                writeBuffer.putInt(length).putInt((int) checksum.getValue()).put(payload);
+            }
+            end += HEADER_SIZE + length;
+            unsyncedRecords++;
+            long millisSinceSync = (System.nanoTime() - lastSyncNanos) / 1_000_000;
+            if (syncPolicy.shouldSync(unsyncedRecords, millisSinceSync)) {
+                sync();
+            } else if (scheduledSync == null && syncPolicy.isDelayBounded()) {
+                scheduleSync(syncPolicy.getMaxDelayMillis() - millisSinceSync);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the journal", e);
+        }
+    }
+
+    private void scheduleSync(long delayMillis) {
+        scheduledSync = SYNCER.schedule(this::syncIfDue, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forces the pending records once the delay of the policy has passed since the last force.
+     */
+    private synchronized void syncIfDue() {
+        scheduledSync = null;
+        if (unsyncedRecords == 0 || !channel.isOpen()) {
+            return;
+        }
+        long millisSinceSync = (System.nanoTime() - lastSyncNanos) / 1_000_000;
+        if (millisSinceSync < syncPolicy.getMaxDelayMillis()) {
+            scheduleSync(syncPolicy.getMaxDelayMillis() - millisSinceSync);
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            syncFailure = e;
+        }
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        long writePosition = end - writeBuffer.remaining();
+        while (writeBuffer.hasRemaining()) {
+            writePosition += channel.write(writeBuffer, writePosition);
+        }
+        writeBuffer.clear();
+    }
+
+    private void recover() throws IOException {
+        if (!recovered) {
+            replay(new SkippingHandler(), 0);
+        }
+    }
+
+    private long refill(ByteBuffer buffer, long readPosition, int needed) throws IOException {
+        buffer.compact();
+        long position = readPosition;
+        while (buffer.position() < needed) {
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.flip();
+        return position;
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensurePayloadCapacity(Integer.BYTES + bytes.length);
+        payload.putInt(bytes.length).put(bytes);
+    }
+
+    private void putDate(LocalDateTime date) {
+        ensurePayloadCapacity(Long.BYTES + Integer.BYTES);
+        payload.putLong(date.toEpochSecond(ZoneOffset.UTC)).putInt(date.getNano());
+    }
+
+    private void ensurePayloadCapacity(int bytes) {
+        if (payload.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(payload.capacity() * 2, payload.position() + bytes));
+            payload.flip();
+            grown.put(payload);
+            payload = grown;
+        }
+    }
+
+    private static void dispatch(ByteBuffer record, JournalHandler handler) {
+        byte type = record.get();
+        switch (type) {
+            case REGISTER:
+                handler.onRegister(getString(record));
+                break;
+            case POST:
+                handler.onPost(getString(record), getDate(record), getString(record), record.getLong());
+                break;
+            case STORY:
+                handler.onStory(getString(record), getDate(record), getString(record), record.getLong());
+                break;
+            case LIKE:
+                handler.onLike(getString(record), getString(record), getDate(record));
+                break;
+            case COMMENT:
+                handler.onComment(getString(record), getString(record), getString(record), getDate(record));
+                break;
+            case FOLLOW:
+                handler.onFollow(getString(record), getString(record));
+                break;
+            case UNFOLLOW:
+                handler.onUnfollow(getString(record), getString(record));
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime getDate(ByteBuffer record) {
+        long epochSecond = record.getLong();
+        int nano = record.getInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static final class SkippingHandler implements JournalHandler {
+
+        @Override
+        public void onRegister(String username) {
+        }
+
+        @Override
+        public void onPost(String username, LocalDateTime publishedOn, String description, long sequence) {
+        }
+
+        @Override
+        public void onStory(String username, LocalDateTime publishedOn, String description, long sequence) {
+        }
+
+        @Override
+        public void onLike(String username, String id, LocalDateTime likedOn) {
+        }
+
+        @Override
+        public void onComment(String username, String text, String id, LocalDateTime commentedOn) {
+        }
+
+        @Override
+        public void onFollow(String follower, String followee) {
+        }
+
+        @Override
+        public void onUnfollow(String follower, String followee) {
+        }
+    }
+}
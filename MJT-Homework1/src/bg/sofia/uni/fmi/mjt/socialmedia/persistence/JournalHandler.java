@@ -0,0 +1,23 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.persistence;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives the records of a {@link Journal} in the order in which they were appended.
+ */
+public interface JournalHandler {
+
+    void onRegister(String username);
+
+    void onPost(String username, LocalDateTime publishedOn, String description, long sequence);
+
+    void onStory(String username, LocalDateTime publishedOn, String description, long sequence);
+
+    void onLike(String username, String id, LocalDateTime likedOn);
+
+    void onComment(String username, String text, String id, LocalDateTime commentedOn);
+
+    void onFollow(String follower, String followee);
+
+    void onUnfollow(String follower, String followee);
+}
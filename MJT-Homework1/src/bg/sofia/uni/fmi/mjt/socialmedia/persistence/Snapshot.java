@@ -0,0 +1,382 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.zip.CRC32C;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Story;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Comment;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityType;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SnapshotImage.ContentImage;
+
+/**
+ * Versioned binary image of the whole state of an engine, used to start without replaying the full journal.
+ * -> Layout: [header][users with their activity][content][follow edges][int CRC32C of everything before it]
+ * -> The header holds a magic number, the format version, the journal position the snapshot covers, the next
+ * content sequence and the number of users and content items
+ * -> Users refer to each other by their dense ids, strings are [int byte length][UTF-8 bytes] and dates are
+ * [long epoch second][int nano] in UTC, as in the {@link Journal}
+ * -> The file is written and read through memory-mapped windows, so neither side copies it through
+ * intermediate buffers, and it only replaces the previous snapshot once it is complete
+ * -> Version 1 snapshots, written before there were follow edges, are still read
+ */
+public final class Snapshot {
+
+    static final int MAGIC = 0x534D4953;
+    static final int VERSION = 2;
+    private static final int FIRST_VERSION_WITH_FOLLOWS = 2;
+
+    private static final long WINDOW_SIZE = 64L << 20;
+    private static final byte POST = 1;
+    private static final byte STORY = 2;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Writes {@code image} to {@code path}, replacing any previous snapshot there atomically.
+     */
+    public static void write(Path path, SnapshotImage image) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null!");
+        } else if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null!");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MappedWriter writer = new MappedWriter(channel);
+                writeImage(writer, image);
+                writer.finish();
+            } catch (SnapshotWriteException e) {
+                throw e.getCause();
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Feeds the state stored in the snapshot at {@code path} to {@code handler}.
+     *
+     * @return the journal position up to which the snapshot covers the state
+     * @throws IOException If the file cannot be read, is not a snapshot or is corrupted
+     */
+    public static long read(Path path, SnapshotHandler handler) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null!");
+        } else if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null!");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedReader reader = new MappedReader(channel);
+            reader.verify();
+            if (reader.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            int version = reader.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long journalPosition = reader.getLong();
+            long nextSequence = reader.getLong();
+            int userCount = reader.getInt();
+            int contentCount = reader.getInt();
+            handler.onStart(nextSequence);
+            readUsers(reader, userCount, handler);
+            for (int i = 0; i < contentCount; i++) {
+                readContent(reader, handler);
+            }
+            if (version >= FIRST_VERSION_WITH_FOLLOWS) {
+                int follows = reader.getInt();
+                for (int i = 0; i < follows; i++) {
+                    handler.onFollow(reader.getInt(), reader.getInt());
+                }
+            }
+            return journalPosition;
+        }
+    }
+
+    private static void writeImage(MappedWriter writer, SnapshotImage image) {
+        writer.putInt(MAGIC);
+        writer.putInt(VERSION);
+        writer.putLong(image.getJournalPosition());
+        writer.putLong(image.getNextSequence());
+        writer.putInt(image.getUserCount());
+        writer.putInt(image.getContents().size());
+        for (int userId = 0; userId < image.getUserCount(); userId++) {
+            writer.putString(image.getUsername(userId));
+            int count = image.getActivityCount(userId);
+            writer.putInt(count);
+            image.getActivityLog(userId).forEach(count, (type, epochSecond, id, text) -> {
+                writer.putByte((byte) type.ordinal());
+                writer.putLong(epochSecond);
+                writer.putString(id);
+                if (type == ActivityType.COMMENT) {
+                    writer.putString(text);
+                }
+            });
+        }
+        for (ContentImage contentImage : image.getContents()) {
+            AbstractContent content = contentImage.getContent();
+            writer.putByte(content instanceof Story ? STORY : POST);
+            writer.putInt(image.getUserId(content.getCreatorsUsername()));
+            writer.putLong(content.getSequence());
+            writer.putDate(content.getPublicationDate());
+            writer.putString(content.getDescription());
+            writer.putInts(contentImage.getLikedBy());
+            int comments = contentImage.getNumberOfComments();
+            writer.putInt(comments);
+            Iterator<Comment> iterator = content.getComments().iterator();
+            for (int i = 0; i < comments; i++) {
+                Comment comment = iterator.next();
+                writer.putInt(image.getUserId(comment.getUsername()));
+                writer.putString(comment.getText());
+            }
+        }
+        int[] follows = image.getFollows();
+        writer.putInt(follows.length / 2);
+        for (int follow : follows) {
+            writer.putInt(follow);
+        }
+    }
+
+    private static void readUsers(MappedReader reader, int userCount, SnapshotHandler handler) throws IOException {
+        ActivityType[] types = ActivityType.values();
+        for (int userId = 0; userId < userCount; userId++) {
+            handler.onUser(reader.getString());
+            int count = reader.getInt();
+            for (int i = 0; i < count; i++) {
+                ActivityType type = types[reader.getByte()];
+                long epochSecond = reader.getLong();
+                String id = reader.getString();
+                String text = type == ActivityType.COMMENT ? reader.getString() : null;
+                handler.onActivity(userId, type, epochSecond, id, text);
+            }
+        }
+    }
+
+    private static void readContent(MappedReader reader, SnapshotHandler handler) throws IOException {
+        boolean story = reader.getByte() == STORY;
+        int creatorId = reader.getInt();
+        long sequence = reader.getLong();
+        LocalDateTime publishedOn = reader.getDate();
+        String description = reader.getString();
+        int[] likedBy = reader.getInts();
+        int comments = reader.getInt();
+        int[] commenterIds = new int[comments];
+        String[] commentTexts = new String[comments];
+        for (int i = 0; i < comments; i++) {
+            commenterIds[i] = reader.getInt();
+            commentTexts[i] = reader.getString();
+        }
+        handler.onContent(story, creatorId, publishedOn, description, sequence, likedBy, commenterIds,
+                commentTexts);
+    }
+
+    /**
+     * Writes sequentially through consecutive mapped windows of the file, growing it as needed.
+     */
+    private static final class MappedWriter {
+
+        private final FileChannel channel;
+        private final CRC32C checksum;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        private MappedWriter(FileChannel channel) {
+            this.channel = channel;
+            this.checksum = new CRC32C();
+            this.windowStart = 0;
+        }
+
+        private void putByte(byte value) {
+            ensure(Byte.BYTES);
+            window.put(value);
+        }
+
+        private void putInt(int value) {
+            ensure(Integer.BYTES);
+            window.putInt(value);
+        }
+
+        private void putLong(long value) {
+            ensure(Long.BYTES);
+            window.putLong(value);
+        }
+
+        private void putInts(int[] values) {
+            putInt(values.length);
+            ensure((long) Integer.BYTES * values.length);
+            window.asIntBuffer().put(values);
+            window.position(window.position() + Integer.BYTES * values.length);
+        }
+
+        private void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES + bytes.length);
+            window.putInt(bytes.length).put(bytes);
+        }
+
+        private void putDate(LocalDateTime date) {
+            ensure(Long.BYTES + Integer.BYTES);
+            window.putLong(date.toEpochSecond(ZoneOffset.UTC)).putInt(date.getNano());
+        }
+
+        private void ensure(long bytes) {
+            if (window != null && window.remaining() >= bytes) {
+                return;
+            }
+            try {
+                long start = position();
+                closeWindow();
+                windowStart = start;
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(WINDOW_SIZE, bytes));
+            } catch (IOException e) {
+                throw new SnapshotWriteException(e);
+            }
+        }
+
+        private long position() {
+            return window == null ? windowStart : windowStart + window.position();
+        }
+
+        private void closeWindow() {
+            if (window != null) {
+                window.force();
+                checksum.update(window.duplicate().flip());
+            }
+        }
+
+        /**
+         * Appends the checksum, cuts the unused end of the last window and forces the file to the device.
+         */
+        private void finish() throws IOException {
+            long end = position();
+            closeWindow();
+            window = null;
+            ByteBuffer footer = ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).flip();
+            while (footer.hasRemaining()) {
+                channel.write(footer, end + Integer.BYTES - footer.remaining());
+            }
+            channel.truncate(end + Integer.BYTES);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads sequentially through consecutive read-only mapped windows of the file.
+     */
+    private static final class MappedReader {
+
+        private final FileChannel channel;
+        private final long end;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private byte[] scratch;
+
+        private MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.end = channel.size() - Integer.BYTES;
+            this.windowStart = 0;
+            this.scratch = new byte[256];
+        }
+
+        /**
+         * Checks the stored checksum against the content of the file.
+         */
+        private void verify() throws IOException {
+            if (end < 0) {
+                throw new IOException("Snapshot is truncated");
+            }
+            CRC32C checksum = new CRC32C();
+            for (long start = 0; start < end; start += WINDOW_SIZE) {
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, end - start)));
+            }
+            int expected = channel.map(FileChannel.MapMode.READ_ONLY, end, Integer.BYTES).getInt();
+            if ((int) checksum.getValue() != expected) {
+                throw new IOException("Snapshot is corrupted");
+            }
+        }
+
+        private byte getByte() throws IOException {
+            ensure(Byte.BYTES);
+            return window.get();
+        }
+
+        private int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        private long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return window.getLong();
+        }
+
+        private int[] getInts() throws IOException {
+            int[] values = new int[getInt()];
+            ensure((long) Integer.BYTES * values.length);
+            window.asIntBuffer().get(values);
+            window.position(window.position() + Integer.BYTES * values.length);
+            return values;
+        }
+
+        private String getString() throws IOException {
+            int length = getInt();
+            ensure(length);
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private LocalDateTime getDate() throws IOException {
+            ensure(Long.BYTES + Integer.BYTES);
+            return LocalDateTime.ofEpochSecond(window.getLong(), window.getInt(), ZoneOffset.UTC);
+        }
+
+        private void ensure(long bytes) throws IOException {
+            if (window != null && window.remaining() >= bytes) {
+                return;
+            }
+            long start = window == null ? windowStart : windowStart + window.position();
+            if (bytes < 0 || end - start < bytes) {
+                throw new IOException("Snapshot is truncated");
+            }
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(Math.max(WINDOW_SIZE, bytes), end - start));
+        }
+    }
+
+    /**
+     * Carries an {@link IOException} out of the activity log visitor, which cannot throw checked exceptions.
+     */
+    private static final class SnapshotWriteException extends RuntimeException {
+
+        private SnapshotWriteException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.persistence;
+
+import java.time.LocalDateTime;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityType;
+
+/**
+ * Receives the state stored in a {@link Snapshot}.
+ * -> Users come first, in the order of their ids, so every user id passed afterwards is already known
+ * -> The activity of every user is passed oldest first
+ * -> Follow edges come last, after all content, so following can backfill timelines from the loaded content
+ */
+public interface SnapshotHandler {
+
+    void onStart(long nextSequence);
+
+    void onUser(String username);
+
+    void onActivity(int userId, ActivityType type, long epochSecond, String id, String text);
+
+    /**
+     * @param story         Whether the content is a story or a post
+     * @param creatorId     The id of the user who published the content
+     * @param likedBy       The ids of the users who liked the content
+     * @param commenterIds  The ids of the users who commented, in the order of the comments
+     * @param commentTexts  The texts of the comments
+     */
+    void onContent(boolean story, int creatorId, LocalDateTime publishedOn, String description, long sequence,
+                   int[] likedBy, int[] commenterIds, String[] commentTexts);
+
+    void onFollow(int followerId, int followeeId);
+}
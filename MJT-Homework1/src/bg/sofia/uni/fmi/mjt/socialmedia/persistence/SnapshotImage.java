@@ -0,0 +1,128 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.persistence;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+import bg.sofia.uni.fmi.mjt.socialmedia.activity.ActivityLog;
+import bg.sofia.uni.fmi.mjt.socialmedia.index.UserDictionary;
+
+/**
+ * A point-in-time view of the state of an engine which can be written by {@link Snapshot} on another thread.
+ * -> Capturing it only copies what later mutations would overwrite: the set of live content and the likes of
+ * every content item
+ * -> Users, activity logs and comments are append-only, so only their current sizes are recorded and the
+ * entries are read while the snapshot is being written
+ */
+public class SnapshotImage {
+
+    private final long journalPosition;
+    private final long nextSequence;
+    private final UserDictionary users;
+    private final int userCount;
+    private final List<ActivityLog> activityLogs;
+    private final int[] activityCounts;
+    private final List<ContentImage> contents;
+    private int[] follows;
+
+    /**
+     * @param journalPosition The position in the journal up to which the captured state is persisted
+     * @param nextSequence    The sequence which the next published content would get
+     * @param users           The registered users, all of which are captured
+     * @param activityLogs    The activity log of every user, indexed by user id
+     */
+    public SnapshotImage(long journalPosition, long nextSequence, UserDictionary users,
+                         List<ActivityLog> activityLogs) {
+        if (users == null) {
+            throw new IllegalArgumentException("Users cannot be null!");
+        } else if (activityLogs == null) {
+            throw new IllegalArgumentException("Activity logs cannot be null!");
+        }
+        this.journalPosition = journalPosition;
+        this.nextSequence = nextSequence;
+        this.users = users;
+        this.userCount = activityLogs.size();
+        this.activityLogs = new ArrayList<>(activityLogs);
+        this.activityCounts = new int[userCount];
+        for (int i = 0; i < userCount; i++) {
+            activityCounts[i] = activityLogs.get(i).size();
+        }
+        this.contents = new ArrayList<>();
+        this.follows = new int[0];
+    }
+
+    public void addContent(AbstractContent content) {
+        contents.add(new ContentImage(content, content.getLikedBy(), content.getNumberOfComments()));
+    }
+
+    /**
+     * @param follows The follow edges as pairs of follower and followee ids
+     */
+    public void setFollows(int[] follows) {
+        if (follows == null || follows.length % 2 != 0) {
+            throw new IllegalArgumentException("Follows should be pairs of user ids!");
+        }
+        this.follows = follows;
+    }
+
+    long getJournalPosition() {
+        return journalPosition;
+    }
+
+    long getNextSequence() {
+        return nextSequence;
+    }
+
+    int getUserCount() {
+        return userCount;
+    }
+
+    String getUsername(int userId) {
+        return users.usernameOf(userId);
+    }
+
+    int getUserId(String username) {
+        return users.idOf(username);
+    }
+
+    ActivityLog getActivityLog(int userId) {
+        return activityLogs.get(userId);
+    }
+
+    int getActivityCount(int userId) {
+        return activityCounts[userId];
+    }
+
+    List<ContentImage> getContents() {
+        return contents;
+    }
+
+    int[] getFollows() {
+        return follows;
+    }
+
+    static final class ContentImage {
+
+        private final AbstractContent content;
+        private final int[] likedBy;
+        private final int numberOfComments;
+
+        private ContentImage(AbstractContent content, int[] likedBy, int numberOfComments) {
+            this.content = content;
+            this.likedBy = likedBy;
+            this.numberOfComments = numberOfComments;
+        }
+
+        AbstractContent getContent() {
+            return content;
+        }
+
+        int[] getLikedBy() {
+            return likedBy;
+        }
+
+        int getNumberOfComments() {
+            return numberOfComments;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.persistence;
+
+/**
+ * Decides when records appended to a {@link Journal} are forced to the storage device.
+ * -> {@link #always()} forces every record before the mutating call returns
+ * -> {@link #grouped(int, long)} forces once {@code maxRecords} records are pending or {@code maxDelayMillis}
+ * have passed since the last force, so one fsync is shared by a whole group of records; the journal forces
+ * pending records when the delay passes even if nothing else is appended, so at most {@code maxDelayMillis}
+ * of acknowledged records can be lost
+ * -> {@link #never()} leaves it to the operating system; records are only forced by {@link Journal#sync()}
+ * and {@link Journal#close()}
+ */
+public final class SyncPolicy {
+
+    private final int maxRecords;
+    private final long maxDelayMillis;
+
+    private SyncPolicy(int maxRecords, long maxDelayMillis) {
+        this.maxRecords = maxRecords;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public static SyncPolicy always() {
+        return new SyncPolicy(1, 0);
+    }
+
+    public static SyncPolicy grouped(int maxRecords, long maxDelayMillis) {
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("Max records should be positive!");
+        } else if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Max delay cannot be negative!");
+        }
+        return new SyncPolicy(maxRecords, maxDelayMillis);
+    }
+
+    public static SyncPolicy never() {
+        return new SyncPolicy(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Returns whether pending records have to be forced within {@link #getMaxDelayMillis()}.
+     */
+    boolean isDelayBounded() {
+        return maxDelayMillis != Long.MAX_VALUE;
+    }
+
+    boolean shouldSync(int pendingRecords, long millisSinceLastSync) {
+        return pendingRecords >= maxRecords || millisSinceLastSync >= maxDelayMillis;
+    }
+}
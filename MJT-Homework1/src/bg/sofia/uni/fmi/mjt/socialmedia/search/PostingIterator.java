@@ -0,0 +1,217 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Walks the document ids matching a query in increasing order.
+ * -> {@link #doc()} is -1 before the first call and {@link #NO_MORE_DOCS} once the iterator is exhausted
+ * -> {@link #advance(int)} jumps to the first document not smaller than its target, which lets intersections
+ * skip whole blocks of a posting list instead of stepping through them
+ */
+abstract class PostingIterator {
+
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    abstract int doc();
+
+    abstract int next();
+
+    /**
+     * Moves to the first document which is not smaller than {@code target}.
+     * If the current document already is, the iterator does not move.
+     */
+    abstract int advance(int target);
+
+    /**
+     * Returns an upper bound of the number of documents the iterator yields, used to pick the order in which
+     * the iterators of an intersection are driven.
+     */
+    abstract long cost();
+
+    static PostingIterator empty() {
+        return new All(0);
+    }
+
+    static PostingIterator all(int maxDoc) {
+        return new All(maxDoc);
+    }
+
+    static PostingIterator and(PostingIterator[] required, PostingIterator[] excluded) {
+        return new And(required, excluded);
+    }
+
+    static PostingIterator or(PostingIterator[] children) {
+        return children.length == 1 ? children[0] : new Or(children);
+    }
+
+    /**
+     * Returns the first index in [{@code from}, {@code to}) of the strictly increasing {@code values} whose value
+     * is not smaller than {@code target} or {@code to} if there is none, probing 1, 2, 4... positions ahead
+     * before the binary search.
+     */
+    static int gallop(int[] values, int from, int to, int target) {
+        if (from >= to || values[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < to && values[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, to);
+        int index = Arrays.binarySearch(values, low + 1, high, target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * All documents below {@code maxDoc}, the base of negations without positive terms.
+     */
+    private static final class All extends PostingIterator {
+
+        private final int maxDoc;
+        private int doc = -1;
+
+        private All(int maxDoc) {
+            this.maxDoc = maxDoc;
+        }
+
+        @Override
+        int doc() {
+            return doc;
+        }
+
+        @Override
+        int next() {
+            return advance(doc + 1);
+        }
+
+        @Override
+        int advance(int target) {
+            if (target <= doc) {
+                return doc;
+            }
+            doc = target < maxDoc ? target : NO_MORE_DOCS;
+            return doc;
+        }
+
+        @Override
+        long cost() {
+            return maxDoc;
+        }
+    }
+
+    /**
+     * Leapfrogs over the required iterators, cheapest first, so the rarest term decides which documents the
+     * others are asked about, then drops the documents matched by any excluded iterator.
+     */
+    private static final class And extends PostingIterator {
+
+        private final PostingIterator[] required;
+        private final PostingIterator[] excluded;
+        private int doc = -1;
+
+        private And(PostingIterator[] required, PostingIterator[] excluded) {
+            this.required = required.clone();
+            Arrays.sort(this.required, Comparator.comparingLong(PostingIterator::cost));
+            this.excluded = excluded;
+        }
+
+        @Override
+        int doc() {
+            return doc;
+        }
+
+        @Override
+        int next() {
+            return doc == NO_MORE_DOCS ? doc : advance(doc + 1);
+        }
+
+        @Override
+        int advance(int target) {
+            if (target <= doc) {
+                return doc;
+            }
+            PostingIterator lead = required[0];
+            int candidate = lead.advance(target);
+            while (candidate != NO_MORE_DOCS) {
+                int next = matchOthers(candidate);
+                if (next == candidate) {
+                    doc = candidate;
+                    return doc;
+                }
+                candidate = lead.advance(next);
+            }
+            doc = NO_MORE_DOCS;
+            return doc;
+        }
+
+        /**
+         * Returns {@code candidate} if every other iterator agrees on it or the next document worth trying.
+         */
+        private int matchOthers(int candidate) {
+            for (int i = 1; i < required.length; i++) {
+                int other = required[i].advance(candidate);
+                if (other != candidate) {
+                    return other;
+                }
+            }
+            for (PostingIterator iterator : excluded) {
+                if (iterator.advance(candidate) == candidate) {
+                    return candidate + 1;
+                }
+            }
+            return candidate;
+        }
+
+        @Override
+        long cost() {
+            return required[0].cost();
+        }
+    }
+
+    private static final class Or extends PostingIterator {
+
+        private final PostingIterator[] children;
+        private int doc = -1;
+
+        private Or(PostingIterator[] children) {
+            this.children = children;
+        }
+
+        @Override
+        int doc() {
+            return doc;
+        }
+
+        @Override
+        int next() {
+            return doc == NO_MORE_DOCS ? doc : advance(doc + 1);
+        }
+
+        @Override
+        int advance(int target) {
+            if (target <= doc) {
+                return doc;
+            }
+            int min = NO_MORE_DOCS;
+            for (PostingIterator child : children) {
+                min = Math.min(min, child.advance(target));
+            }
+            doc = min;
+            return doc;
+        }
+
+        @Override
+        long cost() {
+            long cost = 0;
+            for (PostingIterator child : children) {
+                cost += child.cost();
+            }
+            return cost;
+        }
+    }
+}
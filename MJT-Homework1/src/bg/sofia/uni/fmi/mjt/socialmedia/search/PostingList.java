@@ -0,0 +1,298 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.search;
+
+import java.util.Arrays;
+
+/**
+ * The increasing document ids of one term, compressed.
+ * -> Ids are appended to an uncompressed tail which is sealed into a block once it holds {@link #BLOCK_SIZE} ids
+ * -> A block keeps its first id in the skip table and the gaps between the others as varints, so dense lists
+ * take about a byte per id
+ * -> The skip table lets {@link PostingIterator#advance(int)} gallop over blocks and decode only the block
+ * which contains its target
+ * -> Ids added out of order, e.g. when an old content item gets its first comment with a word, wait in a small
+ * sorted array which is merged into the blocks once it grows past an eighth of the list
+ * -> The class is not thread safe
+ */
+final class PostingList {
+
+    static final int BLOCK_SIZE = 128;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private byte[] data;
+    private int length;
+    private int[] blockFirst;
+    private int[] blockOffset;
+    private int blocks;
+    private int[] tail;
+    private int tailSize;
+    private int[] pending;
+    private int pendingSize;
+    private int last;
+    private int size;
+
+    PostingList() {
+        data = new byte[0];
+        blockFirst = new int[0];
+        blockOffset = new int[0];
+        tail = new int[INITIAL_CAPACITY];
+        pending = new int[0];
+        last = -1;
+    }
+
+    /**
+     * Adds the non-negative {@code doc}.
+     *
+     * @return true if the list did not contain it
+     */
+    boolean add(int doc) {
+        if (doc > last) {
+            append(doc);
+            return true;
+        } else if (doc == last || contains(doc)) {
+            return false;
+        }
+        int index = -Arrays.binarySearch(pending, 0, pendingSize, doc) - 1;
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(INITIAL_CAPACITY, pendingSize * 2));
+        }
+        System.arraycopy(pending, index, pending, index + 1, pendingSize - index);
+        pending[index] = doc;
+        pendingSize++;
+        size++;
+        if (pendingSize > Math.max(BLOCK_SIZE, size >> 3)) {
+            merge();
+        }
+        return true;
+    }
+
+    boolean contains(int doc) {
+        if (pendingSize > 0 && Arrays.binarySearch(pending, 0, pendingSize, doc) >= 0) {
+            return true;
+        }
+        return new Cursor().advance(doc) == doc;
+    }
+
+    int size() {
+        return size;
+    }
+
+    PostingIterator iterator() {
+        if (pendingSize == 0) {
+            return new Cursor();
+        }
+        return PostingIterator.or(new PostingIterator[] {new Cursor(), new ArrayIterator(pending, pendingSize)});
+    }
+
+    long getSizeInBytes() {
+        return 64 + data.length + 4L * (blockFirst.length + blockOffset.length + tail.length + pending.length);
+    }
+
+    private void append(int doc) {
+        if (tailSize == tail.length) {
+            tail = Arrays.copyOf(tail, Math.min(BLOCK_SIZE, tailSize * 2));
+        }
+        tail[tailSize++] = doc;
+        last = doc;
+        size++;
+        if (tailSize == BLOCK_SIZE) {
+            seal();
+        }
+    }
+
+    /**
+     * Encodes the full tail as a new block.
+     */
+    private void seal() {
+        if (blocks == blockFirst.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, blocks + (blocks >> 1));
+            blockFirst = Arrays.copyOf(blockFirst, capacity);
+            blockOffset = Arrays.copyOf(blockOffset, capacity);
+        }
+        blockFirst[blocks] = tail[0];
+        blockOffset[blocks] = length;
+        blocks++;
+        for (int i = 1; i < BLOCK_SIZE; i++) {
+            writeVarint(tail[i] - tail[i - 1]);
+        }
+        tailSize = 0;
+    }
+
+    private void writeVarint(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(BLOCK_SIZE, data.length + (data.length >> 1) + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Re-encodes the list with the pending ids in their place.
+     */
+    private void merge() {
+        int[] merged = new int[size];
+        int count = 0;
+        PostingIterator iterator = iterator();
+        for (int doc = iterator.next(); doc != PostingIterator.NO_MORE_DOCS; doc = iterator.next()) {
+            merged[count++] = doc;
+        }
+        length = 0;
+        blocks = 0;
+        tailSize = 0;
+        pending = new int[0];
+        pendingSize = 0;
+        last = -1;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            append(merged[i]);
+        }
+    }
+
+    /**
+     * Walks the sealed blocks and then the tail, decoding one block at a time.
+     */
+    private final class Cursor extends PostingIterator {
+
+        private final int[] buffer;
+        private int bufferSize;
+        private int block;
+        private int index;
+        private int doc;
+
+        private Cursor() {
+            buffer = new int[BLOCK_SIZE];
+            block = -1;
+            doc = -1;
+        }
+
+        @Override
+        int doc() {
+            return doc;
+        }
+
+        @Override
+        int next() {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            } else if (index + 1 < bufferSize) {
+                doc = buffer[++index];
+                return doc;
+            }
+            return load(block + 1) ? doc : NO_MORE_DOCS;
+        }
+
+        @Override
+        int advance(int target) {
+            if (target <= doc) {
+                return doc;
+            } else if (target == NO_MORE_DOCS) {
+                doc = NO_MORE_DOCS;
+                return doc;
+            } else if (bufferSize > 0 && buffer[bufferSize - 1] >= target) {
+                index = gallop(buffer, index, bufferSize, target);
+                doc = buffer[index];
+                return doc;
+            } else if (block >= blocks) {
+                doc = NO_MORE_DOCS;
+                return doc;
+            }
+            int from = block + 1;
+            int candidate = gallop(blockFirst, from, blocks, target + 1) - 1;
+            if (candidate == blocks - 1 && tailSize > 0 && tail[0] <= target) {
+                candidate = blocks;
+            }
+            if (!load(Math.max(from, candidate))) {
+                return NO_MORE_DOCS;
+            }
+            index = gallop(buffer, 0, bufferSize, target);
+            if (index == bufferSize) {
+                return load(block + 1) ? doc : NO_MORE_DOCS;
+            }
+            doc = buffer[index];
+            return doc;
+        }
+
+        @Override
+        long cost() {
+            return size;
+        }
+
+        /**
+         * Decodes {@code next}, the index of a block or {@code blocks} for the tail, and moves to its first id.
+         */
+        private boolean load(int next) {
+            block = next;
+            index = 0;
+            if (next < blocks) {
+                int value = blockFirst[next];
+                int position = blockOffset[next];
+                buffer[0] = value;
+                for (int i = 1; i < BLOCK_SIZE; i++) {
+                    int gap = 0;
+                    int shift = 0;
+                    byte current;
+                    do {
+                        current = data[position++];
+                        gap |= (current & 0x7F) << shift;
+                        shift += 7;
+                    } while (current < 0);
+                    value += gap;
+                    buffer[i] = value;
+                }
+                bufferSize = BLOCK_SIZE;
+            } else if (next == blocks && tailSize > 0) {
+                System.arraycopy(tail, 0, buffer, 0, tailSize);
+                bufferSize = tailSize;
+            } else {
+                block = blocks + 1;
+                bufferSize = 0;
+                doc = NO_MORE_DOCS;
+                return false;
+            }
+            doc = buffer[0];
+            return true;
+        }
+    }
+
+    private static final class ArrayIterator extends PostingIterator {
+
+        private final int[] docs;
+        private final int size;
+        private int index;
+        private int doc;
+
+        private ArrayIterator(int[] docs, int size) {
+            this.docs = docs;
+            this.size = size;
+            index = -1;
+            doc = -1;
+        }
+
+        @Override
+        int doc() {
+            return doc;
+        }
+
+        @Override
+        int next() {
+            return doc == NO_MORE_DOCS ? doc : advance(doc + 1);
+        }
+
+        @Override
+        int advance(int target) {
+            if (target <= doc) {
+                return doc;
+            }
+            index = gallop(docs, Math.max(index, 0), size, target);
+            doc = index < size ? docs[index] : NO_MORE_DOCS;
+            return doc;
+        }
+
+        @Override
+        long cost() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.search;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.ArrayList;
+
+/**
+ * A boolean query over the content on the platform.
+ * -> A term starting with '#' matches the content with that tag and one starting with '@' the content which
+ * mentions that user, both exactly as they are written in the description
+ * -> Any other term is a word, matched case-insensitively against the words of the description and comments
+ * -> {@link #not(Query)} on its own matches all content except the one matched by its argument
+ */
+public abstract class Query {
+
+    Query() {
+    }
+
+    public static Query term(String term) {
+        if (term == null) {
+            throw new IllegalArgumentException("Term cannot be null!");
+        } else if (term.isBlank()) {
+            throw new IllegalArgumentException("Term cannot be blank!");
+        } else if (term.startsWith("#") || term.startsWith("@")) {
+            return new Term(term);
+        } else {
+            return new Term(term.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public static Query and(Query... queries) {
+        return new And(check(queries));
+    }
+
+    public static Query or(Query... queries) {
+        return new Or(check(queries));
+    }
+
+    public static Query not(Query query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null!");
+        }
+        return new Not(query);
+    }
+
+    abstract PostingIterator iterator(SearchIndex index);
+
+    private static Query[] check(Query[] queries) {
+        if (queries == null || queries.length == 0) {
+            throw new IllegalArgumentException("There should be at least one query!");
+        }
+        for (Query query : queries) {
+            if (query == null) {
+                throw new IllegalArgumentException("Query cannot be null!");
+            }
+        }
+        return queries.clone();
+    }
+
+    private static final class Term extends Query {
+
+        private final String term;
+
+        private Term(String term) {
+            this.term = term;
+        }
+
+        @Override
+        PostingIterator iterator(SearchIndex index) {
+            return index.postingsOf(term);
+        }
+
+        @Override
+        public String toString() {
+            return term;
+        }
+    }
+
+    /**
+     * Negated operands do not walk all content, they only veto the documents matched by the others.
+     */
+    private static final class And extends Query {
+
+        private final Query[] queries;
+
+        private And(Query[] queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        PostingIterator iterator(SearchIndex index) {
+            List<PostingIterator> required = new ArrayList<>(queries.length);
+            List<PostingIterator> excluded = new ArrayList<>();
+            for (Query query : queries) {
+                if (query instanceof Not) {
+                    excluded.add(((Not) query).query.iterator(index));
+                } else {
+                    required.add(query.iterator(index));
+                }
+            }
+            if (required.isEmpty()) {
+                required.add(index.allDocs());
+            }
+            return PostingIterator.and(required.toArray(new PostingIterator[0]),
+                    excluded.toArray(new PostingIterator[0]));
+        }
+
+        @Override
+        public String toString() {
+            return join(queries, " AND ");
+        }
+    }
+
+    private static final class Or extends Query {
+
+        private final Query[] queries;
+
+        private Or(Query[] queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        PostingIterator iterator(SearchIndex index) {
+            PostingIterator[] children = new PostingIterator[queries.length];
+            for (int i = 0; i < queries.length; i++) {
+                children[i] = queries[i].iterator(index);
+            }
+            return PostingIterator.or(children);
+        }
+
+        @Override
+        public String toString() {
+            return join(queries, " OR ");
+        }
+    }
+
+    private static final class Not extends Query {
+
+        private final Query query;
+
+        private Not(Query query) {
+            this.query = query;
+        }
+
+        @Override
+        PostingIterator iterator(SearchIndex index) {
+            return PostingIterator.and(new PostingIterator[] {index.allDocs()},
+                    new PostingIterator[] {query.iterator(index)});
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + query;
+        }
+    }
+
+    private static String join(Query[] queries, String operator) {
+        StringBuilder result = new StringBuilder("(");
+        for (int i = 0; i < queries.length; i++) {
+            if (i > 0) {
+                result.append(operator);
+            }
+            result.append(queries[i]);
+        }
+        return result.append(')').toString();
+    }
+}
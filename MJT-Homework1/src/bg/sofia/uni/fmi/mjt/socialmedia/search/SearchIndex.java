@@ -0,0 +1,204 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.search;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Comment;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.AbstractContent;
+
+/**
+ * An inverted index from tags, mentions and words to the content which contains them.
+ * -> Every indexed content item gets the next document id, so document ids follow the order of publication
+ * -> Removed content leaves its id behind in the posting lists and is skipped while collecting the results;
+ * once more than half of the ids are dead, the index is rebuilt from the live content
+ * -> Queries are answered by merging posting lists, the cost of an intersection follows the rarest operand
+ * and not the sizes of the lists
+ * -> The class is not thread safe, only {@link #getSizeInBytes()} may be called while it is written
+ */
+public class SearchIndex {
+
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+    private static final long TERM_BYTES = 32;
+    private static final Comparator<AbstractContent> BY_ENGAGEMENT = Comparator
+            .comparingInt((AbstractContent content) -> content.getNumberOfLikes() + content.getNumberOfComments())
+            .thenComparingLong(AbstractContent::getSequence);
+
+    private Map<String, PostingList> postings;
+    private Map<String, Integer> docByContentId;
+    private AbstractContent[] docs;
+    private int maxDoc;
+    private int dead;
+    private volatile long sizeInBytes;
+
+    public SearchIndex() {
+        clear();
+    }
+
+    /**
+     * Indexes the tags, mentions and words of the description and comments of {@code content}.
+     */
+    public void add(AbstractContent content) {
+        if (docs.length == maxDoc) {
+            docs = Arrays.copyOf(docs, Math.max(16, maxDoc + (maxDoc >> 1)));
+            sizeInBytes += 4L * (docs.length - maxDoc);
+        }
+        int doc = maxDoc++;
+        docs[doc] = content;
+        docByContentId.put(content.getId(), doc);
+        for (String tag : content.getTags()) {
+            post(tag, doc);
+        }
+        for (String mention : content.getMentions()) {
+            post(mention, doc);
+        }
+        addWords(content.getDescription(), doc);
+        for (Comment comment : content.getComments()) {
+            addWords(comment.getText(), doc);
+        }
+    }
+
+    /**
+     * Indexes the words of a new comment with text {@code text} on the indexed {@code content}.
+     */
+    public void addComment(AbstractContent content, String text) {
+        Integer doc = docByContentId.get(content.getId());
+        if (doc != null) {
+            addWords(text, doc);
+        }
+    }
+
+    public void remove(AbstractContent content) {
+        Integer doc = docByContentId.remove(content.getId());
+        if (doc == null) {
+            return;
+        }
+        docs[doc] = null;
+        dead++;
+        if (dead >= MIN_DEAD_TO_COMPACT && dead > maxDoc / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} content items matched by {@code query} in the given {@code order}.
+     */
+    public List<Content> search(Query query, int limit, SearchOrder order) {
+        if (limit == 0 || docByContentId.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PostingIterator iterator = query.iterator(this);
+        if (order == SearchOrder.NEWEST) {
+            return newest(iterator, Math.min(limit, docByContentId.size()));
+        }
+        PriorityQueue<AbstractContent> top = new PriorityQueue<>(BY_ENGAGEMENT);
+        for (int doc = iterator.next(); doc != PostingIterator.NO_MORE_DOCS; doc = iterator.next()) {
+            AbstractContent content = docs[doc];
+            if (content == null) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(content);
+            } else if (BY_ENGAGEMENT.compare(content, top.peek()) > 0) {
+                top.poll();
+                top.add(content);
+            }
+        }
+        List<AbstractContent> ranked = new ArrayList<>(top);
+        ranked.sort(BY_ENGAGEMENT.reversed());
+        return Collections.unmodifiableList(new ArrayList<>(ranked));
+    }
+
+    public int getTermCount() {
+        return postings.size();
+    }
+
+    /**
+     * Returns an estimate of the heap used by the index, kept as a running total as the index grows.
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    PostingIterator postingsOf(String term) {
+        PostingList list = postings.get(term);
+        return list == null ? PostingIterator.empty() : list.iterator();
+    }
+
+    PostingIterator allDocs() {
+        return PostingIterator.all(maxDoc);
+    }
+
+    /**
+     * Keeps the last {@code limit} matches in a ring, since the posting lists run from the oldest content.
+     */
+    private List<Content> newest(PostingIterator iterator, int limit) {
+        AbstractContent[] ring = new AbstractContent[limit];
+        long matches = 0;
+        for (int doc = iterator.next(); doc != PostingIterator.NO_MORE_DOCS; doc = iterator.next()) {
+            AbstractContent content = docs[doc];
+            if (content != null) {
+                ring[(int) (matches++ % limit)] = content;
+            }
+        }
+        int count = (int) Math.min(matches, limit);
+        List<Content> result = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            result.add(ring[(int) ((matches - i) % limit)]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private void addWords(String text, int doc) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                post(text.substring(start, i).toLowerCase(Locale.ROOT), doc);
+                start = -1;
+            }
+        }
+    }
+
+    private void post(String term, int doc) {
+        PostingList list = postings.get(term);
+        long before;
+        if (list == null) {
+            list = new PostingList();
+            postings.put(term, list);
+            before = -TERM_BYTES - 2L * term.length();
+        } else {
+            before = list.getSizeInBytes();
+        }
+        list.add(doc);
+        sizeInBytes += list.getSizeInBytes() - before;
+    }
+
+    private void compact() {
+        AbstractContent[] live = Arrays.copyOf(docs, maxDoc);
+        clear();
+        for (AbstractContent content : live) {
+            if (content != null) {
+                add(content);
+            }
+        }
+    }
+
+    private void clear() {
+        postings = new HashMap<>();
+        docByContentId = new HashMap<>();
+        docs = new AbstractContent[16];
+        maxDoc = 0;
+        dead = 0;
+        sizeInBytes = 16L + 4L * docs.length;
+    }
+}
@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.search;
+
+public enum SearchOrder {
+    /**
+     * Newest content first.
+     */
+    NEWEST,
+
+    /**
+     * The content with the most likes and comments first, newest first among equally popular content.
+     */
+    ENGAGEMENT
+}
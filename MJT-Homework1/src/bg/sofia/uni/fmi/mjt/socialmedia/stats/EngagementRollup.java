@@ -0,0 +1,206 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.stats;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import bg.sofia.uni.fmi.mjt.socialmedia.index.UserDictionary;
+
+/**
+ * Per-user counters of the likes and comments received, the content published and the mentions, over the
+ * live content of the platform, so the engagement of a user is read in constant time instead of summed over
+ * all of their content.
+ * -> The engine adds to the counters as content is published, liked and commented and subtracts the counts
+ * of content when it expires
+ * -> Every counter is a {@link LongAdder}, so threads updating the same user do not contend and readers never
+ * block them; a read taken while the counters are being updated is approximate
+ * -> Users are identified by their dense ids in the {@link UserDictionary} of the engine; only registration and
+ * the first update of a user take a lock
+ * -> Mentions of names nobody has registered wait in a map by name, which drops a name once it is no longer
+ * mentioned; the registration of the name hands them over to the counters of the user. The pending count is
+ * checked and changed under the lock of its key in the map, which the handover takes as well, so every
+ * mention is counted exactly once, on one side or the other
+ */
+public class EngagementRollup {
+
+    private final UserDictionary users;
+    private final Map<String, Long> pendingMentions;
+    private volatile Counters[] countersById;
+    private volatile int size;
+
+    public EngagementRollup(UserDictionary users) {
+        this.users = users;
+        pendingMentions = new ConcurrentHashMap<>();
+        countersById = new Counters[16];
+        size = 0;
+    }
+
+    /**
+     * Registers the user with id {@code userId}, together with the mentions of their username made before they
+     * registered. Registering a user twice has no effect.
+     */
+    public void register(int userId) {
+        Counters counters = countersOf(userId);
+        pendingMentions.computeIfPresent(users.usernameOf(userId), (username, pending) -> {
+            counters.mentions.add(pending);
+            return null;
+        });
+    }
+
+    /**
+     * Adds content together with the likes and comments it already has, e.g. when it is restored from disk.
+     */
+    public void addContent(int creatorId, int likes, int comments) {
+        Counters counters = countersOf(creatorId);
+        counters.content.increment();
+        if (likes > 0) {
+            counters.likes.add(likes);
+        }
+        if (comments > 0) {
+            counters.comments.add(comments);
+        }
+    }
+
+    public void addLike(int creatorId) {
+        countersOf(creatorId).likes.increment();
+    }
+
+    public void addComment(int creatorId) {
+        countersOf(creatorId).comments.increment();
+    }
+
+    public void addMention(String username) {
+        countMention(username, 1);
+    }
+
+    /**
+     * Subtracts expired content together with the likes and comments it has received.
+     */
+    public void removeContent(int creatorId, int likes, int comments) {
+        Counters counters = countersOf(creatorId);
+        counters.content.decrement();
+        counters.likes.add(-likes);
+        counters.comments.add(-comments);
+    }
+
+    public void removeMention(String username) {
+        countMention(username, -1);
+    }
+
+    public UserStats statsOf(int userId, String username) {
+        Counters counters = countersOf(userId);
+        return new UserStats(username, counters.likes.sum(), counters.comments.sum(), counters.content.sum(),
+                counters.mentions.sum());
+    }
+
+    /**
+     * Returns the id of the user mentioned the most in live content or {@link UserDictionary#NOT_FOUND} if no
+     * registered user is mentioned. Users with as many mentions are resolved in favour of the smaller id.
+     * -> Every registered user is looked at once, users who are not registered are not counted here at all
+     */
+    public int getMostMentioned() {
+        int users = size;
+        Counters[] counters = countersById;
+        long max = 0;
+        int mostMentioned = UserDictionary.NOT_FOUND;
+        for (int userId = 0; userId < users; userId++) {
+            long mentions = counters[userId] == null ? 0 : counters[userId].mentions.sum();
+            if (mentions > max) {
+                max = mentions;
+                mostMentioned = userId;
+            }
+        }
+        return mostMentioned;
+    }
+
+    /**
+     * Returns the engagement of the {@code k} users whose content has received the most likes and comments,
+     * most engaged first. Users with equal engagement are ordered by id.
+     * -> Every registered user is looked at once and only {@code k} of them are kept in a heap
+     *
+     * @param usernameOf The username of a user, by user id
+     */
+    public List<UserStats> topByEngagement(int k, IntFunction<String> usernameOf) {
+        int users = size;
+        Counters[] counters = countersById;
+        if (k == 0 || users == 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<long[]> leastEngagedFirst = new PriorityQueue<>(Math.min(k, users) + 1,
+                (first, second) -> first[0] != second[0] ? Long.compare(first[0], second[0])
+                        : Long.compare(second[1], first[1]));
+        for (int userId = 0; userId < users; userId++) {
+            if (counters[userId] == null) {
+                continue;
+            }
+            long engagement = counters[userId].likes.sum() + counters[userId].comments.sum();
+            if (leastEngagedFirst.size() < k) {
+                leastEngagedFirst.add(new long[] {engagement, userId});
+            } else if (engagement > leastEngagedFirst.peek()[0]) {
+                leastEngagedFirst.poll();
+                leastEngagedFirst.add(new long[] {engagement, userId});
+            }
+        }
+        UserStats[] top = new UserStats[leastEngagedFirst.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            int userId = (int) leastEngagedFirst.poll()[1];
+            top[i] = statsOf(userId, usernameOf.apply(userId));
+        }
+        return Collections.unmodifiableList(Arrays.asList(top));
+    }
+
+    private void countMention(String username, int delta) {
+        int userId = users.idOf(username);
+        if (userId != UserDictionary.NOT_FOUND) {
+            countersOf(userId).mentions.add(delta);
+            return;
+        }
+        pendingMentions.compute(username, (name, pending) -> {
+            int registeredId = users.idOf(name);
+            if (registeredId != UserDictionary.NOT_FOUND) {
+                countersOf(registeredId).mentions.add(delta);
+                return pending;
+            }
+            long count = (pending == null ? 0 : pending) + delta;
+            return count <= 0 ? null : count;
+        });
+    }
+
+    /**
+     * Returns the counters of the user with id {@code userId}, registering the user if a concurrent
+     * registration has not done it yet.
+     */
+    private Counters countersOf(int userId) {
+        Counters[] counters = countersById;
+        if (userId < counters.length && counters[userId] != null) {
+            return counters[userId];
+        }
+        synchronized (this) {
+            counters = countersById;
+            if (userId >= counters.length) {
+                Counters[] grown = new Counters[Math.max(counters.length * 2, userId + 1)];
+                System.arraycopy(counters, 0, grown, 0, counters.length);
+                counters = grown;
+            }
+            if (counters[userId] == null) {
+                counters[userId] = new Counters();
+            }
+            countersById = counters;
+            size = Math.max(size, userId + 1);
+            return counters[userId];
+        }
+    }
+
+    private static final class Counters {
+
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder comments = new LongAdder();
+        private final LongAdder content = new LongAdder();
+        private final LongAdder mentions = new LongAdder();
+    }
+}
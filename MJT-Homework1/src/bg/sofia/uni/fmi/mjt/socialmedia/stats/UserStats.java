@@ -0,0 +1,55 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.stats;
+
+/**
+ * The engagement of one user over their live content, as counted by an {@link EngagementRollup}.
+ */
+public final class UserStats {
+
+    private final String username;
+    private final long likesReceived;
+    private final long commentsReceived;
+    private final long contentPublished;
+    private final long mentions;
+
+    public UserStats(String username, long likesReceived, long commentsReceived, long contentPublished,
+                     long mentions) {
+        this.username = username;
+        this.likesReceived = likesReceived;
+        this.commentsReceived = commentsReceived;
+        this.contentPublished = contentPublished;
+        this.mentions = mentions;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getLikesReceived() {
+        return likesReceived;
+    }
+
+    public long getCommentsReceived() {
+        return commentsReceived;
+    }
+
+    public long getContentPublished() {
+        return contentPublished;
+    }
+
+    public long getMentions() {
+        return mentions;
+    }
+
+    /**
+     * Returns the likes and comments the content of the user has received.
+     */
+    public long getEngagement() {
+        return likesReceived + commentsReceived;
+    }
+
+    @Override
+    public String toString() {
+        return username + ": " + likesReceived + " likes, " + commentsReceived + " comments, "
+                + contentPublished + " content, " + mentions + " mentions";
+    }
+}
@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.trending;
+
+import java.util.Arrays;
+
+/**
+ * Estimates how many times every string was added, in a fixed amount of memory.
+ * -> {@code depth} rows of {@code width} counters; an item adds to one counter per row and its estimate is the
+ * smallest of them, so the estimate is never below the real count
+ * -> With N additions in total the estimate exceeds the real count by more than e * N / width with probability
+ * below e^-depth
+ * -> Sketches of the same shape can be added to and subtracted from each other, counter by counter
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final int[] counters;
+
+    /**
+     * @param depth The number of rows, each with an independent hash function
+     * @param width The number of counters per row, a power of two
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Depth should be positive!");
+        } else if (width <= 0 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width should be a power of two!");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counters = new int[depth * width];
+    }
+
+    public void add(String item, int count) {
+        long hash = hash(item);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters[row * (mask + 1) + ((first + row * second) & mask)] += count;
+        }
+    }
+
+    public int estimate(String item) {
+        long hash = hash(item);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32) | 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * (mask + 1) + ((first + row * second) & mask)]);
+        }
+        return estimate;
+    }
+
+    public void add(CountMinSketch other) {
+        checkShape(other);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+    }
+
+    public void subtract(CountMinSketch other) {
+        checkShape(other);
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] -= other.counters[i];
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    public long getSizeInBytes() {
+        return (long) counters.length * Integer.BYTES;
+    }
+
+    private void checkShape(CountMinSketch other) {
+        if (other.depth != depth || other.mask != mask) {
+            throw new IllegalArgumentException("Sketches should have the same depth and width!");
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters followed by a final mix, so both halves are usable as hashes.
+     */
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash = (hash ^ item.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
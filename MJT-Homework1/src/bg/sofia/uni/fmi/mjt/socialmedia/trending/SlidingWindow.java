@@ -0,0 +1,104 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.trending;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.time.Duration;
+
+/**
+ * Counts tags over the last {@code length} of time as a ring of time buckets.
+ * -> Every bucket has its own {@link CountMinSketch} and {@link SpaceSaving}, and a running total sketch holds
+ * the sum of the live buckets, so an estimate over the whole window is a single sketch lookup
+ * -> When time moves past a bucket, its sketch is subtracted from the total and the bucket is reused
+ * -> The window always ends with the bucket of the current moment, so it covers between {@code length} minus
+ * one bucket and {@code length}
+ */
+final class SlidingWindow {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long bucketSeconds;
+    private final long[] bucketIds;
+    private final CountMinSketch[] sketches;
+    private final SpaceSaving[] heavyHitters;
+    private final CountMinSketch total;
+    private long current;
+
+    SlidingWindow(Duration length, int buckets, int depth, int width, int heavyHitterCapacity) {
+        this.bucketSeconds = length.getSeconds() / buckets;
+        this.bucketIds = new long[buckets];
+        this.sketches = new CountMinSketch[buckets];
+        this.heavyHitters = new SpaceSaving[buckets];
+        for (int i = 0; i < buckets; i++) {
+            bucketIds[i] = EMPTY;
+            sketches[i] = new CountMinSketch(depth, width);
+            heavyHitters[i] = new SpaceSaving(heavyHitterCapacity);
+        }
+        this.total = new CountMinSketch(depth, width);
+        this.current = EMPTY;
+    }
+
+    /**
+     * Counts {@code tag} in the bucket of {@code epochSecond}. Moments after the current bucket count in it
+     * and moments before the window are ignored.
+     */
+    void add(String tag, long epochSecond) {
+        if (current == EMPTY) {
+            return;
+        }
+        long bucket = Math.min(Math.floorDiv(epochSecond, bucketSeconds), current);
+        if (bucket <= current - bucketIds.length) {
+            return;
+        }
+        int slot = (int) Math.floorMod(bucket, (long) bucketIds.length);
+        bucketIds[slot] = bucket;
+        sketches[slot].add(tag, 1);
+        heavyHitters[slot].offer(tag);
+        total.add(tag, 1);
+    }
+
+    /**
+     * Moves the end of the window to the bucket of {@code epochSecond}, retiring the buckets which fall out.
+     *
+     * @return whether any counts were retired
+     */
+    boolean advance(long epochSecond) {
+        long bucket = Math.floorDiv(epochSecond, bucketSeconds);
+        if (bucket <= current) {
+            return false;
+        }
+        current = bucket;
+        boolean retired = false;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (bucketIds[slot] != EMPTY && bucketIds[slot] <= current - bucketIds.length) {
+                total.subtract(sketches[slot]);
+                sketches[slot].clear();
+                heavyHitters[slot].clear();
+                bucketIds[slot] = EMPTY;
+                retired = true;
+            }
+        }
+        return retired;
+    }
+
+    /**
+     * Returns the heavy hitters of all live buckets: every tag which is frequent in the window is frequent in
+     * at least one of its buckets.
+     */
+    Set<String> candidates() {
+        Set<String> candidates = new HashSet<>();
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (bucketIds[slot] != EMPTY) {
+                candidates.addAll(heavyHitters[slot].items());
+            }
+        }
+        return candidates;
+    }
+
+    int estimate(String tag) {
+        return total.estimate(tag);
+    }
+
+    long getSizeInBytes() {
+        return total.getSizeInBytes() * (sketches.length + 1);
+    }
+}
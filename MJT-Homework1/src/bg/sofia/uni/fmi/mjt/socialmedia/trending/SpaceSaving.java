@@ -0,0 +1,77 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.trending;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.Comparator;
+import java.util.Collections;
+
+/**
+ * Tracks the most frequent strings of a stream with a fixed number of counters (the Space-Saving algorithm).
+ * -> An item which is not tracked replaces the one with the smallest count and inherits that count plus one,
+ * so every item seen more than N / capacity times out of N is guaranteed to be tracked
+ * -> The counts may overestimate, by at most the count inherited on replacement
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private final TreeSet<Counter> byCount;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive!");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+        this.byCount = new TreeSet<>(Comparator.comparingLong((Counter counter) -> counter.count)
+                .thenComparing(counter -> counter.item));
+    }
+
+    public void offer(String item) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count++;
+            byCount.add(counter);
+            return;
+        }
+        long inherited = 0;
+        if (counters.size() == capacity) {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.item);
+            inherited = smallest.count;
+        }
+        counter = new Counter(item, inherited + 1);
+        counters.put(item, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * Returns an unmodifiable view of the tracked items, in no particular order.
+     */
+    public Set<String> items() {
+        return Collections.unmodifiableSet(counters.keySet());
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+
+    private static final class Counter {
+
+        private final String item;
+        private long count;
+
+        private Counter(String item, long count) {
+            this.item = item;
+            this.count = count;
+        }
+    }
+}
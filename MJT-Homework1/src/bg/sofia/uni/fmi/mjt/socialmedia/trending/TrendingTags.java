@@ -0,0 +1,179 @@
+package bg.sofia.uni.fmi.mjt.socialmedia.trending;
+
+import java.util.List;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Answers which tags were used in the most content over the last hour, day or week.
+ * -> Every window is a ring of time buckets, each with a Count-Min Sketch for the counts and a Space-Saving list
+ * of its heavy hitters, so memory does not grow with the number of distinct tags
+ * -> The top tags are the heavy hitters of the window ranked by their estimated counts; the estimates never
+ * undercount and overcount by a small fraction of all tags counted in the window
+ * -> Content counts at its publication date and every tag counts once per content
+ * -> The answer for a window is cached until something is recorded or time moves to a new bucket
+ * -> Like the engine it is fed by, it is not thread safe
+ */
+public class TrendingTags {
+
+    public enum Window {
+        HOUR(Duration.ofHours(1), 12),
+        DAY(Duration.ofDays(1), 24),
+        WEEK(Duration.ofDays(7), 7);
+
+        private final Duration length;
+        private final int buckets;
+
+        Window(Duration length, int buckets) {
+            this.length = length;
+            this.buckets = buckets;
+        }
+
+        public Duration getLength() {
+            return length;
+        }
+    }
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int DEFAULT_SKETCH_WIDTH = 1024;
+    private static final int DEFAULT_HEAVY_HITTERS = 64;
+
+    private final Clock clock;
+    private final EnumMap<Window, SlidingWindow> windows;
+    private final EnumMap<Window, List<String>> cachedTop;
+    private final EnumMap<Window, Integer> cachedK;
+
+    public TrendingTags(Clock clock) {
+        this(clock, DEFAULT_SKETCH_WIDTH, DEFAULT_HEAVY_HITTERS);
+    }
+
+    /**
+     * @param clock        The source of the current time
+     * @param sketchWidth  The number of counters per sketch row, a power of two
+     * @param heavyHitters The number of tags tracked per time bucket
+     */
+    public TrendingTags(Clock clock, int sketchWidth, int heavyHitters) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null!");
+        }
+        this.clock = clock;
+        this.windows = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            windows.put(window, new SlidingWindow(window.length, window.buckets, SKETCH_DEPTH, sketchWidth,
+                    heavyHitters));
+        }
+        this.cachedTop = new EnumMap<>(Window.class);
+        this.cachedK = new EnumMap<>(Window.class);
+    }
+
+    /**
+     * Counts the tags of content published on {@code publishedOn}.
+     */
+    public void record(Collection<String> tags, LocalDateTime publishedOn) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        advance();
+        long epochSecond = publishedOn.atZone(clock.getZone()).toEpochSecond();
+        Collection<String> distinct = tags.size() == 1 ? tags : new HashSet<>(tags);
+        for (SlidingWindow window : windows.values()) {
+            for (String tag : distinct) {
+                window.add(tag, epochSecond);
+            }
+        }
+        cachedTop.clear();
+        cachedK.clear();
+    }
+
+    /**
+     * Returns the {@code k} tags used in the most content within {@code window}, most used first.
+     * Tags with equal estimates are ordered alphabetically.
+     *
+     * @throws IllegalArgumentException If {@code k} is negative or {@code window} is null
+     */
+    public List<String> top(int k, Window window) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be negative!");
+        } else if (window == null) {
+            throw new IllegalArgumentException("Window cannot be null!");
+        }
+        advance();
+        Integer cached = cachedK.get(window);
+        if (cached == null || cached < k) {
+            cachedTop.put(window, rank(windows.get(window), k));
+            cachedK.put(window, k);
+        }
+        List<String> top = cachedTop.get(window);
+        return top.subList(0, Math.min(k, top.size()));
+    }
+
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (SlidingWindow window : windows.values()) {
+            bytes += window.getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void advance() {
+        long now = Math.floorDiv(clock.millis(), 1000);
+        for (SlidingWindow window : windows.values()) {
+            if (window.advance(now)) {
+                cachedTop.clear();
+                cachedK.clear();
+            }
+        }
+    }
+
+    private static List<String> rank(SlidingWindow window, int k) {
+        if (k == 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<TagCount> top = new PriorityQueue<>(k + 1);
+        for (String tag : window.candidates()) {
+            int estimate = window.estimate(tag);
+            if (estimate > 0) {
+                top.add(new TagCount(tag, estimate));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        }
+        List<String> ranked = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ranked.add(top.poll().tag);
+        }
+        Collections.reverse(ranked);
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * Ordered from the least to the most used, so the head of a heap is the first to drop out of the top.
+     */
+    private static final class TagCount implements Comparable<TagCount> {
+
+        private final String tag;
+        private final int count;
+
+        private TagCount(String tag, int count) {
+            this.tag = tag;
+            this.count = count;
+        }
+
+        @Override
+        public int compareTo(TagCount other) {
+            int byCount = Integer.compare(count, other.count);
+            if (byCount != 0) {
+                return byCount;
+            }
+            return other.tag.compareTo(tag);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.index.CompressedBitmap;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompressedBitmapTest {
+
+    @Test
+    public void testForAddingTheSameValueTwice() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+
+        assertTrue(bitmap.add(42));
+        assertFalse(bitmap.add(42));
+        assertEquals(1, bitmap.getCardinality());
+        assertTrue(bitmap.contains(42));
+        assertFalse(bitmap.contains(43));
+    }
+
+    @Test
+    public void testForDenseValuesAcrossContainers() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < 200_000; i += 2) {
+            bitmap.add(i);
+        }
+
+        assertEquals(100_000, bitmap.getCardinality());
+        assertTrue(bitmap.contains(131_072));
+        assertFalse(bitmap.contains(131_073));
+    }
+
+    @Test
+    public void testForConsecutiveValuesStoredAsRuns() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i);
+        }
+
+        assertTrue(bitmap.getSizeInBytes() < 100);
+        bitmap.runOptimize();
+        bitmap.add(10_001);
+        bitmap.add(10_000);
+
+        assertTrue(bitmap.getSizeInBytes() < 100);
+        assertEquals(10_002, bitmap.getCardinality());
+        assertTrue(bitmap.contains(10_001));
+        assertFalse(bitmap.contains(10_002));
+    }
+
+    @Test
+    public void testForRandomValuesMatchHashSet() {
+        Random random = new Random(7);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(100_000);
+            assertEquals(expected.add(value), bitmap.add(value));
+            if (i % 5_000 == 0) {
+                bitmap.runOptimize();
+            }
+        }
+
+        assertEquals(expected.size(), bitmap.getCardinality());
+        for (int value = 0; value < 100_000; value++) {
+            assertEquals(expected.contains(value), bitmap.contains(value));
+        }
+    }
+}
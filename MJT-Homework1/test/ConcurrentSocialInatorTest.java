@@ -0,0 +1,185 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.ConcurrentSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameAlreadyExistsException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentSocialInatorTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 1_000;
+
+    SocialMediaInator concurrentSocialInator;
+
+    @Before
+    public void setUp() {
+        concurrentSocialInator = new ConcurrentSocialInator();
+    }
+
+    @Test(expected = UsernameAlreadyExistsException.class)
+    public void testForAddingTheSameUsernameTwice() {
+        concurrentSocialInator.register("dkolev");
+        concurrentSocialInator.register("dkolev");
+    }
+
+    @Test
+    public void testForConcurrentPublishingGeneratesUniqueIds() throws InterruptedException {
+        concurrentSocialInator.register("dkolev");
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        runInParallel(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                ids.add(concurrentSocialInator.publishPost("dkolev", LocalDateTime.now(), "#load"));
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, ids.size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, concurrentSocialInator.findContentByTag("#load").size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, concurrentSocialInator.getActivityLog("dkolev").size());
+    }
+
+    @Test
+    public void testForConcurrentRegistrationAcceptsEveryUsernameOnce() throws InterruptedException {
+        AtomicInteger registered = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runInParallel(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                try {
+                    concurrentSocialInator.register("user" + i);
+                    registered.incrementAndGet();
+                } catch (UsernameAlreadyExistsException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(OPERATIONS_PER_THREAD, registered.get());
+        assertEquals((THREADS - 1) * OPERATIONS_PER_THREAD, rejected.get());
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            concurrentSocialInator.publishPost("user" + i, LocalDateTime.now(), "@user0");
+        }
+        assertEquals("user0", concurrentSocialInator.getMostPopularUser());
+    }
+
+    @Test
+    public void testForConcurrentLikesAreCountedOncePerUser() throws InterruptedException {
+        concurrentSocialInator.register("dkolev");
+        for (int i = 0; i < THREADS * OPERATIONS_PER_THREAD; i++) {
+            concurrentSocialInator.register("user" + i);
+        }
+        String hot = concurrentSocialInator.publishPost("dkolev", LocalDateTime.now(), "hot");
+        String cold = concurrentSocialInator.publishPost("dkolev", LocalDateTime.now(), "cold");
+        AtomicInteger nextUser = new AtomicInteger();
+
+        runInParallel(() -> {
+            int first = nextUser.getAndAdd(OPERATIONS_PER_THREAD);
+            for (int i = first; i < first + OPERATIONS_PER_THREAD; i++) {
+                concurrentSocialInator.like("user" + i, hot);
+                concurrentSocialInator.like("user" + i, hot);
+            }
+        });
+        concurrentSocialInator.comment("dkolev", "meh", cold);
+
+        List<Content> mostPopular = new ArrayList<>(concurrentSocialInator.getNMostPopularContent(2));
+        assertEquals(hot, mostPopular.get(0).getId());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, mostPopular.get(0).getNumberOfLikes());
+        assertEquals(cold, mostPopular.get(1).getId());
+    }
+
+    @Test
+    public void testForFeedReadsRunningWithPublishingAndFollows() throws InterruptedException {
+        concurrentSocialInator.register("reader");
+        for (int i = 0; i < THREADS; i++) {
+            concurrentSocialInator.register("author" + i);
+            concurrentSocialInator.follow("reader", "author" + i);
+        }
+        AtomicInteger nextAuthor = new AtomicInteger();
+        Set<String> published = ConcurrentHashMap.newKeySet();
+
+        runInParallel(() -> {
+            String author = "author" + nextAuthor.getAndIncrement();
+            LocalDateTime start = LocalDateTime.now().minusHours(1);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                published.add(concurrentSocialInator.publishPost(author, start.plusNanos(i), "#load"));
+                concurrentSocialInator.getHomeFeed("reader", 10);
+                if (i % 100 == 0) {
+                    concurrentSocialInator.unfollow("reader", author);
+                    concurrentSocialInator.follow("reader", author);
+                }
+            }
+        });
+
+        Collection<Content> feed = concurrentSocialInator.getHomeFeed("reader", THREADS * OPERATIONS_PER_THREAD);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, feed.size());
+        for (Content content : feed) {
+            assertTrue(published.contains(content.getId()));
+        }
+    }
+
+    @Test
+    public void testForGetNMostRecentContentReturnsNewestFirst() {
+        concurrentSocialInator.register("dkolev");
+        LocalDateTime now = LocalDateTime.now();
+        String older = concurrentSocialInator.publishPost("dkolev", now.minusHours(2), "older");
+        String newer = concurrentSocialInator.publishStory("dkolev", now.minusHours(1), "newer");
+
+        List<Content> mostRecent = new ArrayList<>(concurrentSocialInator.getNMostRecentContent("dkolev", 5));
+
+        assertEquals(2, mostRecent.size());
+        assertEquals(newer, mostRecent.get(0).getId());
+        assertEquals(older, mostRecent.get(1).getId());
+    }
+
+    @Test
+    public void testForGetMostPopularUser() {
+        concurrentSocialInator.register("dkolev");
+        concurrentSocialInator.register("ivan");
+        concurrentSocialInator.publishPost("dkolev", LocalDateTime.now(), "@ghost @ghost @ivan");
+
+        assertEquals("ivan", concurrentSocialInator.getMostPopularUser());
+    }
+
+    @Test
+    public void testForMentionsPublishedBeforeRegistrationCountedOnce() throws InterruptedException {
+        concurrentSocialInator.register("dkolev");
+        AtomicInteger nextThread = new AtomicInteger();
+
+        runInParallel(() -> {
+            if (nextThread.getAndIncrement() == 0) {
+                concurrentSocialInator.register("late");
+            }
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                concurrentSocialInator.publishPost("dkolev", LocalDateTime.now(), "@late");
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD,
+                concurrentSocialInator.getUserStats("late").getMentions());
+        assertEquals("late", concurrentSocialInator.getMostPopularUser());
+    }
+
+    private void runInParallel(Runnable task) throws InterruptedException {
+        Collection<Thread> threads = new HashSet<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(task);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Comment;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.ContentFootprint;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Post;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ContentFootprintTest {
+
+    @Test
+    public void testForLikesMovingFromArrayToBitmap() {
+        Post post = new Post("dkolev", "Post", LocalDateTime.now(), 0);
+        for (int userId = 20; userId > 0; userId -= 2) {
+            assertTrue(post.like(userId));
+            assertFalse(post.like(userId));
+        }
+        assertEquals(10, post.getNumberOfLikes());
+        assertTrue(post.hasLiked(2));
+        assertFalse(post.hasLiked(3));
+        assertArrayEquals(new int[]{2, 4, 6, 8, 10, 12, 14, 16, 18, 20}, post.getLikedBy());
+    }
+
+    @Test
+    public void testForCommentsKeptInOrder() {
+        Post post = new Post("dkolev", "Post", LocalDateTime.now(), 0);
+        for (int i = 0; i < 5; i++) {
+            post.comment("user" + i, "Comment " + i);
+        }
+        List<Comment> comments = post.getComments();
+        assertEquals(5, post.getNumberOfComments());
+        assertEquals("user3", comments.get(3).getUsername());
+        assertEquals("Comment 3", comments.get(3).getText());
+    }
+
+    @Test
+    public void testForFootprintGrowingWithLikesAndComments() {
+        LocalDateTime publishedOn = LocalDateTime.of(2020, 11, 20, 12, 0, 0, 123);
+        Post post = new Post("dkolev", "Hello #java @ivan", publishedOn, 0);
+        ContentFootprint empty = post.getFootprint();
+        assertEquals(0, empty.getLikes());
+        assertEquals(0, empty.getComments());
+        assertEquals(publishedOn, post.getPublicationDate());
+
+        post.like(1);
+        post.comment("ivan", "Nice");
+        ContentFootprint used = post.getFootprint();
+        assertTrue(used.getLikes() > 0);
+        assertTrue(used.getComments() > 0);
+        assertEquals(empty.getTotal() + used.getLikes() + used.getComments(), used.getTotal());
+    }
+
+    @Test
+    public void testForCommentsKeptInOrderPastTheFirstStack() {
+        Post post = new Post("dkolev", "Post", LocalDateTime.now(), 0);
+        for (int i = 0; i < 20; i++) {
+            post.comment("user" + i, "Comment " + i);
+        }
+        List<Comment> comments = post.getComments();
+        assertEquals(20, post.getNumberOfComments());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("Comment " + i, comments.get(i).getText());
+        }
+    }
+
+    @Test
+    public void testForConcurrentLikesAndCommentsCountedOnce() throws InterruptedException {
+        Post post = new Post("dkolev", "Post", LocalDateTime.now(), 0);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int first = t * 1_000;
+            threads.add(new Thread(() -> {
+                for (int userId = first; userId < first + 1_000; userId++) {
+                    post.like(userId);
+                    post.like(userId);
+                    post.comment("user" + userId, "Comment " + userId);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8_000, post.getNumberOfLikes());
+        assertEquals(8_000, post.getLikedBy().length);
+        assertEquals(8_000, post.getNumberOfComments());
+        Set<String> texts = new HashSet<>();
+        for (Comment comment : post.getComments()) {
+            texts.add(comment.getText());
+        }
+        assertEquals(8_000, texts.size());
+        assertEquals(post.getFootprint().getTotal(), post.getFootprint().getObject() + post.getFootprint().getId()
+                + post.getFootprint().getDescription() + post.getFootprint().getTagsAndMentions()
+                + post.getEngagementSizeInBytes());
+    }
+}
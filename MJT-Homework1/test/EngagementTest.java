@@ -0,0 +1,134 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.MvccSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ShardedSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ConcurrentSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.Journal;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SyncPolicy;
+import bg.sofia.uni.fmi.mjt.socialmedia.stats.UserStats;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class EngagementTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2020-11-20T12:00:00Z"), ZoneOffset.UTC);
+
+    LocalDateTime now = LocalDateTime.now(CLOCK);
+
+    @Test
+    public void testForStatsMatchingASumOverLiveContentOnAllEngines() {
+        List<SocialMediaInator> engines = List.of(new EvilSocialInator(CLOCK), new ConcurrentSocialInator(CLOCK),
+                new ShardedSocialInator(4, CLOCK), new MvccSocialInator(CLOCK));
+        for (SocialMediaInator engine : engines) {
+            String name = engine.getClass().getSimpleName();
+            engine.register("dkolev");
+            String post = engine.publishPost("dkolev", now, "Hello @ivan and @maria");
+            engine.publishStory("dkolev", now.minusDays(2), "Expired story @ivan");
+            engine.register("ivan");
+            engine.register("maria");
+            String story = engine.publishStory("ivan", now, "Hi @maria");
+            engine.like("ivan", post);
+            engine.like("ivan", post);
+            engine.like("maria", post);
+            engine.comment("maria", "Nice", post);
+            engine.comment("dkolev", "Thanks", story);
+
+            assertStats(name, engine.getUserStats("dkolev"), 2, 1, 1, 0);
+            assertStats(name, engine.getUserStats("ivan"), 0, 1, 1, 1);
+            assertStats(name, engine.getUserStats("maria"), 0, 0, 0, 2);
+            List<UserStats> top = engine.getTopUsersByEngagement(2);
+            assertEquals(name, List.of("dkolev", "ivan"), List.of(top.get(0).getUsername(),
+                    top.get(1).getUsername()));
+            assertEquals(name, 3, engine.getTopUsersByEngagement(10).size());
+            assertTrue(name, engine.getTopUsersByEngagement(0).isEmpty());
+        }
+    }
+
+    @Test
+    public void testForCountersUnderConcurrentLikes() throws Exception {
+        ConcurrentSocialInator engine = new ConcurrentSocialInator(CLOCK);
+        engine.register("dkolev");
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(engine.publishPost("dkolev", now, "Post " + i));
+        }
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        String username = "fan-" + thread + "-" + i;
+                        engine.register(username);
+                        for (String id : ids) {
+                            engine.like(username, id);
+                            engine.comment(username, "Nice", id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertStats("", engine.getUserStats("dkolev"), threads * 50 * 10, threads * 50 * 10, 10, 0);
+    }
+
+    @Test
+    public void testForStatsSurvivingRestart() throws IOException {
+        Path journalFile = Files.createTempFile("social-media", ".journal");
+        Path snapshotFile = Files.createTempFile("social-media", ".snapshot");
+        Files.delete(snapshotFile);
+        try {
+            try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+                EvilSocialInator engine = new EvilSocialInator(CLOCK, snapshotFile, journal);
+                engine.register("dkolev");
+                engine.register("ivan");
+                String post = engine.publishPost("dkolev", now, "Hello @ivan");
+                engine.like("ivan", post);
+                engine.saveSnapshot(snapshotFile).join();
+                engine.comment("ivan", "Nice", post);
+            }
+            try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+                EvilSocialInator engine = new EvilSocialInator(CLOCK, snapshotFile, journal);
+                assertStats("", engine.getUserStats("dkolev"), 1, 1, 1, 0);
+                assertStats("", engine.getUserStats("ivan"), 0, 0, 0, 1);
+            }
+        } finally {
+            Files.deleteIfExists(journalFile);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test(expected = UsernameNotFoundException.class)
+    public void testForStatsOfUnknownUser() {
+        new EvilSocialInator(CLOCK).getUserStats("dkolev");
+    }
+
+    private static void assertStats(String message, UserStats stats, long likes, long comments, long content,
+                                    long mentions) {
+        assertEquals(message, likes, stats.getLikesReceived());
+        assertEquals(message, comments, stats.getCommentsReceived());
+        assertEquals(message, content, stats.getContentPublished());
+        assertEquals(message, mentions, stats.getMentions());
+    }
+}
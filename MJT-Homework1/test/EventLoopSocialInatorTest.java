@@ -0,0 +1,200 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.Backpressure;
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.EventLoopSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class EventLoopSocialInatorTest {
+
+    private static final int USERS = 16;
+
+    EventLoopSocialInator eventLoopSocialInator;
+
+    @Before
+    public void setUp() {
+        eventLoopSocialInator = new EventLoopSocialInator(1 << 10, Backpressure.block());
+    }
+
+    @After
+    public void tearDown() {
+        eventLoopSocialInator.close();
+    }
+
+    @Test
+    public void testForCallsCompletingInSubmissionOrder() {
+        eventLoopSocialInator.register("dkolev");
+        CompletableFuture<String> id = eventLoopSocialInator.publishPost("dkolev", LocalDateTime.now(), "#java");
+        eventLoopSocialInator.like("dkolev", id.join());
+        assertTrue(eventLoopSocialInator.hasLiked("dkolev", id.join()).join());
+        assertEquals(1, eventLoopSocialInator.findContentByTag("#java").join().size());
+    }
+
+    @Test
+    public void testForFailuresCompletingTheFutureExceptionally() {
+        CompletableFuture<Void> like = eventLoopSocialInator.like("nobody", "nobody-0");
+        try {
+            like.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UsernameNotFoundException);
+        }
+    }
+
+    @Test(expected = NoUsersException.class)
+    public void testForBlockingViewThrowingTheOriginalException() {
+        eventLoopSocialInator.blocking().getMostPopularUser();
+    }
+
+    @Test
+    public void testForViewSeeingTheWritesOfTheCaller() {
+        SocialMediaInator socialMedia = eventLoopSocialInator.blocking();
+        socialMedia.register("dkolev");
+        socialMedia.register("ivan");
+        socialMedia.publishPost("dkolev", LocalDateTime.now(), "Hi @ivan");
+        String second = socialMedia.publishPost("dkolev", LocalDateTime.now(), "Second");
+        socialMedia.like("ivan", second);
+
+        assertEquals("ivan", socialMedia.getMostPopularUser());
+        List<Content> top = new ArrayList<>(socialMedia.getNMostPopularContent(1));
+        assertEquals(second, top.get(0).getId());
+    }
+
+    @Test
+    public void testForConcurrentLikesCountedOncePerUser() throws InterruptedException {
+        SocialMediaInator socialMedia = eventLoopSocialInator.blocking();
+        socialMedia.register("dkolev");
+        for (int i = 0; i < USERS; i++) {
+            socialMedia.register("user" + i);
+        }
+        String id = socialMedia.publishPost("dkolev", LocalDateTime.now(), "Post");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < USERS * 10; i++) {
+            String username = "user" + (i % USERS);
+            executor.execute(() -> eventLoopSocialInator.like(username, id));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Content content = socialMedia.getNMostRecentContent("dkolev", 1).iterator().next();
+        assertEquals(USERS, content.getNumberOfLikes());
+    }
+
+    @Test
+    public void testForRejectingCallsWhenTheRingIsFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        EvilSocialInator slow = new EvilSocialInator() {
+            @Override
+            public boolean hasLiked(String username, String id) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.hasLiked(username, id);
+            }
+        };
+        EventLoopSocialInator small = new EventLoopSocialInator(slow, 1, Backpressure.reject(), 0);
+        try {
+            small.register("dkolev").join();
+            String id = small.publishPost("dkolev", LocalDateTime.now(), "Post").join();
+            CompletableFuture<Boolean> first = small.hasLiked("dkolev", id);
+            try {
+                small.hasLiked("dkolev", id).join();
+                fail();
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            release.countDown();
+            assertFalse(first.join());
+        } finally {
+            release.countDown();
+            small.close();
+        }
+    }
+
+    @Test
+    public void testForErrorOfOneCallFailsOnlyItsFuture() {
+        EvilSocialInator failing = new EvilSocialInator() {
+            @Override
+            public void like(String username, String id) {
+                throw new StackOverflowError();
+            }
+        };
+        EventLoopSocialInator socialMedia = new EventLoopSocialInator(failing, 4, Backpressure.block(), 1);
+        try {
+            socialMedia.register("dkolev").join();
+            String id = socialMedia.publishPost("dkolev", LocalDateTime.now(), "Post").join();
+            try {
+                socialMedia.like("dkolev", id).join();
+                fail();
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof StackOverflowError);
+            }
+            assertFalse(socialMedia.hasLiked("dkolev", id).join());
+        } finally {
+            socialMedia.close();
+        }
+    }
+
+    @Test
+    public void testForDeadWriterFailsAcceptedAndLaterCalls() {
+        AtomicBoolean broken = new AtomicBoolean();
+        EvilSocialInator failing = new EvilSocialInator() {
+            @Override
+            public Collection<Content> getNMostPopularContent(int n) {
+                if (broken.get()) {
+                    throw new OutOfMemoryError();
+                }
+                return super.getNMostPopularContent(n);
+            }
+        };
+        EventLoopSocialInator socialMedia = new EventLoopSocialInator(failing, 1, Backpressure.block(), 1);
+        try {
+            socialMedia.register("dkolev").join();
+            broken.set(true);
+            List<CompletableFuture<Void>> calls = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                calls.add(socialMedia.register("user" + i));
+            }
+            for (CompletableFuture<Void> call : calls) {
+                try {
+                    call.join();
+                    fail();
+                } catch (CompletionException e) {
+                    assertTrue(e.getCause() instanceof OutOfMemoryError
+                            || e.getCause() instanceof RejectedExecutionException);
+                }
+            }
+            try {
+                socialMedia.getUserStats("dkolev").join();
+                fail();
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+                assertTrue(e.getCause().getCause() instanceof OutOfMemoryError);
+            }
+        } finally {
+            socialMedia.close();
+        }
+    }
+}
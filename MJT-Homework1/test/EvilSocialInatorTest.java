@@ -1,12 +1,18 @@
 import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
 import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.ContentNotFoundException;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
 
 import static org.junit.Assert.*;
 
@@ -94,7 +100,157 @@ public class EvilSocialInatorTest {
         assertEquals(2,evilSocialInator.getActivityLog("dkolev").size());
     }
 
+    @Test
+    public void testForFindContentByTagReturnsOnlyTaggedContent() {
+        evilSocialInator.register("dkolev");
+        String first = evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "Hello #java  #mjt");
+        evilSocialInator.publishStory("dkolev", LocalDateTime.now(), "Hello #python");
+        String third = evilSocialInator.publishStory("dkolev", LocalDateTime.now(), "#java again");
+
+        Collection<Content> tagged = evilSocialInator.findContentByTag("#java");
+
+        assertEquals(2, tagged.size());
+        assertTrue(containsId(tagged, first));
+        assertTrue(containsId(tagged, third));
+        assertTrue(evilSocialInator.findContentByTag("#missing").isEmpty());
+    }
+
+    @Test
+    public void testForFindContentByTagSkipsExpiredContent() {
+        evilSocialInator.register("dkolev");
+        evilSocialInator.publishPost("dkolev", LocalDateTime.now().minusDays(40), "Old #java");
+        String fresh = evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "New #java");
+
+        Collection<Content> tagged = evilSocialInator.findContentByTag("#java");
+
+        assertEquals(1, tagged.size());
+        assertTrue(containsId(tagged, fresh));
+    }
+
+    @Test
+    public void testForGetNMostPopularContentOrdersByLikesAndComments() {
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        String quiet = evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "quiet");
+        String liked = evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "liked");
+        String discussed = evilSocialInator.publishStory("dkolev", LocalDateTime.now(), "discussed");
+        evilSocialInator.like("ivan", liked);
+        evilSocialInator.comment("ivan", "nice", discussed);
+        evilSocialInator.comment("dkolev", "thanks", discussed);
+
+        List<Content> mostPopular = new ArrayList<>(evilSocialInator.getNMostPopularContent(2));
+
+        assertEquals(2, mostPopular.size());
+        assertEquals(discussed, mostPopular.get(0).getId());
+        assertEquals(liked, mostPopular.get(1).getId());
+        assertEquals(3, evilSocialInator.getNMostPopularContent(10).size());
+        assertFalse(containsId(evilSocialInator.getNMostPopularContent(2), quiet));
+    }
+
+    @Test
+    public void testForGetNMostRecentContentReturnsNewestContentOfTheUser() {
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        LocalDateTime now = LocalDateTime.now();
+        evilSocialInator.publishPost("dkolev", now.minusDays(40), "expired");
+        String oldest = evilSocialInator.publishPost("dkolev", now.minusHours(3), "oldest");
+        String newest = evilSocialInator.publishStory("dkolev", now.minusHours(1), "newest");
+        String middle = evilSocialInator.publishPost("dkolev", now.minusHours(2), "middle");
+        evilSocialInator.publishPost("ivan", now, "not mine");
+
+        List<Content> mostRecent = new ArrayList<>(evilSocialInator.getNMostRecentContent("dkolev", 2));
+
+        assertEquals(2, mostRecent.size());
+        assertEquals(newest, mostRecent.get(0).getId());
+        assertEquals(middle, mostRecent.get(1).getId());
+        assertEquals(3, evilSocialInator.getNMostRecentContent("dkolev", 10).size());
+        assertTrue(containsId(evilSocialInator.getNMostRecentContent("dkolev", 3), oldest));
+    }
+
+    @Test
+    public void testForGetMostPopularUserCountsOnlyRegisteredUsers() {
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "@ghost @ghost @ghost @ivan");
+        evilSocialInator.publishStory("ivan", LocalDateTime.now(), "hi @dkolev @ivan");
+
+        assertEquals("ivan", evilSocialInator.getMostPopularUser());
+    }
 
+    @Test
+    public void testForGetMostPopularUserForgetsMentionsInExpiredContent() {
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        evilSocialInator.publishPost("dkolev", LocalDateTime.now().minusDays(40), "#old @ivan @ivan");
+        evilSocialInator.publishPost("ivan", LocalDateTime.now(), "#new @dkolev");
+
+        assertTrue(evilSocialInator.findContentByTag("#old").isEmpty());
+        assertEquals("dkolev", evilSocialInator.getMostPopularUser());
+    }
+
+    @Test
+    public void testForStoriesExpireAfterOneDayAndPostsAfterThirtyDays() {
+        evilSocialInator.register("dkolev");
+        LocalDateTime yesterday = LocalDateTime.now().minusHours(25);
+        String post = evilSocialInator.publishPost("dkolev", yesterday, "#java post");
+        evilSocialInator.publishStory("dkolev", yesterday, "#java story");
+        evilSocialInator.publishPost("dkolev", LocalDateTime.now().minusDays(31), "#java old post");
+
+        Collection<Content> tagged = evilSocialInator.findContentByTag("#java");
+
+        assertEquals(1, tagged.size());
+        assertTrue(containsId(tagged, post));
+        assertEquals(1, evilSocialInator.getNMostPopularContent(10).size());
+        assertEquals(1, evilSocialInator.getNMostRecentContent("dkolev", 10).size());
+    }
+
+    @Test(expected = ContentNotFoundException.class)
+    public void testForLikingExpiredContent() {
+        evilSocialInator.register("dkolev");
+        String id = evilSocialInator.publishStory("dkolev", LocalDateTime.now().minusDays(2), "gone");
+
+        evilSocialInator.like("dkolev", id);
+    }
+
+    @Test
+    public void testForGetActivityLogIsNewestFirstAndStable() {
+        LocalDateTime publishedOn = LocalDateTime.of(2020, 11, 5, 9, 3, 7);
+        evilSocialInator = new EvilSocialInator(Clock.fixed(publishedOn.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        evilSocialInator.register("dkolev");
+        String id = evilSocialInator.publishPost("dkolev", publishedOn, "First post");
+        evilSocialInator.comment("dkolev", "Nice one", id);
+
+        List<String> log = evilSocialInator.getActivityLog("dkolev");
+
+        assertEquals(2, log.size());
+        assertEquals("09:03:07 05.11.2020: Commented \"Nice one\" on a content with id " + id, log.get(0));
+        assertEquals("09:03:07 05.11.2020: Created a post with id " + id, log.get(1));
+        assertEquals(log, evilSocialInator.getActivityLog("dkolev"));
+    }
 
+    @Test
+    public void testForLikingTheSameContentTwiceCountsOnce() {
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        String id = evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "First post");
+
+        assertFalse(evilSocialInator.hasLiked("ivan", id));
+
+        evilSocialInator.like("ivan", id);
+        evilSocialInator.like("ivan", id);
 
-}
\ No newline at end of file
+        assertTrue(evilSocialInator.hasLiked("ivan", id));
+        assertFalse(evilSocialInator.hasLiked("dkolev", id));
+        assertEquals(1, evilSocialInator.getNMostPopularContent(1).iterator().next().getNumberOfLikes());
+        assertEquals(1, evilSocialInator.getActivityLog("ivan").size());
+    }
+
+    private boolean containsId(Collection<Content> contents, String id) {
+        for (Content content : contents) {
+            if (content.getId().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Helpers shared by the tests. The name keeps surefire from running the class as a test.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static List<String> idsOf(Collection<? extends Content> content) {
+        List<String> result = new ArrayList<>();
+        for (Content item : content) {
+            result.add(item.getId());
+        }
+        return result;
+    }
+
+    /**
+     * A clock in UTC which stands still until it is moved forward.
+     */
+    static final class MovableClock extends Clock {
+
+        private Instant instant;
+
+        MovableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.MvccSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ShardedSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ConcurrentSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.feed.HomeTimelines;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.Journal;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SyncPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HomeFeedTest {
+
+    EvilSocialInator evilSocialInator;
+    LocalDateTime now;
+
+    @Before
+    public void setUp() {
+        evilSocialInator = new EvilSocialInator();
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        evilSocialInator.register("maria");
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    public void testForFeedMergingFollowedUsersNewestFirst() {
+        String old = evilSocialInator.publishPost("ivan", now.minusHours(3), "Old");
+        evilSocialInator.follow("dkolev", "ivan");
+        evilSocialInator.follow("dkolev", "maria");
+        String middle = evilSocialInator.publishPost("maria", now.minusHours(2), "Middle");
+        String newest = evilSocialInator.publishStory("ivan", now.minusHours(1), "Newest");
+        evilSocialInator.publishPost("dkolev", now, "Own content is not in the feed");
+
+        assertEquals(List.of(newest, middle, old), Fixtures.idsOf(evilSocialInator.getHomeFeed("dkolev", 10)));
+        assertEquals(List.of(newest), Fixtures.idsOf(evilSocialInator.getHomeFeed("dkolev", 1)));
+        assertTrue(evilSocialInator.getHomeFeed("ivan", 10).isEmpty());
+    }
+
+    @Test
+    public void testForUnfollowRemovingContentAndExpiredContentLeftOut() {
+        evilSocialInator.follow("dkolev", "ivan");
+        evilSocialInator.follow("dkolev", "maria");
+        evilSocialInator.publishPost("ivan", now, "Ivan");
+        evilSocialInator.publishStory("maria", now.minusDays(2), "Expired story");
+        String post = evilSocialInator.publishPost("maria", now.minusDays(2), "Old post");
+        evilSocialInator.unfollow("dkolev", "ivan");
+
+        assertEquals(List.of(post), Fixtures.idsOf(evilSocialInator.getHomeFeed("dkolev", 10)));
+    }
+
+    @Test
+    public void testForCelebritiesAndTruncatedTimelines() {
+        List<String> fans = new ArrayList<>();
+        for (int i = 0; i < HomeTimelines.DEFAULT_CELEBRITY_THRESHOLD; i++) {
+            evilSocialInator.register("fan" + i);
+            evilSocialInator.follow("fan" + i, "maria");
+            fans.add("fan" + i);
+        }
+        evilSocialInator.follow("dkolev", "maria");
+        evilSocialInator.follow("dkolev", "ivan");
+        int posts = HomeTimelines.DEFAULT_TIMELINE_CAPACITY + 10;
+        for (int i = 0; i < posts; i++) {
+            evilSocialInator.publishPost("ivan", now.minusMinutes(2L * posts - 2L * i), "Ivan " + i);
+            evilSocialInator.publishPost("maria", now.minusMinutes(2L * posts - 2L * i - 1), "Maria " + i);
+        }
+
+        List<String> feed = Fixtures.idsOf(evilSocialInator.getHomeFeed("dkolev", 2 * posts));
+        assertEquals(2 * posts, feed.size());
+        assertTrue(feed.get(0).startsWith("maria"));
+        assertTrue(feed.get(1).startsWith("ivan"));
+        assertEquals(posts, evilSocialInator.getHomeFeed(fans.get(0), 2 * posts).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForFollowingYourself() {
+        evilSocialInator.follow("dkolev", "dkolev");
+    }
+
+    @Test
+    public void testForAllEnginesServingTheSameFeed() {
+        List<SocialMediaInator> engines = List.of(new ConcurrentSocialInator(), new ShardedSocialInator(4),
+                new MvccSocialInator());
+        for (SocialMediaInator engine : engines) {
+            List<String> expected = new ArrayList<>();
+            for (String username : List.of("dkolev", "ivan", "maria")) {
+                engine.register(username);
+            }
+            engine.follow("dkolev", "ivan");
+            expected.add(0, engine.publishPost("ivan", now.minusMinutes(3), "First"));
+            engine.publishPost("maria", now.minusMinutes(2), "Not followed");
+            engine.follow("dkolev", "maria");
+            expected.add(0, engine.publishPost("maria", now.minusMinutes(1), "Second"));
+            engine.follow("dkolev", "maria");
+
+            assertEquals(engine.getClass().getSimpleName(), 3, engine.getHomeFeed("dkolev", 10).size());
+            engine.unfollow("dkolev", "maria");
+            assertEquals(engine.getClass().getSimpleName(), List.of(expected.get(1)),
+                    Fixtures.idsOf(engine.getHomeFeed("dkolev", 10)));
+        }
+    }
+
+    @Test
+    public void testForFollowsSurvivingRestart() throws IOException {
+        Path journalFile = Files.createTempFile("social-media", ".journal");
+        Path snapshotFile = Files.createTempFile("social-media", ".snapshot");
+        Files.delete(snapshotFile);
+        try {
+            String id;
+            try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+                EvilSocialInator engine = new EvilSocialInator(Clock.systemDefaultZone(), snapshotFile, journal);
+                engine.register("dkolev");
+                engine.register("ivan");
+                engine.register("maria");
+                engine.follow("dkolev", "ivan");
+                engine.saveSnapshot(snapshotFile).join();
+                engine.follow("dkolev", "maria");
+                engine.unfollow("dkolev", "ivan");
+                id = engine.publishPost("maria", now, "After the snapshot");
+                engine.publishPost("ivan", now, "Unfollowed");
+            }
+            try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+                EvilSocialInator engine = new EvilSocialInator(Clock.systemDefaultZone(), snapshotFile, journal);
+                assertEquals(List.of(id), Fixtures.idsOf(engine.getHomeFeed("dkolev", 10)));
+            }
+        } finally {
+            Files.deleteIfExists(journalFile);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.SocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.Journal;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SyncPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JournalTest {
+
+    private Path journalFile;
+
+    @Before
+    public void setUp() throws IOException {
+        journalFile = Files.createTempFile("social-media", ".journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test
+    public void testForRestartRestoresUsersContentLikesAndComments() throws IOException {
+        String id;
+        List<String> activityBeforeRestart;
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.grouped(64, 10))) {
+            SocialMediaInator engine = new EvilSocialInator(Clock.systemDefaultZone(), journal);
+            engine.register("dkolev");
+            engine.register("ivan");
+            id = engine.publishPost("dkolev", LocalDateTime.now(), "Hello #java @ivan");
+            engine.publishStory("ivan", LocalDateTime.now(), "Story #java");
+            engine.like("ivan", id);
+            engine.comment("ivan", "Nice", id);
+            activityBeforeRestart = new ArrayList<>(engine.getActivityLog("ivan"));
+        }
+
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+            SocialMediaInator engine = new EvilSocialInator(Clock.systemDefaultZone(), journal);
+
+            assertEquals(2, engine.findContentByTag("#java").size());
+            assertTrue(engine.hasLiked("ivan", id));
+            Content mostPopular = engine.getNMostPopularContent(1).iterator().next();
+            assertEquals(id, mostPopular.getId());
+            assertEquals(1, mostPopular.getNumberOfComments());
+            assertEquals("ivan", engine.getMostPopularUser());
+            assertEquals(activityBeforeRestart, engine.getActivityLog("ivan"));
+
+            String next = engine.publishPost("dkolev", LocalDateTime.now(), "After restart");
+            assertNotEquals(id, next);
+        }
+    }
+
+    @Test
+    public void testForTornTailIsDiscarded() throws IOException {
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+            SocialMediaInator engine = new EvilSocialInator(Clock.systemDefaultZone(), journal);
+            engine.register("dkolev");
+            engine.register("ivan");
+        }
+        long intactSize = Files.size(journalFile);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(intactSize - 3);
+        }
+
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+            SocialMediaInator engine = new EvilSocialInator(Clock.systemDefaultZone(), journal);
+            engine.register("ivan");
+            engine.register("georgi");
+        }
+
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+            SocialMediaInator engine = new EvilSocialInator(Clock.systemDefaultZone(), journal);
+            assertTrue(engine.getNMostRecentContent("georgi", 1).isEmpty());
+            assertTrue(engine.getNMostRecentContent("dkolev", 1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testForPendingRecordsForcedOnceTheDelayPasses() throws Exception {
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.grouped(64, 20))) {
+            journal.appendRegister("dkolev");
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (Files.size(journalFile) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(journal.position(), Files.size(journalFile));
+        }
+    }
+
+    @Test
+    public void testForActivityOnExpiredContentKeptAfterRestart() throws IOException {
+        Instant published = Instant.parse("2020-11-20T12:00:00Z");
+        List<String> activityBeforeRestart;
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+            SocialMediaInator engine = new EvilSocialInator(Clock.fixed(published, ZoneOffset.UTC), journal);
+            engine.register("dkolev");
+            engine.register("ivan");
+            String story = engine.publishStory("dkolev", LocalDateTime.now(Clock.fixed(published, ZoneOffset.UTC)),
+                    "Story");
+            engine.like("ivan", story);
+            engine.comment("ivan", "Nice", story);
+            activityBeforeRestart = engine.getActivityLog("ivan");
+        }
+
+        Clock later = Clock.fixed(published.plus(Duration.ofDays(2)), ZoneOffset.UTC);
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.always())) {
+            SocialMediaInator engine = new EvilSocialInator(later, journal);
+            assertEquals(2, activityBeforeRestart.size());
+            assertEquals(activityBeforeRestart, engine.getActivityLog("ivan"));
+        }
+    }
+}
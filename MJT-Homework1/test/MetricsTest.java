@@ -0,0 +1,124 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.ConcurrentSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.InstrumentedSocialMediaInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.HistogramSnapshot;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.LatencyHistogram;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MethodSnapshot;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsReporter;
+import bg.sofia.uni.fmi.mjt.socialmedia.metrics.MetricsSnapshot;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void testForPercentilesAreWithinTheRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getTotalCount());
+        assertEquals(100_000_000, snapshot.getMax());
+        assertEquals(50_000_000, snapshot.getValueAtPercentile(50), 50_000_000 / 64.0);
+        assertEquals(99_000_000, snapshot.getValueAtPercentile(99), 99_000_000 / 64.0);
+        assertEquals(50_000_500, snapshot.getMean(), 0.001);
+    }
+
+    @Test
+    public void testForDecoratorCountsCallsExceptionsAndGauges() {
+        InstrumentedSocialMediaInator socialMedia = new InstrumentedSocialMediaInator(new EvilSocialInator());
+        socialMedia.register("dkolev");
+        String id = socialMedia.publishPost("dkolev", LocalDateTime.now(), "Hello #java");
+        socialMedia.like("dkolev", id);
+        try {
+            socialMedia.like("ivan", id);
+            fail("Liking by an unknown user should throw");
+        } catch (UsernameNotFoundException expected) {
+        }
+
+        MetricsSnapshot snapshot = socialMedia.getMetrics().snapshot();
+        MethodSnapshot like = snapshot.getMethod("like");
+        assertEquals(2, like.getCalls());
+        assertEquals(1, like.getExceptionCount());
+        assertEquals(Long.valueOf(1), like.getExceptions().get("UsernameNotFoundException"));
+        assertEquals(0, snapshot.getMethod("comment").getCalls());
+        assertEquals(Long.valueOf(1), snapshot.getGauges().get("contents"));
+        assertEquals(Long.valueOf(1), snapshot.getGauges().get("tags"));
+        assertTrue(snapshot.toText().contains("UsernameNotFoundException=1"));
+        assertTrue(snapshot.toCsv().contains(",like,calls,2"));
+    }
+
+    @Test
+    public void testForFailingGaugeReportedAsUnavailable() throws InterruptedException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.registerGauge("broken", () -> {
+            throw new IllegalStateException();
+        });
+        registry.registerGauge("working", () -> 7);
+        AtomicInteger dumps = new AtomicInteger();
+
+        try (MetricsReporter reporter = new MetricsReporter(registry, MetricsReporter.Format.TEXT, dump -> {
+            if (dumps.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+        })) {
+            reporter.start(Duration.ofMillis(5));
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (dumps.get() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(dumps.get() >= 3);
+            assertEquals(1, reporter.getFailedReports());
+        }
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        assertNull(snapshot.getGauges().get("broken"));
+        assertEquals(Long.valueOf(7), snapshot.getGauges().get("working"));
+        assertTrue(snapshot.toText().contains(MetricsSnapshot.UNAVAILABLE));
+        assertTrue(snapshot.toCsv().contains(",broken,value," + MetricsSnapshot.UNAVAILABLE));
+    }
+
+    @Test
+    public void testForByteGaugesFollowPublishingLikingAndExpiry() {
+        InstrumentedSocialMediaInator socialMedia = new InstrumentedSocialMediaInator(new EvilSocialInator());
+        socialMedia.register("dkolev");
+        socialMedia.register("ivan");
+        String id = socialMedia.publishPost("dkolev", LocalDateTime.now(), "Hello #java");
+        long published = socialMedia.getMetrics().snapshot().getGauges().get("contentBytes");
+        long activity = socialMedia.getMetrics().snapshot().getGauges().get("activityLogBytes");
+        socialMedia.like("ivan", id);
+        socialMedia.comment("ivan", "Nice", id);
+
+        MetricsSnapshot snapshot = socialMedia.getMetrics().snapshot();
+        assertTrue(published > 0);
+        assertTrue(snapshot.getGauges().get("contentBytes") > published);
+        assertTrue(snapshot.getGauges().get("activityLogBytes") > activity);
+
+        socialMedia.publishStory("dkolev", LocalDateTime.now().minusDays(2), "Old");
+        socialMedia.getNMostPopularContent(1);
+        assertEquals(snapshot.getGauges().get("contentBytes"),
+                socialMedia.getMetrics().snapshot().getGauges().get("contentBytes"));
+    }
+
+    @Test
+    public void testForActivityLogGaugeOfConcurrentEngineFollowsActivity() {
+        InstrumentedSocialMediaInator socialMedia = new InstrumentedSocialMediaInator(new ConcurrentSocialInator());
+        socialMedia.register("dkolev");
+        long registered = socialMedia.getMetrics().snapshot().getGauges().get("activityLogBytes");
+        for (int i = 0; i < 100; i++) {
+            socialMedia.publishPost("dkolev", LocalDateTime.now(), "Post " + i);
+        }
+
+        assertTrue(registered > 0);
+        assertTrue(socialMedia.getMetrics().snapshot().getGauges().get("activityLogBytes") > registered);
+    }
+}
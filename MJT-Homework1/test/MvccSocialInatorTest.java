@@ -0,0 +1,109 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.MvccSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.NoUsersException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MvccSocialInatorTest {
+
+    private static final int USERS = 50;
+
+    MvccSocialInator mvccSocialInator;
+
+    @Before
+    public void setUp() {
+        mvccSocialInator = new MvccSocialInator();
+    }
+
+    @Test(expected = NoUsersException.class)
+    public void testForMostPopularUserWithoutUsers() {
+        mvccSocialInator.getMostPopularUser();
+    }
+
+    @Test
+    public void testForPinnedViewNotSeeingLaterWrites() {
+        mvccSocialInator.register("dkolev");
+        mvccSocialInator.register("ivan");
+        String id = mvccSocialInator.publishPost("dkolev", LocalDateTime.now(), "#java Hi @ivan");
+        MvccSocialInator.View view = mvccSocialInator.pin();
+
+        mvccSocialInator.like("ivan", id);
+        mvccSocialInator.publishPost("ivan", LocalDateTime.now(), "#java Hi @dkolev @dkolev");
+
+        assertEquals(0, view.getNMostPopularContent(1).iterator().next().getNumberOfLikes());
+        assertEquals(1, view.findContentByTag("#java").size());
+        assertEquals("ivan", view.getMostPopularUser());
+        assertEquals(1, view.getActivityLog("ivan").size() + view.getActivityLog("dkolev").size());
+
+        assertEquals(1, mvccSocialInator.getNMostPopularContent(1).iterator().next().getNumberOfLikes());
+        assertEquals(2, mvccSocialInator.findContentByTag("#java").size());
+        assertEquals("dkolev", mvccSocialInator.getMostPopularUser());
+    }
+
+    @Test
+    public void testForExpiredContentLeftOut() {
+        mvccSocialInator.register("dkolev");
+        mvccSocialInator.publishStory("dkolev", LocalDateTime.now().minusDays(2), "#java Old");
+        String fresh = mvccSocialInator.publishStory("dkolev", LocalDateTime.now(), "#java New");
+
+        List<Content> recent = new ArrayList<>(mvccSocialInator.getNMostRecentContent("dkolev", 5));
+        assertEquals(1, recent.size());
+        assertEquals(fresh, recent.get(0).getId());
+        assertEquals(1, mvccSocialInator.findContentByTag("#java").size());
+    }
+
+    @Test
+    public void testForExpiredMentionsRetiredWithoutWrites() throws InterruptedException {
+        mvccSocialInator.register("dkolev");
+        mvccSocialInator.register("ivan");
+        mvccSocialInator.publishStory("dkolev", LocalDateTime.now().minusHours(24).plusSeconds(1), "Hi @ivan");
+        assertEquals("ivan", mvccSocialInator.getMostPopularUser());
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!mvccSocialInator.getMostPopularUser().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("", mvccSocialInator.getMostPopularUser());
+        assertEquals(0, mvccSocialInator.getUserStats("ivan").getMentions());
+    }
+
+    @Test
+    public void testForReadersSeeingConsistentVersionsDuringWrites() throws InterruptedException {
+        for (int i = 0; i < USERS; i++) {
+            mvccSocialInator.register("user" + i);
+        }
+        String id = mvccSocialInator.publishPost("user0", LocalDateTime.now(), "#hot");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (writing.get() && failure.get() == null) {
+                MvccSocialInator.View view = mvccSocialInator.pin();
+                int likes = view.getNMostPopularContent(1).iterator().next().getNumberOfLikes();
+                int liked = 0;
+                for (int i = 0; i < USERS; i++) {
+                    liked += view.getActivityLog("user" + i).size();
+                }
+                if (liked != likes + 1) {
+                    failure.set(likes + " likes but " + liked + " activities");
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < USERS; i++) {
+            mvccSocialInator.like("user" + i, id);
+        }
+        writing.set(false);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(USERS, mvccSocialInator.getNMostPopularContent(1).iterator().next().getNumberOfLikes());
+    }
+}
@@ -0,0 +1,88 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.ContentPage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PaginationTest {
+
+    private static final int CONTENT = 25;
+    private static final int PAGE_SIZE = 10;
+
+    EvilSocialInator evilSocialInator;
+    List<String> ids;
+
+    @Before
+    public void setUp() {
+        evilSocialInator = new EvilSocialInator();
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        ids = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < CONTENT; i++) {
+            ids.add(evilSocialInator.publishPost("dkolev", now.minusMinutes(CONTENT - i), "#java " + i));
+        }
+    }
+
+    @Test
+    public void testForTagPagesNotDisturbedByNewContent() {
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            ContentPage page = evilSocialInator.findContentByTag("#java", PAGE_SIZE, cursor);
+            assertTrue(page.getContent().size() <= PAGE_SIZE);
+            page.stream().map(Content::getId).forEach(paged::add);
+            evilSocialInator.publishPost("dkolev", LocalDateTime.now(), "#java new");
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<String> expected = new ArrayList<>(ids);
+        Collections.reverse(expected);
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void testForPopularPagesInRankingOrder() {
+        evilSocialInator.like("ivan", ids.get(3));
+        evilSocialInator.like("dkolev", ids.get(3));
+        evilSocialInator.like("ivan", ids.get(7));
+
+        ContentPage first = evilSocialInator.getMostPopularContent(2, null);
+        assertEquals(List.of(ids.get(3), ids.get(7)), Fixtures.idsOf(first.getContent()));
+        ContentPage second = evilSocialInator.getMostPopularContent(2, first.getNextCursor());
+        assertEquals(List.of(ids.get(0), ids.get(1)), Fixtures.idsOf(second.getContent()));
+    }
+
+    @Test
+    public void testForRecentPagesOfUser() {
+        ContentPage first = evilSocialInator.getMostRecentContent("dkolev", PAGE_SIZE, null);
+        ContentPage second = evilSocialInator.getMostRecentContent("dkolev", PAGE_SIZE, first.getNextCursor());
+        assertEquals(ids.get(CONTENT - 1), first.getContent().get(0).getId());
+        assertEquals(ids.get(CONTENT - 1 - PAGE_SIZE), second.getContent().get(0).getId());
+        assertTrue(second.hasNext());
+        assertFalse(evilSocialInator.getMostRecentContent("ivan", PAGE_SIZE, null).hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForCursorOfAnotherQuery() {
+        String cursor = evilSocialInator.findContentByTag("#java", PAGE_SIZE, null).getNextCursor();
+        evilSocialInator.getMostRecentContent("dkolev", PAGE_SIZE, cursor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForEditedCursor() {
+        String cursor = evilSocialInator.findContentByTag("#java", PAGE_SIZE, null).getNextCursor();
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        bytes[Byte.BYTES + Integer.BYTES + 2 * Long.BYTES - 1]--;
+        evilSocialInator.findContentByTag("#java", PAGE_SIZE, Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(bytes));
+    }
+}
@@ -0,0 +1,88 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.search.Query;
+import bg.sofia.uni.fmi.mjt.socialmedia.search.SearchOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchTest {
+
+    private static final int CONTENT = 5000;
+
+    EvilSocialInator evilSocialInator;
+    LocalDateTime now;
+
+    @Before
+    public void setUp() {
+        evilSocialInator = new EvilSocialInator();
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    public void testForIntersectionOfLargeTagsMatchingAScan() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < CONTENT; i++) {
+            String description = (i % 3 == 0 ? "#three " : "") + (i % 7 == 0 ? "#seven " : "") + "Post";
+            ids.add(evilSocialInator.publishPost("dkolev", now, description));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = CONTENT - 1; i >= 0; i--) {
+            if (i % 21 == 0) {
+                expected.add(ids.get(i));
+            } else if (i % 2 == 0) {
+                evilSocialInator.comment("ivan", "even", ids.get(i));
+            }
+        }
+        Query query = Query.and(Query.term("#three"), Query.term("#seven"), Query.not(Query.term("even")));
+        List<Content> found = evilSocialInator.search(query, CONTENT, SearchOrder.NEWEST);
+        assertEquals(expected, Fixtures.idsOf(found));
+    }
+
+    @Test
+    public void testForBooleanOperatorsOverTagsMentionsAndWords() {
+        String java = evilSocialInator.publishPost("dkolev", now, "Learning #java with @ivan");
+        String kotlin = evilSocialInator.publishPost("dkolev", now, "Learning #kotlin");
+        String story = evilSocialInator.publishStory("ivan", now, "Coffee time");
+        evilSocialInator.comment("ivan", "So much JAVA!", kotlin);
+
+        assertEquals(List.of(kotlin, java), Fixtures.idsOf(evilSocialInator.search(Query.term("java"), 10,
+                SearchOrder.NEWEST)));
+        assertEquals(List.of(java), Fixtures.idsOf(evilSocialInator.search(Query.term("#java"), 10,
+                SearchOrder.NEWEST)));
+        assertEquals(List.of(story, kotlin), Fixtures.idsOf(evilSocialInator.search(Query.not(Query.term("@ivan")), 10,
+                SearchOrder.NEWEST)));
+        assertEquals(List.of(story, java), Fixtures.idsOf(evilSocialInator.search(
+                Query.or(Query.term("@ivan"), Query.term("coffee")), 10, SearchOrder.NEWEST)));
+        assertTrue(evilSocialInator.search(Query.term("#scala"), 10, SearchOrder.NEWEST).isEmpty());
+    }
+
+    @Test
+    public void testForRankingByEngagement() {
+        String first = evilSocialInator.publishPost("dkolev", now, "#java first");
+        String second = evilSocialInator.publishPost("dkolev", now, "#java second");
+        String third = evilSocialInator.publishPost("dkolev", now, "#java third");
+        evilSocialInator.like("ivan", first);
+        evilSocialInator.comment("ivan", "Nice", first);
+        evilSocialInator.like("ivan", third);
+
+        List<Content> found = evilSocialInator.search(Query.term("#java"), 2, SearchOrder.ENGAGEMENT);
+        assertEquals(List.of(first, third), Fixtures.idsOf(found));
+        assertNotEquals(second, found.get(1).getId());
+    }
+
+    @Test
+    public void testForExpiredContentNotFound() {
+        evilSocialInator.publishStory("dkolev", now.minusDays(2), "#java old");
+        String fresh = evilSocialInator.publishStory("dkolev", now, "#java new");
+        assertEquals(List.of(fresh), Fixtures.idsOf(evilSocialInator.search(Query.term("#java"), 10,
+                SearchOrder.NEWEST)));
+    }
+}
@@ -0,0 +1,134 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.ShardedSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.socialmedia.exceptions.UsernameNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ShardedSocialInatorTest {
+
+    private static final int SHARDS = 4;
+    private static final int USERS = 20;
+
+    ShardedSocialInator shardedSocialInator;
+
+    @Before
+    public void setUp() {
+        shardedSocialInator = new ShardedSocialInator(SHARDS);
+        for (int i = 0; i < USERS; i++) {
+            shardedSocialInator.register("user" + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        shardedSocialInator.close();
+    }
+
+    @Test(expected = UsernameAlreadyExistsException.class)
+    public void testForAddingTheSameUsernameTwice() {
+        shardedSocialInator.register("user3");
+    }
+
+    @Test(expected = UsernameNotFoundException.class)
+    public void testForLikingByUnknownUser() {
+        String id = shardedSocialInator.publishPost("user1", LocalDateTime.now(), "Hello");
+        shardedSocialInator.like("dimitar", id);
+    }
+
+    @Test
+    public void testForMostPopularContentIsMergedFromAllShards() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            ids.add(shardedSocialInator.publishPost("user" + i, LocalDateTime.now(), "Post #all"));
+        }
+        for (int i = 0; i < USERS; i++) {
+            for (int liker = 0; liker < i; liker++) {
+                shardedSocialInator.like("user" + liker, ids.get(i));
+            }
+        }
+
+        List<String> mostPopular = new ArrayList<>();
+        for (Content content : shardedSocialInator.getNMostPopularContent(3)) {
+            mostPopular.add(content.getId());
+        }
+
+        assertEquals(List.of(ids.get(19), ids.get(18), ids.get(17)), mostPopular);
+        assertTrue(shardedSocialInator.hasLiked("user0", ids.get(19)));
+        assertEquals(USERS, shardedSocialInator.findContentByTag("#all").size());
+    }
+
+    @Test
+    public void testForMostPopularUserSumsMentionsOverShards() {
+        for (int i = 0; i < USERS; i++) {
+            shardedSocialInator.publishPost("user" + i, LocalDateTime.now(), "Hi @user7");
+        }
+        shardedSocialInator.publishPost("user1", LocalDateTime.now(), "@user3 @user3");
+
+        assertEquals("user7", shardedSocialInator.getMostPopularUser());
+    }
+
+    @Test
+    public void testForUsersRegisteredConcurrentlyActOnEveryShard() throws InterruptedException {
+        String id = shardedSocialInator.publishPost("user0", LocalDateTime.now(), "Hi @late0 @late1");
+        AtomicInteger rejected = new AtomicInteger();
+        Collection<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            Thread thread = new Thread(() -> {
+                for (int user = 0; user < USERS; user++) {
+                    try {
+                        shardedSocialInator.register("late" + user);
+                    } catch (UsernameAlreadyExistsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int user = 0; user < USERS; user++) {
+            shardedSocialInator.like("late" + user, id);
+        }
+
+        assertEquals((SHARDS - 1) * USERS, rejected.get());
+        assertEquals(USERS, shardedSocialInator.getNMostPopularContent(1).iterator().next().getNumberOfLikes());
+        assertEquals(1, shardedSocialInator.getUserStats("late1").getMentions());
+        assertEquals(1, shardedSocialInator.getActivityLog("late5").size());
+        assertTrue(shardedSocialInator.getActivityLog("user5").isEmpty());
+    }
+
+    @Test
+    public void testForUserStatsLeaveOutExpiredContent() {
+        shardedSocialInator.publishPost("user1", LocalDateTime.now(), "New");
+        shardedSocialInator.publishStory("user1", LocalDateTime.now().minusDays(2), "Old");
+
+        assertEquals(1, shardedSocialInator.getUserStats("user1").getContentPublished());
+    }
+
+    @Test
+    public void testForActivityLogIsMergedByTime() {
+        LocalDateTime now = LocalDateTime.now();
+        String first = shardedSocialInator.publishPost("user1", now.minusMinutes(2), "First");
+        String second = shardedSocialInator.publishPost("user2", now.minusMinutes(1), "Second");
+        shardedSocialInator.comment("user1", "Nice", second);
+        shardedSocialInator.like("user1", first);
+
+        List<String> activity = shardedSocialInator.getActivityLog("user1");
+
+        assertEquals(3, activity.size());
+        assertTrue(activity.get(2).endsWith("Created a post with id " + first));
+        assertEquals(1, shardedSocialInator.getNMostRecentContent("user1", 5).size());
+    }
+}
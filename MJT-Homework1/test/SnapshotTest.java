@@ -0,0 +1,97 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.content.Content;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.Journal;
+import bg.sofia.uni.fmi.mjt.socialmedia.persistence.SyncPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTest {
+
+    private Path journalFile;
+    private Path snapshotFile;
+
+    @Before
+    public void setUp() throws IOException {
+        journalFile = Files.createTempFile("social-media", ".journal");
+        snapshotFile = journalFile.resolveSibling(journalFile.getFileName() + ".snapshot");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(journalFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void testForRestartFromSnapshotAndJournalTail() throws Exception {
+        String id;
+        String afterSnapshot;
+        List<String> activityBeforeRestart;
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.never())) {
+            EvilSocialInator engine = new EvilSocialInator(Clock.systemDefaultZone(), snapshotFile, journal);
+            engine.register("dkolev");
+            engine.register("ivan");
+            id = engine.publishPost("dkolev", LocalDateTime.now(), "Hello #java @ivan");
+            engine.publishStory("ivan", LocalDateTime.now(), "Story #java");
+            engine.like("ivan", id);
+            engine.comment("ivan", "Nice", id);
+            engine.saveSnapshot(snapshotFile).get();
+
+            engine.register("georgi");
+            afterSnapshot = engine.publishPost("georgi", LocalDateTime.now(), "After the snapshot #java");
+            engine.like("georgi", id);
+            activityBeforeRestart = new ArrayList<>(engine.getActivityLog("ivan"));
+        }
+
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.never())) {
+            EvilSocialInator engine = new EvilSocialInator(Clock.systemDefaultZone(), snapshotFile, journal);
+
+            assertEquals(3, engine.findContentByTag("#java").size());
+            assertTrue(engine.hasLiked("ivan", id));
+            assertTrue(engine.hasLiked("georgi", id));
+            Content mostPopular = engine.getNMostPopularContent(1).iterator().next();
+            assertEquals(id, mostPopular.getId());
+            assertEquals(2, mostPopular.getNumberOfLikes());
+            assertEquals(1, mostPopular.getNumberOfComments());
+            assertEquals("ivan", engine.getMostPopularUser());
+            assertEquals(activityBeforeRestart, engine.getActivityLog("ivan"));
+            assertEquals(afterSnapshot, engine.getNMostRecentContent("georgi", 1).iterator().next().getId());
+
+            String next = engine.publishPost("dkolev", LocalDateTime.now(), "After restart");
+            assertNotEquals(id, next);
+            assertNotEquals(afterSnapshot, next);
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testForCorruptedSnapshotIsRejected() throws Exception {
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.never())) {
+            EvilSocialInator engine = new EvilSocialInator(Clock.systemDefaultZone(), snapshotFile, journal);
+            engine.register("dkolev");
+            engine.publishPost("dkolev", LocalDateTime.now(), "Hello");
+            engine.saveSnapshot(snapshotFile).get();
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), 40);
+        }
+
+        try (Journal journal = Journal.open(journalFile, SyncPolicy.never())) {
+            new EvilSocialInator(Clock.systemDefaultZone(), snapshotFile, journal);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimeRangeTest {
+
+    Fixtures.MovableClock clock;
+    EvilSocialInator evilSocialInator;
+    LocalDateTime now;
+
+    @Before
+    public void setUp() {
+        clock = new Fixtures.MovableClock(Instant.parse("2020-11-20T12:00:00Z"));
+        evilSocialInator = new EvilSocialInator(clock);
+        evilSocialInator.register("dkolev");
+        evilSocialInator.register("ivan");
+        now = LocalDateTime.now(clock);
+    }
+
+    @Test
+    public void testForContentWithinIntervalNewestFirst() {
+        String oldest = evilSocialInator.publishPost("dkolev", now.minusHours(5), "Oldest");
+        String newest = evilSocialInator.publishPost("dkolev", now.minusMinutes(1), "Newest");
+        String start = evilSocialInator.publishPost("dkolev", now.minusHours(3).plusNanos(500), "At the start");
+        String middle = evilSocialInator.publishStory("ivan", now.minusHours(2), "Middle");
+        evilSocialInator.publishPost("ivan", now.minusHours(3), "Right before the start");
+        evilSocialInator.publishPost("ivan", now.minusMinutes(1).plusNanos(1), "Right after the end");
+
+        LocalDateTime from = now.minusHours(3).plusNanos(500);
+        LocalDateTime to = now.minusMinutes(1).plusNanos(1);
+        assertEquals(List.of(newest, middle, start),
+                Fixtures.idsOf(evilSocialInator.findContentPublishedBetween(from, to, 10)));
+        assertEquals(List.of(newest), Fixtures.idsOf(evilSocialInator.findContentPublishedBetween(from, to, 1)));
+        assertEquals(List.of(oldest), Fixtures.idsOf(evilSocialInator.findContentPublishedBetween(now.minusDays(1),
+                now.minusHours(4), 10)));
+        assertTrue(evilSocialInator.findContentPublishedBetween(now, now, 10).isEmpty());
+    }
+
+    @Test
+    public void testForTagsWithinIntervalMatchingAScan() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String tags = (i % 50 == 0 ? "#rare " : "") + (i % 2 == 0 ? "#common " : "");
+            ids.add(evilSocialInator.publishPost("dkolev", now.minusMinutes(i), tags + "Post"));
+        }
+        LocalDateTime from = now.minusMinutes(300);
+        LocalDateTime to = now.minusMinutes(20);
+        List<String> rare = new ArrayList<>();
+        List<String> common = new ArrayList<>();
+        for (int i = 21; i <= 300; i++) {
+            if (i % 50 == 0) {
+                rare.add(ids.get(i));
+            }
+            if (i % 2 == 0) {
+                common.add(ids.get(i));
+            }
+        }
+        assertEquals(rare, Fixtures.idsOf(evilSocialInator.findContentByTag("#rare", from, to)));
+        assertEquals(common, Fixtures.idsOf(evilSocialInator.findContentByTag("#common", from, to)));
+        assertEquals(common.subList(4, common.size()), Fixtures.idsOf(evilSocialInator.findContentByTag("#common", from,
+                now.minusMinutes(29))));
+        assertTrue(evilSocialInator.findContentByTag("#scala", from, to).isEmpty());
+    }
+
+    @Test
+    public void testForMostPopularWithinNarrowAndWideIntervals() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(evilSocialInator.publishPost("dkolev", now.minusHours(i), "Post " + i));
+        }
+        evilSocialInator.like("ivan", ids.get(90));
+        evilSocialInator.comment("ivan", "Nice", ids.get(90));
+        evilSocialInator.like("ivan", ids.get(95));
+        evilSocialInator.like("ivan", ids.get(5));
+        evilSocialInator.comment("ivan", "Nice", ids.get(5));
+
+        assertEquals(List.of(ids.get(90), ids.get(95)), Fixtures.idsOf(evilSocialInator.getNMostPopularContent(2,
+                now.minusHours(97), now.minusHours(89))));
+        assertEquals(List.of(ids.get(5), ids.get(90), ids.get(95)),
+                Fixtures.idsOf(evilSocialInator.getNMostPopularContent(3, now.minusDays(30), now.plusHours(1))));
+        assertTrue(evilSocialInator.getNMostPopularContent(3, now.plusHours(1), now.plusHours(2)).isEmpty());
+    }
+
+    @Test
+    public void testForExpiredContentLeftOut() {
+        String post = evilSocialInator.publishPost("dkolev", now, "Post");
+        String story = evilSocialInator.publishStory("dkolev", now, "Story");
+        LocalDateTime from = now.minusDays(1);
+        LocalDateTime to = now.plusDays(1);
+        assertEquals(List.of(story, post), Fixtures.idsOf(evilSocialInator.findContentPublishedBetween(from, to, 10)));
+
+        clock.advance(Duration.ofDays(2));
+        assertEquals(List.of(post), Fixtures.idsOf(evilSocialInator.findContentPublishedBetween(from, to, 10)));
+        clock.advance(Duration.ofDays(29));
+        assertTrue(evilSocialInator.findContentPublishedBetween(from, to, 10).isEmpty());
+        assertTrue(evilSocialInator.getNMostPopularContent(10, from, to).isEmpty());
+        clock.advance(Duration.ofDays(2));
+        evilSocialInator.publishPost("dkolev", now, "Published with an old date");
+        assertTrue(evilSocialInator.findContentPublishedBetween(from, to, 10).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForIntervalEndingBeforeItStarts() {
+        evilSocialInator.findContentPublishedBetween(now, now.minusSeconds(1), 10);
+    }
+}
@@ -0,0 +1,70 @@
+import bg.sofia.uni.fmi.mjt.socialmedia.EvilSocialInator;
+import bg.sofia.uni.fmi.mjt.socialmedia.trending.TrendingTags;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrendingTagsTest {
+
+    Fixtures.MovableClock clock;
+    EvilSocialInator evilSocialInator;
+
+    @Before
+    public void setUp() {
+        clock = new Fixtures.MovableClock(Instant.parse("2020-11-20T12:00:00Z"));
+        evilSocialInator = new EvilSocialInator(clock);
+        evilSocialInator.register("dkolev");
+    }
+
+    @Test
+    public void testForTagsRankedByNumberOfContent() {
+        publish(3, "#java");
+        publish(5, "#mjt");
+        publish(1, "#python");
+        evilSocialInator.publishPost("dkolev", now(), "#java #java");
+
+        assertEquals(List.of("#mjt", "#java"), evilSocialInator.getTrendingTags(2, TrendingTags.Window.HOUR));
+        assertEquals(List.of("#mjt", "#java", "#python"),
+                evilSocialInator.getTrendingTags(10, TrendingTags.Window.WEEK));
+    }
+
+    @Test
+    public void testForTagsLeavingTheWindowAsTimePasses() {
+        publish(2, "#java");
+        clock.advance(Duration.ofHours(2));
+        publish(1, "#mjt");
+
+        assertEquals(List.of("#mjt"), evilSocialInator.getTrendingTags(5, TrendingTags.Window.HOUR));
+        assertEquals(List.of("#java", "#mjt"), evilSocialInator.getTrendingTags(5, TrendingTags.Window.DAY));
+    }
+
+    @Test
+    public void testForHeavyHitterFoundAmongManyDistinctTags() {
+        TrendingTags trendingTags = new TrendingTags(clock, 256, 16);
+        long size = trendingTags.getSizeInBytes();
+        for (int i = 0; i < 100_000; i++) {
+            trendingTags.record(List.of("#tag" + i), now());
+            if (i % 10 == 0) {
+                trendingTags.record(List.of("#hot"), now());
+            }
+        }
+        assertEquals(List.of("#hot"), trendingTags.top(1, TrendingTags.Window.DAY));
+        assertEquals(size, trendingTags.getSizeInBytes());
+    }
+
+    private void publish(int times, String tag) {
+        for (int i = 0; i < times; i++) {
+            evilSocialInator.publishPost("dkolev", now(), "Post " + tag);
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+}